@@ -0,0 +1,11 @@
+package com.tinysteps.reportservice.cache;
+
+/**
+ * Eviction policies supported by {@link ReferenceDataCache}
+ */
+public enum CacheEvictionPolicy {
+    /** Least recently used entry is evicted first */
+    LRU,
+    /** Caffeine's frequency-aware Window TinyLFU policy */
+    W_TINYLFU
+}
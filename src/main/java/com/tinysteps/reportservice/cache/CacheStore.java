@@ -0,0 +1,24 @@
+package com.tinysteps.reportservice.cache;
+
+import java.util.Map;
+
+/**
+ * Bounded, expiring key-value store backing a {@link ReferenceDataCache}
+ */
+interface CacheStore<V> {
+
+    V get(String key);
+
+    void put(String key, V value);
+
+    void invalidate(String key);
+
+    void invalidateAll();
+
+    long size();
+
+    /**
+     * Returns up to {@code limit} live entries, most valuable to keep first
+     */
+    Map<String, V> hottest(int limit);
+}
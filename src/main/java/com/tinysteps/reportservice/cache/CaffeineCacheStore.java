@@ -0,0 +1,67 @@
+package com.tinysteps.reportservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * W-TinyLFU store backed by Caffeine
+ */
+class CaffeineCacheStore<V> implements CacheStore<V> {
+
+    private final Cache<String, V> cache;
+
+    CaffeineCacheStore(long maxEntries, Duration ttl, Runnable onEviction) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .evictionListener((String key, V value, RemovalCause cause) -> onEviction.run())
+                .build();
+    }
+
+    @Override
+    public V get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    @Override
+    public void put(String key, V value) {
+        cache.put(key, value);
+    }
+
+    @Override
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public Map<String, V> hottest(int limit) {
+        // Ranked by the W-TinyLFU frequency sketch when size-bounded
+        return cache.policy().eviction()
+                .map(eviction -> eviction.hottest(limit))
+                .orElseGet(() -> {
+                    Map<String, V> entries = new LinkedHashMap<>();
+                    for (Map.Entry<String, V> entry : cache.asMap().entrySet()) {
+                        if (entries.size() >= limit) {
+                            break;
+                        }
+                        entries.put(entry.getKey(), entry.getValue());
+                    }
+                    return entries;
+                });
+    }
+}
@@ -0,0 +1,85 @@
+package com.tinysteps.reportservice.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU store backed by an access-ordered {@link LinkedHashMap}.
+ * Expired entries are dropped lazily when they are read.
+ */
+class LruCacheStore<V> implements CacheStore<V> {
+
+    private final long ttlNanos;
+    private final Runnable onEviction;
+    private final LinkedHashMap<String, Entry<V>> entries;
+
+    LruCacheStore(long maxEntries, Duration ttl, Runnable onEviction) {
+        this.ttlNanos = ttl.toNanos();
+        this.onEviction = onEviction;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() > maxEntries) {
+                    onEviction.run();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public synchronized V get(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.writtenAtNanos() > ttlNanos) {
+            entries.remove(key);
+            onEviction.run();
+            return null;
+        }
+        return entry.value();
+    }
+
+    @Override
+    public synchronized void put(String key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    @Override
+    public synchronized void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized long size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized Map<String, V> hottest(int limit) {
+        // Access order puts the most recently used entries last
+        List<Map.Entry<String, Entry<V>>> ordered = new ArrayList<>(entries.entrySet());
+        Map<String, V> hottest = new LinkedHashMap<>();
+        long now = System.nanoTime();
+        for (int i = ordered.size() - 1; i >= 0 && hottest.size() < limit; i--) {
+            Map.Entry<String, Entry<V>> entry = ordered.get(i);
+            if (now - entry.getValue().writtenAtNanos() <= ttlNanos) {
+                hottest.put(entry.getKey(), entry.getValue().value());
+            }
+        }
+        return hottest;
+    }
+
+    private record Entry<V>(V value, long writtenAtNanos) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.tinysteps.reportservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+
+/**
+ * Short-lived record of entity IDs whose lookups recently returned not found or kept failing.
+ * Lookups for a blocked ID are skipped so callers go straight to their fallback instead of
+ * waiting on the downstream service and its retries again.
+ */
+public class NegativeLookupCache {
+
+    private final Cache<String, NegativeEntry> entries;
+    private final int failureThreshold;
+    private final Counter skipped;
+
+    public NegativeLookupCache(String name, Duration notFoundTtl, Duration failureTtl, int failureThreshold,
+                               long maxEntries, MeterRegistry meterRegistry) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new NegativeEntryExpiry(notFoundTtl.toNanos(), failureTtl.toNanos()))
+                .build();
+        this.skipped = Counter.builder("report.cache.negative.skipped")
+                .description("Lookups skipped because the ID was recently not found or failing")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Tells whether the ID should not be looked up again yet, and whether that is because it was not found
+     * or because its lookups keep failing
+     */
+    public Block check(String id) {
+        NegativeEntry entry = entries.getIfPresent(id);
+        Block block = Block.NONE;
+        if (entry != null && entry.notFound()) {
+            block = Block.NOT_FOUND;
+        } else if (entry != null && entry.failures() >= failureThreshold) {
+            block = Block.FAILING;
+        }
+        if (block != Block.NONE) {
+            skipped.increment();
+        }
+        return block;
+    }
+
+    public void recordNotFound(String id) {
+        entries.put(id, new NegativeEntry(true, 0));
+    }
+
+    public void recordFailure(String id) {
+        entries.asMap().merge(id, new NegativeEntry(false, 1),
+                (current, failure) -> current.notFound() ? current : new NegativeEntry(false, current.failures() + 1));
+    }
+
+    public void invalidate(String id) {
+        entries.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    public enum Block {
+        NONE,
+        NOT_FOUND,
+        FAILING
+    }
+
+    private record NegativeEntry(boolean notFound, int failures) {
+    }
+
+    private record NegativeEntryExpiry(long notFoundTtlNanos, long failureTtlNanos) implements Expiry<String, NegativeEntry> {
+
+        @Override
+        public long expireAfterCreate(String key, NegativeEntry entry, long currentTime) {
+            return entry.notFound() ? notFoundTtlNanos : failureTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, NegativeEntry entry, long currentTime, long currentDuration) {
+            return entry.notFound() ? notFoundTtlNanos : failureTtlNanos;
+        }
+
+        @Override
+        public long expireAfterRead(String key, NegativeEntry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.tinysteps.reportservice.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one {@link NegativeLookupCache} per entity type, configured under {@code integration.negative-cache}
+ */
+@Component
+public class NegativeLookupCaches {
+
+    private final Map<String, NegativeLookupCache> caches = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Duration notFoundTtl;
+    private final Duration failureTtl;
+    private final int failureThreshold;
+    private final long maxEntries;
+
+    public NegativeLookupCaches(MeterRegistry meterRegistry,
+                                @Value("${integration.negative-cache.not-found-ttl:10m}") Duration notFoundTtl,
+                                @Value("${integration.negative-cache.failure-ttl:30s}") Duration failureTtl,
+                                @Value("${integration.negative-cache.failure-threshold:1}") int failureThreshold,
+                                @Value("${integration.negative-cache.max-entries:10000}") long maxEntries) {
+        this.meterRegistry = meterRegistry;
+        this.notFoundTtl = notFoundTtl;
+        this.failureTtl = failureTtl;
+        this.failureThreshold = failureThreshold;
+        this.maxEntries = maxEntries;
+    }
+
+    public NegativeLookupCache forEntity(String entity) {
+        return caches.computeIfAbsent(entity, name ->
+                new NegativeLookupCache(name, notFoundTtl, failureTtl, failureThreshold, maxEntries, meterRegistry));
+    }
+}
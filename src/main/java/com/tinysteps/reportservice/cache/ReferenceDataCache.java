@@ -0,0 +1,146 @@
+package com.tinysteps.reportservice.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * In-process cache for rarely changing reference data (doctors, users, session types and offerings).
+ * Entries expire after a per-entity TTL and the number of entries is bounded, with either LRU or
+ * W-TinyLFU eviction. Hits, misses, evictions and load latency are published as
+ * {@code report.cache.*} meters tagged with the cache name.
+ */
+@Slf4j
+public class ReferenceDataCache<V> {
+
+    private final String name;
+    private final CacheStore<V> store;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Timer loadTimer;
+
+    public ReferenceDataCache(String name, CacheEvictionPolicy policy, long maxEntries, Duration ttl,
+                              MeterRegistry meterRegistry) {
+        this.name = name;
+        this.hits = Counter.builder("report.cache.gets")
+                .tag("cache", name).tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("report.cache.gets")
+                .tag("cache", name).tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("report.cache.evictions")
+                .tag("cache", name)
+                .register(meterRegistry);
+        this.loadTimer = Timer.builder("report.cache.load")
+                .description("Time spent loading cache misses from the downstream service")
+                .tag("cache", name)
+                .register(meterRegistry);
+        this.store = policy == CacheEvictionPolicy.LRU
+                ? new LruCacheStore<>(maxEntries, ttl, evictions::increment)
+                : new CaffeineCacheStore<>(maxEntries, ttl, evictions::increment);
+        Gauge.builder("report.cache.size", this, ReferenceDataCache::size)
+                .tag("cache", name)
+                .register(meterRegistry);
+        log.info("Created {} reference data cache: policy={}, maxEntries={}, ttl={}", name, policy, maxEntries, ttl);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Optional<V> getIfPresent(String key) {
+        V value = store.get(key);
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return Optional.ofNullable(value);
+    }
+
+    /**
+     * Returns the cached values for the keys, loading all missing keys with one call to the loader.
+     * Keys the loader does not return are left out of the result and are not cached.
+     */
+    public Mono<Map<String, V>> getAll(Collection<String> keys,
+                                       Function<Collection<String>, Mono<Map<String, V>>> loader) {
+        return Mono.defer(() -> {
+            Map<String, V> result = new HashMap<>();
+            List<String> missing = new ArrayList<>();
+            for (String key : keys) {
+                V value = store.get(key);
+                if (value != null) {
+                    result.put(key, value);
+                } else {
+                    missing.add(key);
+                }
+            }
+            hits.increment(result.size());
+            misses.increment(missing.size());
+
+            if (missing.isEmpty()) {
+                return Mono.just(result);
+            }
+            Timer.Sample sample = Timer.start();
+            return loader.apply(missing)
+                    .doOnNext(loaded -> loaded.forEach((key, value) -> {
+                        if (value != null) {
+                            store.put(key, value);
+                            result.put(key, value);
+                        }
+                    }))
+                    .doFinally(signal -> sample.stop(loadTimer))
+                    .then(Mono.fromSupplier(() -> result));
+        });
+    }
+
+    /**
+     * Returns true when a live entry exists for the key, without counting a hit or miss
+     */
+    public boolean contains(String key) {
+        return store.get(key) != null;
+    }
+
+    /**
+     * Returns the live entry for the key, without counting a hit or miss
+     */
+    public Optional<V> peek(String key) {
+        return Optional.ofNullable(store.get(key));
+    }
+
+    public void put(String key, V value) {
+        store.put(key, value);
+    }
+
+    public void invalidate(String key) {
+        store.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        store.invalidateAll();
+    }
+
+    public long size() {
+        return store.size();
+    }
+
+    /**
+     * Returns up to {@code limit} of the most frequently or recently used entries, hottest first
+     */
+    public Map<String, V> hottest(int limit) {
+        return store.hottest(limit);
+    }
+}
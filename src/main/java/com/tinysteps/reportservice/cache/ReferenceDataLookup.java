@@ -0,0 +1,101 @@
+package com.tinysteps.reportservice.cache;
+
+import com.tinysteps.reportservice.client.DoctorServiceClient;
+import com.tinysteps.reportservice.client.SessionServiceClient;
+import com.tinysteps.reportservice.client.UserServiceClient;
+import com.tinysteps.reportservice.config.WebClientConfig;
+import com.tinysteps.reportservice.model.DoctorDto;
+import com.tinysteps.reportservice.model.SessionOfferingDto;
+import com.tinysteps.reportservice.model.SessionTypeDto;
+import com.tinysteps.reportservice.model.UserDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Cache layer in front of the doctor, user and session clients.
+ * Only IDs missing from the reference data caches are sent to the bulk lookup APIs.
+ * Entries are evicted on entity-change events via {@link #invalidate(String, String, boolean)}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataLookup {
+
+    private final DoctorServiceClient doctorServiceClient;
+    private final UserServiceClient userServiceClient;
+    private final SessionServiceClient sessionServiceClient;
+    private final ReferenceDataCache<DoctorDto> doctorCache;
+    private final ReferenceDataCache<UserDto> userCache;
+    private final ReferenceDataCache<SessionTypeDto> sessionTypeCache;
+    private final ReferenceDataCache<SessionOfferingDto> sessionOfferingCache;
+    private final NegativeLookupCaches negativeLookupCaches;
+
+    public Mono<Map<String, DoctorDto>> getDoctorsByIds(Collection<String> doctorIds) {
+        return doctorCache.getAll(doctorIds, doctorServiceClient::fetchDoctorsByIds);
+    }
+
+    public Mono<Map<String, UserDto>> getUsersByIds(Collection<String> userIds) {
+        return userCache.getAll(userIds, userServiceClient::fetchUsersByIds);
+    }
+
+    public Mono<Map<String, SessionTypeDto>> getSessionTypesByIds(Collection<String> sessionTypeIds) {
+        return sessionTypeCache.getAll(sessionTypeIds, sessionServiceClient::fetchSessionTypesByIds);
+    }
+
+    public Mono<Map<String, SessionOfferingDto>> getSessionOfferingsByIds(Collection<String> sessionOfferingIds) {
+        return sessionOfferingCache.getAll(sessionOfferingIds, sessionServiceClient::fetchSessionOfferingsByIds);
+    }
+
+    /**
+     * Returns the full name of a cached user, without loading it
+     */
+    public Optional<String> cachedUserName(String userId) {
+        return userCache.peek(userId).map(UserDto::getFullName);
+    }
+
+    /**
+     * Evicts one entity from the negative lookup cache and, for cached entity types, from the
+     * reference data cache. With refresh set, an entry that was cached is reloaded in the background.
+     *
+     * @param entity entity type as used by the negative lookup caches, e.g. "doctors" or "patients"
+     */
+    public void invalidate(String entity, String id, boolean refresh) {
+        negativeLookupCaches.forEntity(entity).invalidate(id);
+        ReferenceDataCache<?> cache = switch (entity) {
+            case "doctors" -> doctorCache;
+            case "users" -> userCache;
+            case "session-types" -> sessionTypeCache;
+            case "session-offerings" -> sessionOfferingCache;
+            default -> null;
+        };
+        if (cache == null) {
+            return;
+        }
+
+        boolean wasCached = cache.contains(id);
+        cache.invalidate(id);
+        if (refresh && wasCached) {
+            reload(entity, Set.of(id))
+                    .contextWrite(WebClientConfig.authenticationContext())
+                    .subscribe(
+                            loaded -> log.debug("Refreshed {} {} after change event", entity, id),
+                            e -> log.warn("Failed to refresh {} {} after change event: {}", entity, id, e.getMessage()));
+        }
+    }
+
+    private Mono<? extends Map<String, ?>> reload(String entity, Set<String> ids) {
+        return switch (entity) {
+            case "doctors" -> getDoctorsByIds(ids);
+            case "users" -> getUsersByIds(ids);
+            case "session-types" -> getSessionTypesByIds(ids);
+            default -> getSessionOfferingsByIds(ids);
+        };
+    }
+}
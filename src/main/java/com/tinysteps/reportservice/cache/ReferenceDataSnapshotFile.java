@@ -0,0 +1,120 @@
+package com.tinysteps.reportservice.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary file holding serialized reference data cache entries, grouped per cache.
+ * Layout: magic, version, creation time, then for each cache its name and entries
+ * as length-prefixed UTF-8 keys and JSON values. Files are read through a memory map.
+ * Where the file system supports POSIX permissions the file is only readable by its owner.
+ */
+final class ReferenceDataSnapshotFile {
+
+    private static final int MAGIC = 0x52445353; // "RDSS"
+    private static final int VERSION = 2; // 2: entries hold only the fields reports read
+    private static final Set<PosixFilePermission> OWNER_READ_WRITE = PosixFilePermissions.fromString("rw-------");
+
+    private ReferenceDataSnapshotFile() {
+    }
+
+    /**
+     * Serialized entries per cache name, hottest first, plus the time the snapshot was taken
+     */
+    record Contents(Instant createdAt, Map<String, Map<String, byte[]>> caches) {
+    }
+
+    /**
+     * Writes the snapshot to a temporary file first and moves it into place, so readers never see a partial file.
+     * The temporary file has a unique name, so instances sharing the snapshot directory do not clobber each other.
+     */
+    static void write(Path path, Contents contents) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = ownerOnly(parent)
+                ? Files.createTempFile(parent, path.getFileName().toString(), ".tmp",
+                        PosixFilePermissions.asFileAttribute(OWNER_READ_WRITE))
+                : Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(contents.createdAt().toEpochMilli());
+                out.writeInt(contents.caches().size());
+                for (Map.Entry<String, Map<String, byte[]>> cache : contents.caches().entrySet()) {
+                    writeString(out, cache.getKey());
+                    out.writeInt(cache.getValue().size());
+                    for (Map.Entry<String, byte[]> entry : cache.getValue().entrySet()) {
+                        writeString(out, entry.getKey());
+                        out.writeInt(entry.getValue().length);
+                        out.write(entry.getValue());
+                    }
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static boolean ownerOnly(Path directory) throws IOException {
+        return Files.getFileStore(directory).supportsFileAttributeView(PosixFileAttributeView.class);
+    }
+
+    static Contents read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a reference data snapshot: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported reference data snapshot version " + version + ": " + path);
+            }
+            Instant createdAt = Instant.ofEpochMilli(buffer.getLong());
+            int cacheCount = buffer.getInt();
+            Map<String, Map<String, byte[]>> caches = new LinkedHashMap<>();
+            for (int c = 0; c < cacheCount; c++) {
+                String name = readString(buffer);
+                int entryCount = buffer.getInt();
+                Map<String, byte[]> entries = new LinkedHashMap<>();
+                for (int e = 0; e < entryCount; e++) {
+                    String key = readString(buffer);
+                    byte[] value = new byte[buffer.getInt()];
+                    buffer.get(value);
+                    entries.put(key, value);
+                }
+                caches.put(name, entries);
+            }
+            return new Contents(createdAt, caches);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
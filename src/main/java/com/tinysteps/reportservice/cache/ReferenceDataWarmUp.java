@@ -0,0 +1,306 @@
+package com.tinysteps.reportservice.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinysteps.reportservice.client.ScheduleServiceClient;
+import com.tinysteps.reportservice.model.AppointmentDto;
+import com.tinysteps.reportservice.model.DoctorDto;
+import com.tinysteps.reportservice.model.SessionOfferingDto;
+import com.tinysteps.reportservice.model.SessionTypeDto;
+import com.tinysteps.reportservice.model.UserDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Gets the reference data caches warm before the instance reports ready.
+ * On startup the last snapshot file is memory-mapped and, if younger than {@code max-age}, loaded
+ * straight into the caches. When warm-up is enabled, the hottest doctor and session type IDs of the
+ * snapshot that are still missing are then bulk-loaded from the downstream services. Without a
+ * snapshot, as on the very first start, the IDs are taken from the appointments of the last
+ * {@code warm-up.recent-days} days instead. Runs as an {@link ApplicationRunner}, so readiness only
+ * turns green afterwards.
+ * While running, the hottest entries of every cache are snapshotted periodically and on shutdown.
+ * Snapshots only keep the fields reports read (IDs, display names, prices), never contact details,
+ * and the file is readable by its owner only.
+ */
+@Slf4j
+@Component
+public class ReferenceDataWarmUp implements ApplicationRunner {
+
+    private final ObjectMapper objectMapper;
+    private final ScheduleServiceClient scheduleServiceClient;
+    private final Map<String, CacheRegistration<?>> registrations = new LinkedHashMap<>();
+    private final AtomicLong lastSnapshotAtMillis = new AtomicLong(-1);
+    private final Timer snapshotLoadTimer;
+    private final Timer warmUpTimer;
+
+    @Value("${integration.cache.snapshot.enabled:false}")
+    private boolean snapshotEnabled;
+
+    @Value("${integration.cache.snapshot.path:./cache-snapshot/reference-data.bin}")
+    private String snapshotPath;
+
+    @Value("${integration.cache.snapshot.max-age:1h}")
+    private Duration snapshotMaxAge;
+
+    @Value("${integration.cache.snapshot.entries-per-cache:2000}")
+    private int entriesPerCache;
+
+    @Value("${integration.cache.warm-up.enabled:false}")
+    private boolean warmUpEnabled;
+
+    @Value("${integration.cache.warm-up.caches:doctors,session-types}")
+    private List<String> warmUpCaches;
+
+    @Value("${integration.cache.warm-up.limit:500}")
+    private int warmUpLimit;
+
+    @Value("${integration.cache.warm-up.timeout:30s}")
+    private Duration warmUpTimeout;
+
+    @Value("${integration.cache.warm-up.recent-days:7}")
+    private int warmUpRecentDays;
+
+    @Value("${integration.cache.warm-up.recent-rows:2000}")
+    private int warmUpRecentRows;
+
+    public ReferenceDataWarmUp(ObjectMapper objectMapper,
+                               ScheduleServiceClient scheduleServiceClient,
+                               ReferenceDataLookup referenceDataLookup,
+                               ReferenceDataCache<DoctorDto> doctorCache,
+                               ReferenceDataCache<UserDto> userCache,
+                               ReferenceDataCache<SessionTypeDto> sessionTypeCache,
+                               ReferenceDataCache<SessionOfferingDto> sessionOfferingCache,
+                               MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.scheduleServiceClient = scheduleServiceClient;
+        register(doctorCache, DoctorDto.class, referenceDataLookup::getDoctorsByIds,
+                doctor -> DoctorDto.builder().id(doctor.getId()).name(doctor.getFullName()).build());
+        register(userCache, UserDto.class, referenceDataLookup::getUsersByIds,
+                user -> UserDto.builder().id(user.getId()).name(user.getFullName()).build());
+        register(sessionTypeCache, SessionTypeDto.class, referenceDataLookup::getSessionTypesByIds,
+                sessionType -> SessionTypeDto.builder().id(sessionType.getId()).name(sessionType.getName()).build());
+        register(sessionOfferingCache, SessionOfferingDto.class, referenceDataLookup::getSessionOfferingsByIds,
+                offering -> SessionOfferingDto.builder().id(offering.getId()).price(offering.getPrice()).build());
+
+        this.snapshotLoadTimer = Timer.builder("report.cache.snapshot.load")
+                .description("Time taken to load the reference data snapshot into the caches")
+                .register(meterRegistry);
+        this.warmUpTimer = Timer.builder("report.cache.warmup")
+                .description("Time taken to bulk-load hot reference data on startup")
+                .register(meterRegistry);
+        Gauge.builder("report.cache.snapshot.age", lastSnapshotAtMillis,
+                        at -> at.get() < 0 ? Double.NaN : (System.currentTimeMillis() - at.get()) / 1000.0)
+                .description("Seconds since the reference data snapshot in use was taken")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    private <V> void register(ReferenceDataCache<V> cache, Class<V> type,
+                              Function<Collection<String>, Mono<Map<String, V>>> loader,
+                              UnaryOperator<V> snapshotFields) {
+        registrations.put(cache.getName(), new CacheRegistration<>(cache, type, loader, snapshotFields));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ReferenceDataSnapshotFile.Contents snapshot = snapshotEnabled ? readSnapshot() : null;
+        if (warmUpEnabled) {
+            warmUp(snapshot != null ? hotIds(snapshot) : recentIds());
+        }
+    }
+
+    private ReferenceDataSnapshotFile.Contents readSnapshot() {
+        Path path = Paths.get(snapshotPath);
+        if (!Files.exists(path)) {
+            log.info("No reference data snapshot at {}", path.toAbsolutePath());
+            return null;
+        }
+        long startNanos = System.nanoTime();
+        try {
+            ReferenceDataSnapshotFile.Contents snapshot = ReferenceDataSnapshotFile.read(path);
+            Duration age = Duration.between(snapshot.createdAt(), Instant.now());
+            if (age.compareTo(snapshotMaxAge) > 0) {
+                // Too old to serve from, but the IDs still tell warm-up what is hot
+                log.info("Reference data snapshot is {} old, only using it to pick warm-up IDs", age);
+                return snapshot;
+            }
+            int loaded = 0;
+            for (Map.Entry<String, Map<String, byte[]>> cache : snapshot.caches().entrySet()) {
+                CacheRegistration<?> registration = registrations.get(cache.getKey());
+                if (registration != null) {
+                    loaded += registration.seed(cache.getValue(), objectMapper);
+                }
+            }
+            lastSnapshotAtMillis.set(snapshot.createdAt().toEpochMilli());
+            long elapsedNanos = System.nanoTime() - startNanos;
+            snapshotLoadTimer.record(Duration.ofNanos(elapsedNanos));
+            log.info("Loaded {} reference data entries from snapshot taken {} ago in {} ms",
+                    loaded, age, elapsedNanos / 1_000_000);
+            return snapshot;
+        } catch (Exception e) {
+            log.warn("Failed to load reference data snapshot from {}: {}", path.toAbsolutePath(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The snapshot's IDs per cache, hottest first
+     */
+    private Map<String, Collection<String>> hotIds(ReferenceDataSnapshotFile.Contents snapshot) {
+        Map<String, Collection<String>> ids = new LinkedHashMap<>();
+        snapshot.caches().forEach((name, entries) -> ids.put(name, entries.keySet()));
+        return ids;
+    }
+
+    /**
+     * Doctor, session type and session offering IDs of recent appointments, for a cold start without a snapshot
+     */
+    private Map<String, Collection<String>> recentIds() {
+        Map<String, Collection<String>> ids = new LinkedHashMap<>();
+        LocalDate today = LocalDate.now();
+        try {
+            List<AppointmentDto> recent = scheduleServiceClient
+                    .fetchAppointments(null, null, null, today.minusDays(warmUpRecentDays), today)
+                    .take(warmUpRecentRows)
+                    .collectList()
+                    .block(warmUpTimeout);
+            if (recent != null) {
+                ids.put("doctors", distinct(recent, AppointmentDto::getDoctorId));
+                ids.put("session-types", distinct(recent, AppointmentDto::getSessionTypeId));
+                ids.put("session-offerings", distinct(recent, AppointmentDto::getSessionId));
+            }
+            log.info("No reference data snapshot, warming up from {} recent appointments",
+                    recent != null ? recent.size() : 0);
+        } catch (Exception e) {
+            log.warn("No reference data snapshot and recent appointments could not be read, starting cold: {}",
+                    e.getMessage());
+        }
+        return ids;
+    }
+
+    private static Collection<String> distinct(List<AppointmentDto> appointments, Function<AppointmentDto, String> id) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (AppointmentDto appointment : appointments) {
+            String value = id.apply(appointment);
+            if (value != null) {
+                ids.add(value);
+            }
+        }
+        return ids;
+    }
+
+    private void warmUp(Map<String, Collection<String>> hotIds) {
+        long startNanos = System.nanoTime();
+        List<Mono<Integer>> loads = new ArrayList<>();
+        for (String name : warmUpCaches) {
+            CacheRegistration<?> registration = registrations.get(name.trim());
+            Collection<String> ids = hotIds.get(name.trim());
+            if (registration == null || ids == null) {
+                continue;
+            }
+            List<String> missing = ids.stream()
+                    .limit(warmUpLimit)
+                    .filter(id -> !registration.cache().contains(id))
+                    .toList();
+            if (!missing.isEmpty()) {
+                loads.add(registration.loader().apply(missing).map(Map::size));
+            }
+        }
+        if (loads.isEmpty()) {
+            return;
+        }
+        try {
+            Integer loaded = Mono.zip(loads, counts -> {
+                        int total = 0;
+                        for (Object count : counts) {
+                            total += (Integer) count;
+                        }
+                        return total;
+                    })
+                    .block(warmUpTimeout);
+            log.info("Warmed up {} reference data entries in {} ms", loaded,
+                    (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (Exception e) {
+            // Warm-up is best effort; reports still work against a cold cache
+            log.warn("Reference data warm-up did not complete: {}", e.getMessage());
+        } finally {
+            warmUpTimer.record(Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${integration.cache.snapshot.interval:PT5M}",
+            initialDelayString = "${integration.cache.snapshot.interval:PT5M}")
+    public void writeSnapshot() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        Path path = Paths.get(snapshotPath);
+        try {
+            Instant createdAt = Instant.now();
+            Map<String, Map<String, byte[]>> caches = new LinkedHashMap<>();
+            int written = 0;
+            for (CacheRegistration<?> registration : registrations.values()) {
+                Map<String, byte[]> entries = registration.serialize(entriesPerCache, objectMapper);
+                caches.put(registration.cache().getName(), entries);
+                written += entries.size();
+            }
+            ReferenceDataSnapshotFile.write(path, new ReferenceDataSnapshotFile.Contents(createdAt, caches));
+            lastSnapshotAtMillis.set(createdAt.toEpochMilli());
+            log.debug("Wrote {} reference data entries to snapshot {}", written, path.toAbsolutePath());
+        } catch (Exception e) {
+            log.warn("Failed to write reference data snapshot to {}: {}", path.toAbsolutePath(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void writeSnapshotOnShutdown() {
+        writeSnapshot();
+    }
+
+    private record CacheRegistration<V>(ReferenceDataCache<V> cache, Class<V> type,
+                                        Function<Collection<String>, Mono<Map<String, V>>> loader,
+                                        UnaryOperator<V> snapshotFields) {
+
+        int seed(Map<String, byte[]> entries, ObjectMapper objectMapper) throws IOException {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                cache.put(entry.getKey(), objectMapper.readValue(entry.getValue(), type));
+            }
+            return entries.size();
+        }
+
+        Map<String, byte[]> serialize(int limit, ObjectMapper objectMapper) throws IOException {
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+            for (Map.Entry<String, V> entry : cache.hottest(limit).entrySet()) {
+                entries.put(entry.getKey(), objectMapper.writeValueAsBytes(snapshotFields.apply(entry.getValue())));
+            }
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.tinysteps.reportservice.client;
+
+import com.tinysteps.reportservice.cache.NegativeLookupCache;
+import com.tinysteps.reportservice.cache.NegativeLookupCaches;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Shared batching logic behind the bulk lookup APIs of the downstream clients.
+ * IDs are sent in chunks of {@code batchSize} per request. When the downstream answers
+ * the batch endpoint with 404/405/501 it is marked as not supporting batches, and lookups
+ * fall back to parallel single-ID calls until the batch endpoint is probed again after
+ * {@code reprobeAfter}, so a deployment that adds it is picked up. At most {@code maxInFlight} requests
+ * of one lookup are outstanding against the service at any time.
+ * IDs that were recently not found or kept failing are skipped via the {@link NegativeLookupCache}.
+ * Lookups are single-flight per ID: when another report is already fetching an ID, the lookup
+ * waits for that outstanding call instead of issuing its own, counted as
+ * {@code report.lookup.coalesced}.
+ * Every ID left without a value because of a failure, whether it failed now, in the call another
+ * lookup joined, or recently enough to be skipped, marks the subscriber's {@link FetchCompleteness}
+ * degraded; only IDs the service reported missing count as not found.
+ */
+@Slf4j
+final class BatchLookupSupport<T> {
+
+    private final String serviceName;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final long reprobeAfterNanos;
+    private final NegativeLookupCache negativeCache;
+    // System.nanoTime() until which the batch endpoint is skipped; 0 while it is considered supported
+    private final AtomicLong batchUnsupportedUntil = new AtomicLong();
+    private final Map<String, Sinks.One<Outcome<T>>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    BatchLookupSupport(String serviceName, String entity, int batchSize, int maxInFlight, Duration reprobeAfter,
+                       NegativeLookupCaches negativeLookupCaches, MeterRegistry meterRegistry) {
+        this.serviceName = serviceName;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.reprobeAfterNanos = reprobeAfter.toNanos();
+        this.negativeCache = negativeLookupCaches.forEntity(entity);
+        this.coalesced = Counter.builder("report.lookup.coalesced")
+                .description("Lookups that joined an identical in-flight call instead of calling the service")
+                .tag("service", serviceName)
+                .tag("entity", entity)
+                .register(meterRegistry);
+    }
+
+    Mono<Map<String, T>> getByIds(Collection<String> ids,
+                                  Function<List<String>, Mono<List<T>>> batchCall,
+                                  Function<T, String> idOf,
+                                  Function<String, Mono<T>> singleCall) {
+        return streamByIds(ids, batchCall, idOf, singleCall)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    /**
+     * Emits each resolved ID with its value as soon as the chunk or single-ID call carrying it
+     * completes, so dependent lookups can start before the whole batch has been resolved
+     */
+    Flux<Map.Entry<String, T>> streamByIds(Collection<String> ids,
+                                           Function<List<String>, Mono<List<T>>> batchCall,
+                                           Function<T, String> idOf,
+                                           Function<String, Mono<T>> singleCall) {
+        return Flux.defer(() -> {
+            Set<String> distinctIds = new LinkedHashSet<>(ids);
+            distinctIds.remove(null);
+            boolean skippedFailing = false;
+            for (Iterator<String> it = distinctIds.iterator(); it.hasNext(); ) {
+                NegativeLookupCache.Block block = negativeCache.check(it.next());
+                if (block != NegativeLookupCache.Block.NONE) {
+                    it.remove();
+                    skippedFailing |= block == NegativeLookupCache.Block.FAILING;
+                }
+            }
+            // A skipped failing ID resolves to a placeholder just like one that failed now
+            Flux<Map.Entry<String, T>> skipped = skippedFailing
+                    ? FetchCompleteness.<Map.Entry<String, T>>degraded().flux() : Flux.empty();
+            if (distinctIds.isEmpty()) {
+                return skipped;
+            }
+
+            // Claim every ID nobody is fetching yet; join the outstanding call for the rest
+            Map<String, Sinks.One<Outcome<T>>> owned = new LinkedHashMap<>();
+            List<Mono<Map.Entry<String, T>>> joined = new ArrayList<>();
+            for (String id : distinctIds) {
+                Sinks.One<Outcome<T>> sink = Sinks.one();
+                Sinks.One<Outcome<T>> existing = inFlight.putIfAbsent(id, sink);
+                if (existing == null) {
+                    owned.put(id, sink);
+                } else {
+                    coalesced.increment();
+                    joined.add(existing.asMono().flatMap(outcome -> outcome.failed()
+                            ? FetchCompleteness.<Map.Entry<String, T>>degraded()
+                            : Mono.justOrEmpty(outcome.value()).map(value -> Map.entry(id, value))));
+                }
+            }
+
+            Set<String> notFound = ConcurrentHashMap.newKeySet();
+            Flux<Map.Entry<String, T>> fetched = owned.isEmpty() ? Flux.empty()
+                    : fetch(new ArrayList<>(owned.keySet()), notFound, batchCall, idOf, singleCall)
+                            .doOnNext(entry -> release(owned, entry.getKey(), Outcome.of(entry.getValue())))
+                            // Missing IDs release their waiters empty-handed; failed or cancelled ones as failed
+                            .doFinally(signal -> owned.keySet().forEach(id -> release(owned, id,
+                                    notFound.contains(id) ? Outcome.missing() : Outcome.failure())));
+            return Flux.merge(fetched, Flux.merge(joined), skipped);
+        });
+    }
+
+    private Flux<Map.Entry<String, T>> fetch(List<String> pending, Set<String> notFound,
+                                             Function<List<String>, Mono<List<T>>> batchCall,
+                                             Function<T, String> idOf,
+                                             Function<String, Mono<T>> singleCall) {
+        Set<String> resolved = ConcurrentHashMap.newKeySet();
+        Flux<Map.Entry<String, T>> batches = Flux.empty();
+        if (batchSupported()) {
+            List<List<String>> chunks = new ArrayList<>();
+            for (int from = 0; from < pending.size(); from += batchSize) {
+                chunks.add(pending.subList(from, Math.min(from + batchSize, pending.size())));
+            }
+            batches = Flux.fromIterable(chunks)
+                    .flatMap(chunk -> fetchChunk(chunk, notFound, batchCall, idOf), maxInFlight)
+                    .doOnNext(entry -> resolved.add(entry.getKey()));
+        }
+
+        return batches.concatWith(Flux.defer(() -> {
+            if (batchSupported()) {
+                return Flux.empty();
+            }
+            return Flux.fromIterable(pending)
+                    .filter(id -> !resolved.contains(id))
+                    .flatMap(id -> fetchSingle(id, notFound, singleCall), maxInFlight);
+        }));
+    }
+
+    /**
+     * True unless the batch endpoint was found unsupported within the last {@code reprobeAfter}
+     */
+    private boolean batchSupported() {
+        long until = batchUnsupportedUntil.get();
+        if (until == 0) {
+            return true;
+        }
+        if (System.nanoTime() - until < 0) {
+            return false;
+        }
+        // Probe the batch endpoint again; a further 404/405/501 starts a new interval
+        if (batchUnsupportedUntil.compareAndSet(until, 0)) {
+            log.info("Probing the batch endpoint of {} again", serviceName);
+        }
+        return true;
+    }
+
+    private void release(Map<String, Sinks.One<Outcome<T>>> owned, String id, Outcome<T> value) {
+        Sinks.One<Outcome<T>> sink = owned.get(id);
+        if (sink != null && inFlight.remove(id, sink)) {
+            sink.tryEmitValue(value);
+        }
+    }
+
+    private Flux<Map.Entry<String, T>> fetchChunk(List<String> chunk, Set<String> notFound,
+                                                  Function<List<String>, Mono<List<T>>> batchCall,
+                                                  Function<T, String> idOf) {
+        return batchCall.apply(chunk)
+                .flatMapIterable(values -> {
+                    Map<String, T> found = new LinkedHashMap<>();
+                    for (T value : values) {
+                        String id = value != null ? idOf.apply(value) : null;
+                        if (id != null) {
+                            found.put(id, value);
+                        }
+                    }
+                    for (String id : chunk) {
+                        if (!found.containsKey(id)) {
+                            negativeCache.recordNotFound(id);
+                            notFound.add(id);
+                        }
+                    }
+                    return found.entrySet();
+                })
+                .onErrorResume(e -> {
+                    if (e instanceof WebClientResponseException responseException && isBatchUnsupported(responseException)) {
+                        long until = System.nanoTime() + reprobeAfterNanos;
+                        if (batchUnsupportedUntil.getAndSet(until) == 0) {
+                            log.warn("{} does not support batch lookups (HTTP {}), falling back to single-ID calls",
+                                    serviceName, responseException.getStatusCode());
+                        }
+                    } else {
+                        log.warn("Batch lookup of {} IDs from {} failed: {}", chunk.size(), serviceName, e.getMessage());
+                        chunk.forEach(negativeCache::recordFailure);
+                        return FetchCompleteness.<Map.Entry<String, T>>degraded().flux();
+                    }
+                    return Flux.empty();
+                });
+    }
+
+    private Mono<Map.Entry<String, T>> fetchSingle(String id, Set<String> notFound, Function<String, Mono<T>> singleCall) {
+        return singleCall.apply(id)
+                .map(value -> Map.entry(id, value))
+                .switchIfEmpty(Mono.fromRunnable(() -> {
+                    negativeCache.recordNotFound(id);
+                    notFound.add(id);
+                }))
+                .onErrorResume(e -> {
+                    if (isNotFound(e)) {
+                        negativeCache.recordNotFound(id);
+                        notFound.add(id);
+                    } else {
+                        log.warn("Lookup of {} from {} failed: {}", id, serviceName, e.getMessage());
+                        negativeCache.recordFailure(id);
+                        return FetchCompleteness.degraded();
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * What coalesced waiters receive from the lookup they joined
+     */
+    private record Outcome<T>(T value, boolean failed) {
+
+        static <T> Outcome<T> of(T value) {
+            return new Outcome<>(value, false);
+        }
+
+        static <T> Outcome<T> missing() {
+            return new Outcome<>(null, false);
+        }
+
+        static <T> Outcome<T> failure() {
+            return new Outcome<>(null, true);
+        }
+    }
+
+    private static boolean isBatchUnsupported(WebClientResponseException e) {
+        return e.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND)
+                || e.getStatusCode().isSameCodeAs(HttpStatus.METHOD_NOT_ALLOWED)
+                || e.getStatusCode().isSameCodeAs(HttpStatus.NOT_IMPLEMENTED);
+    }
+
+    private static boolean isNotFound(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WebClientResponseException.NotFound) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,20 +1,33 @@
 package com.tinysteps.reportservice.client;
 
+import com.tinysteps.reportservice.cache.NegativeLookupCaches;
+import com.tinysteps.reportservice.config.WebClientConfig;
+import com.tinysteps.reportservice.model.BatchServiceResponse;
 import com.tinysteps.reportservice.model.DoctorDto;
 import com.tinysteps.reportservice.model.DoctorServiceResponse;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
 import io.github.resilience4j.retry.Retry;
 import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -24,19 +37,28 @@ import java.util.Optional;
 @Component
 public class DoctorServiceClient {
 
+    private static final ParameterizedTypeReference<BatchServiceResponse<DoctorDto>> BATCH_RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
     private final WebClient webClient;
     private final CircuitBreaker circuitBreaker;
     private final Retry retry;
     private final TimeLimiter timeLimiter;
+    private final NegativeLookupCaches negativeLookupCaches;
+    private final MeterRegistry meterRegistry;
 
     public DoctorServiceClient(@Qualifier("secureWebClient") WebClient webClient,
                               CircuitBreaker doctorServiceCircuitBreaker,
                               Retry doctorServiceRetry,
-                              TimeLimiter doctorServiceTimeLimiter) {
+                              TimeLimiter doctorServiceTimeLimiter,
+                              NegativeLookupCaches negativeLookupCaches,
+                              MeterRegistry meterRegistry) {
         this.webClient = webClient;
         this.circuitBreaker = doctorServiceCircuitBreaker;
         this.retry = doctorServiceRetry;
         this.timeLimiter = doctorServiceTimeLimiter;
+        this.negativeLookupCaches = negativeLookupCaches;
+        this.meterRegistry = meterRegistry;
     }
 
     @Value("${integration.doctor-service.base-url:http://ts-doctor-service/api/v1/doctors}")
@@ -45,57 +67,102 @@ public class DoctorServiceClient {
     @Value("${integration.doctor-service.timeout-seconds:10}")
     private int timeoutSeconds;
 
+    @Value("${integration.doctor-service.batch-url:http://ts-doctor-service/api/v1/doctors/batch}")
+    private String doctorBatchUrl;
+
+    @Value("${integration.doctor-service.batch-size:100}")
+    private int batchSize;
+
+    @Value("${integration.doctor-service.max-in-flight:16}")
+    private int maxInFlight;
+
+    @Value("${integration.doctor-service.batch-reprobe-after:PT10M}")
+    private Duration batchReprobeAfter;
+
+    private BatchLookupSupport<DoctorDto> batchLookup;
+
+    @PostConstruct
+    void initBatchLookup() {
+        this.batchLookup = new BatchLookupSupport<>("doctor-service", "doctors", batchSize, maxInFlight,
+                batchReprobeAfter, negativeLookupCaches, meterRegistry);
+    }
+
     public Optional<DoctorDto> getDoctorById(String doctorId) {
-        return circuitBreaker.executeSupplier(() -> 
-            retry.executeSupplier(() -> {
-                try {
-                    String uri = doctorServiceUrl + "/" + doctorId;
-                    log.info("Calling doctor service: {}", uri);
-                    
-                    DoctorServiceResponse response = webClient.get()
-                            .uri(uri)
-                            .accept(MediaType.APPLICATION_JSON)
-                            .header("X-Internal-Secret", "internal-secret-key-2024")
-                            .retrieve()
-                            .onStatus(status -> status.equals(HttpStatus.NOT_FOUND), clientResponse -> {
-                                log.warn("Doctor not found with id: {}", doctorId);
-                                return clientResponse.createException().map(ex ->
-                                    new RuntimeException("Doctor not found", ex));
-                            })
-                            .onStatus(status -> status.is4xxClientError(), clientResponse -> {
-                                log.error("Client error calling doctor service: {}", clientResponse.statusCode());
-                                return clientResponse.createException().map(ex ->
-                                    new RuntimeException("Client error: " + clientResponse.statusCode(), ex));
-                            })
-                            .onStatus(status -> status.is5xxServerError(), clientResponse -> {
-                                log.error("Server error from doctor service: {}", clientResponse.statusCode());
-                                return clientResponse.createException().map(ex ->
-                                    new RuntimeException("Doctor service unavailable: " + clientResponse.statusCode(), ex));
-                            })
-                            .bodyToMono(DoctorServiceResponse.class)
-                            .timeout(Duration.ofSeconds(timeoutSeconds))
-                            .block();
-
-                    if (response != null && response.getData() != null) {
-                        log.info("Successfully retrieved doctor: {}", doctorId);
-                        return Optional.of(response.getData());
-                    } else {
-                        log.warn("Doctor response is null or has no data for ID: {}", doctorId);
-                        return Optional.empty();
+        return fetchDoctorById(doctorId)
+                .contextWrite(WebClientConfig.authenticationContext())
+                .blockOptional();
+    }
+
+    /**
+     * Reactive variant of {@link #getDoctorById(String)}; completes empty when the doctor does not exist
+     */
+    public Mono<DoctorDto> fetchDoctorById(String doctorId) {
+        String uri = doctorServiceUrl + "/" + doctorId;
+        return webClient.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-Internal-Secret", "internal-secret-key-2024")
+                .retrieve()
+                .bodyToMono(DoctorServiceResponse.class)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .doOnSubscribe(subscription -> log.info("Calling doctor service: {}", uri))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    log.warn("Doctor not found with id: {}", doctorId);
+                    return Mono.empty();
+                })
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry))
+                .doOnError(e -> log.error("Failed to retrieve doctor {} from doctor service: {}", doctorId, e.getMessage()))
+                .flatMap(response -> {
+                    if (response.getData() == null) {
+                        log.warn("Doctor response has no data for ID: {}", doctorId);
+                        return Mono.empty();
                     }
+                    log.info("Successfully retrieved doctor: {}", doctorId);
+                    return Mono.just(response.getData());
+                });
+    }
+
+    /**
+     * Get doctors by IDs, sending at most {@code batch-size} IDs per request.
+     * Falls back to parallel single-ID calls when the batch endpoint is not available.
+     */
+    public Map<String, DoctorDto> getDoctorsByIds(Collection<String> doctorIds) {
+        return fetchDoctorsByIds(doctorIds)
+                .contextWrite(WebClientConfig.authenticationContext())
+                .block();
+    }
+
+    /**
+     * Reactive variant of {@link #getDoctorsByIds(Collection)}
+     */
+    public Mono<Map<String, DoctorDto>> fetchDoctorsByIds(Collection<String> doctorIds) {
+        return batchLookup.getByIds(doctorIds, this::fetchDoctorBatch, DoctorDto::getId, this::fetchDoctorById);
+    }
 
-                } catch (WebClientResponseException e) {
-                    if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
-                        log.warn("Doctor not found with id: {}", doctorId);
-                        return Optional.empty();
+    private Mono<List<DoctorDto>> fetchDoctorBatch(List<String> doctorIds) {
+        return webClient.post()
+                .uri(doctorBatchUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-Internal-Secret", "internal-secret-key-2024")
+                .bodyValue(doctorIds)
+                .retrieve()
+                .bodyToMono(BATCH_RESPONSE_TYPE)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .doOnSubscribe(subscription ->
+                        log.info("Calling doctor service batch lookup for {} doctors: {}", doctorIds.size(), doctorBatchUrl))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry))
+                .map(response -> {
+                    if (response.getData() == null) {
+                        log.warn("Doctor batch response has no data for {} IDs", doctorIds.size());
+                        return Collections.<DoctorDto>emptyList();
                     }
-                    log.error("HTTP error calling doctor service: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
-                    throw new RuntimeException("Failed to retrieve doctor: HTTP " + e.getStatusCode(), e);
-                } catch (Exception e) {
-                    log.error("Unexpected error calling doctor service: {}", e.getMessage(), e);
-                    throw new RuntimeException("Failed to retrieve doctor from doctor service", e);
-                }
-            })
-        );
+                    return response.getData();
+                })
+                .defaultIfEmpty(Collections.emptyList());
     }
-}
\ No newline at end of file
+}
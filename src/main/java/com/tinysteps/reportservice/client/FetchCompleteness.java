@@ -0,0 +1,75 @@
+package com.tinysteps.reportservice.client;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.function.Function;
+
+/**
+ * Records whether a fetch quietly degraded along the way: a schedule page skipped after a timeout or an
+ * unreadable response, or a reference data lookup that fell back to placeholder values.
+ * Losing schedule pages also marks the fetch truncated, as rows are missing rather than only names.
+ * It travels in the Reactor context of the subscribing pipeline. Callers that must only keep complete
+ * results add one with {@link #track(FetchCompleteness)} and check it once the pipeline completes;
+ * everyone else is unaffected. An inner pipeline that needs its own verdict uses {@link #trackNested},
+ * so the outer tracker still sees what happened.
+ */
+public final class FetchCompleteness {
+
+    private volatile boolean degraded;
+    private volatile boolean truncated;
+    private volatile FetchCompleteness parent;
+
+    public static Context track(FetchCompleteness completeness) {
+        return Context.of(FetchCompleteness.class, completeness);
+    }
+
+    /**
+     * Tracks with {@code completeness} while also reporting to the tracker already in the context, if any
+     */
+    public static Function<Context, Context> trackNested(FetchCompleteness completeness) {
+        return context -> {
+            completeness.parent = context.getOrDefault(FetchCompleteness.class, null);
+            return context.put(FetchCompleteness.class, completeness);
+        };
+    }
+
+    /**
+     * Marks the tracker of the current subscription, if there is one, and completes empty
+     */
+    public static <T> Mono<T> degraded() {
+        return mark(false);
+    }
+
+    /**
+     * Like {@link #degraded()}, for appointments that were dropped
+     */
+    public static <T> Mono<T> truncated() {
+        return mark(true);
+    }
+
+    private static <T> Mono<T> mark(boolean truncated) {
+        return Mono.deferContextual(context -> {
+            context.<FetchCompleteness>getOrEmpty(FetchCompleteness.class)
+                    .ifPresent(completeness -> completeness.markDegraded(truncated));
+            return Mono.empty();
+        });
+    }
+
+    private void markDegraded(boolean rowsLost) {
+        for (FetchCompleteness completeness = this; completeness != null; completeness = completeness.parent) {
+            completeness.degraded = true;
+            if (rowsLost) {
+                completeness.truncated = true;
+            }
+        }
+    }
+
+    public boolean isComplete() {
+        return !degraded;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+}
@@ -1,20 +1,34 @@
 package com.tinysteps.reportservice.client;
 
+import com.tinysteps.reportservice.cache.NegativeLookupCaches;
+import com.tinysteps.reportservice.config.WebClientConfig;
+import com.tinysteps.reportservice.model.BatchServiceResponse;
 import com.tinysteps.reportservice.model.PatientDto;
 import com.tinysteps.reportservice.model.PatientServiceResponse;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
 import io.github.resilience4j.retry.Retry;
 import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -24,19 +38,28 @@ import java.util.Optional;
 @Component
 public class PatientServiceClient {
 
+    private static final ParameterizedTypeReference<BatchServiceResponse<PatientDto>> BATCH_RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
     private final WebClient webClient;
     private final CircuitBreaker circuitBreaker;
     private final Retry retry;
     private final TimeLimiter timeLimiter;
+    private final NegativeLookupCaches negativeLookupCaches;
+    private final MeterRegistry meterRegistry;
 
     public PatientServiceClient(@Qualifier("secureWebClient") WebClient webClient,
                                CircuitBreaker patientServiceCircuitBreaker,
                                Retry patientServiceRetry,
-                               TimeLimiter patientServiceTimeLimiter) {
+                               TimeLimiter patientServiceTimeLimiter,
+                               NegativeLookupCaches negativeLookupCaches,
+                               MeterRegistry meterRegistry) {
         this.webClient = webClient;
         this.circuitBreaker = patientServiceCircuitBreaker;
         this.retry = patientServiceRetry;
         this.timeLimiter = patientServiceTimeLimiter;
+        this.negativeLookupCaches = negativeLookupCaches;
+        this.meterRegistry = meterRegistry;
     }
 
     @Value("${integration.patient-service.base-url:http://ts-patient-service/api/v1/patients}")
@@ -45,56 +68,108 @@ public class PatientServiceClient {
     @Value("${integration.patient-service.timeout-seconds:10}")
     private int timeoutSeconds;
 
+    @Value("${integration.patient-service.batch-url:http://ts-patient-service/api/v1/patients/batch}")
+    private String patientBatchUrl;
+
+    @Value("${integration.patient-service.batch-size:100}")
+    private int batchSize;
+
+    @Value("${integration.patient-service.max-in-flight:32}")
+    private int maxInFlight;
+
+    @Value("${integration.patient-service.batch-reprobe-after:PT10M}")
+    private Duration batchReprobeAfter;
+
+    private BatchLookupSupport<PatientDto> batchLookup;
+
+    @PostConstruct
+    void initBatchLookup() {
+        this.batchLookup = new BatchLookupSupport<>("patient-service", "patients", batchSize, maxInFlight,
+                batchReprobeAfter, negativeLookupCaches, meterRegistry);
+    }
+
     public Optional<PatientDto> getPatientById(String patientId) {
-        return circuitBreaker.executeSupplier(() -> 
-            retry.executeSupplier(() -> {
-                try {
-                    String uri = patientServiceUrl + "/" + patientId;
-                    log.info("Calling patient service: {}", uri);
-                    
-                    PatientServiceResponse response = webClient.get()
-                            .uri(uri)
-                            .accept(MediaType.APPLICATION_JSON)
-                            .retrieve()
-                            .onStatus(status -> status.equals(HttpStatus.NOT_FOUND), clientResponse -> {
-                                log.warn("Patient not found with id: {}", patientId);
-                                return clientResponse.createException().map(ex ->
-                                    new RuntimeException("Patient not found", ex));
-                            })
-                            .onStatus(status -> status.is4xxClientError(), clientResponse -> {
-                                log.error("Client error calling patient service: {}", clientResponse.statusCode());
-                                return clientResponse.createException().map(ex ->
-                                    new RuntimeException("Client error: " + clientResponse.statusCode(), ex));
-                            })
-                            .onStatus(status -> status.is5xxServerError(), clientResponse -> {
-                                log.error("Server error from patient service: {}", clientResponse.statusCode());
-                                return clientResponse.createException().map(ex ->
-                                    new RuntimeException("Patient service unavailable: " + clientResponse.statusCode(), ex));
-                            })
-                            .bodyToMono(PatientServiceResponse.class)
-                            .timeout(Duration.ofSeconds(timeoutSeconds))
-                            .block();
-
-                    if (response != null && response.getData() != null) {
-                        log.info("Successfully retrieved patient: {}", patientId);
-                        return Optional.of(response.getData());
-                    } else {
-                        log.warn("Patient response is null or has no data for ID: {}", patientId);
-                        return Optional.empty();
+        return fetchPatientById(patientId)
+                .contextWrite(WebClientConfig.authenticationContext())
+                .blockOptional();
+    }
+
+    /**
+     * Reactive variant of {@link #getPatientById(String)}; completes empty when the patient does not exist
+     */
+    public Mono<PatientDto> fetchPatientById(String patientId) {
+        String uri = patientServiceUrl + "/" + patientId;
+        return webClient.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToMono(PatientServiceResponse.class)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .doOnSubscribe(subscription -> log.info("Calling patient service: {}", uri))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    log.warn("Patient not found with id: {}", patientId);
+                    return Mono.empty();
+                })
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry))
+                .doOnError(e -> log.error("Failed to retrieve patient {} from patient service: {}", patientId, e.getMessage()))
+                .flatMap(response -> {
+                    if (response.getData() == null) {
+                        log.warn("Patient response has no data for ID: {}", patientId);
+                        return Mono.empty();
                     }
+                    log.info("Successfully retrieved patient: {}", patientId);
+                    return Mono.just(response.getData());
+                });
+    }
+
+    /**
+     * Get patients by IDs, sending at most {@code batch-size} IDs per request.
+     * Falls back to parallel single-ID calls when the batch endpoint is not available.
+     */
+    public Map<String, PatientDto> getPatientsByIds(Collection<String> patientIds) {
+        return fetchPatientsByIds(patientIds)
+                .contextWrite(WebClientConfig.authenticationContext())
+                .block();
+    }
+
+    /**
+     * Reactive variant of {@link #getPatientsByIds(Collection)}
+     */
+    public Mono<Map<String, PatientDto>> fetchPatientsByIds(Collection<String> patientIds) {
+        return batchLookup.getByIds(patientIds, this::fetchPatientBatch, PatientDto::getId, this::fetchPatientById);
+    }
+
+    /**
+     * Streaming variant of {@link #fetchPatientsByIds(Collection)} that emits patients as each batch
+     * or single-ID response arrives, keyed by the requested patient ID
+     */
+    public Flux<Map.Entry<String, PatientDto>> streamPatientsByIds(Collection<String> patientIds) {
+        return batchLookup.streamByIds(patientIds, this::fetchPatientBatch, PatientDto::getId, this::fetchPatientById);
+    }
 
-                } catch (WebClientResponseException e) {
-                    if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
-                        log.warn("Patient not found with id: {}", patientId);
-                        return Optional.empty();
+    private Mono<List<PatientDto>> fetchPatientBatch(List<String> patientIds) {
+        return webClient.post()
+                .uri(patientBatchUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(patientIds)
+                .retrieve()
+                .bodyToMono(BATCH_RESPONSE_TYPE)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .doOnSubscribe(subscription ->
+                        log.info("Calling patient service batch lookup for {} patients: {}", patientIds.size(), patientBatchUrl))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry))
+                .map(response -> {
+                    if (response.getData() == null) {
+                        log.warn("Patient batch response has no data for {} IDs", patientIds.size());
+                        return Collections.<PatientDto>emptyList();
                     }
-                    log.error("HTTP error calling patient service: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
-                    throw new RuntimeException("Failed to retrieve patient: HTTP " + e.getStatusCode(), e);
-                } catch (Exception e) {
-                    log.error("Unexpected error calling patient service: {}", e.getMessage(), e);
-                    throw new RuntimeException("Failed to retrieve patient from patient service", e);
-                }
-            })
-        );
+                    return response.getData();
+                })
+                .defaultIfEmpty(Collections.emptyList());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,244 @@
+package com.tinysteps.reportservice.client;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinysteps.reportservice.model.ScheduleServiceResponse.ScheduleAppointmentDto;
+import com.tinysteps.reportservice.model.ScheduleTemporals;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental decoder for one schedule-service page response, fed with the body's byte chunks
+ * as they arrive. Each element of {@code data.content} is filled field by field into a
+ * {@link ScheduleAppointmentDto} straight from the parser's tokens and handed out once its closing
+ * brace has been read; dates and times are parsed from the parser's character buffer into their
+ * {@link ScheduleTemporals} encodings without going through a String. The paging fields of
+ * {@code data} are picked up along the way, so the body is never buffered as a whole.
+ * Not thread-safe; create one decoder per response.
+ */
+final class SchedulePageDecoder {
+
+    // Open containers: 1 = root object, 2 = root.data, 3 = root.data.content
+    private static final int DATA_DEPTH = 2;
+    private static final int CONTENT_DEPTH = 3;
+
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    private final String[] containerFields = new String[CONTENT_DEPTH + 1];
+
+    private int depth;
+    private String currentField;
+    private ScheduleAppointmentDto row;
+    private String rowField;
+    private int rowNesting;
+    private boolean contentSeen;
+    private boolean last;
+    private int totalPages;
+    private long totalElements;
+
+    SchedulePageDecoder(ObjectMapper objectMapper) throws IOException {
+        this.parser = objectMapper.getFactory().createNonBlockingByteBufferParser();
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Consumes and releases the buffer, returning the appointments completed by it. The parser reads the
+     * buffer's memory in place; each readable region is drained before the next one is fed, and the
+     * buffer is only released once the parser has no use for it.
+     */
+    List<ScheduleAppointmentDto> feed(DataBuffer buffer) throws IOException {
+        List<ScheduleAppointmentDto> appointments = new ArrayList<>();
+        try (DataBuffer.ByteBufferIterator regions = buffer.readableByteBuffers()) {
+            while (regions.hasNext()) {
+                ByteBuffer region = regions.next();
+                feeder.feedInput(region);
+                drain(appointments);
+            }
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+        return appointments;
+    }
+
+    /**
+     * Signals the end of the body and returns any appointments completed by it
+     */
+    List<ScheduleAppointmentDto> endOfInput() throws IOException {
+        feeder.endOfInput();
+        List<ScheduleAppointmentDto> appointments = new ArrayList<>();
+        drain(appointments);
+        parser.close();
+        return appointments;
+    }
+
+    boolean isContentSeen() {
+        return contentSeen;
+    }
+
+    boolean isLast() {
+        return last;
+    }
+
+    int getTotalPages() {
+        return totalPages;
+    }
+
+    long getTotalElements() {
+        return totalElements;
+    }
+
+    private void drain(List<ScheduleAppointmentDto> appointments) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (row != null) {
+                readRowToken(token, appointments);
+                continue;
+            }
+
+            switch (token) {
+                case FIELD_NAME -> currentField = parser.currentName();
+                case START_OBJECT, START_ARRAY -> {
+                    if (token == JsonToken.START_OBJECT && inContent()) {
+                        // Start filling one appointment
+                        row = new ScheduleAppointmentDto();
+                        rowField = null;
+                        rowNesting = 0;
+                    } else if (depth < containerFields.length) {
+                        containerFields[depth] = currentField;
+                    }
+                    if (depth == DATA_DEPTH && "content".equals(currentField) && inData()) {
+                        contentSeen = true;
+                    }
+                    depth++;
+                }
+                case END_OBJECT, END_ARRAY -> depth--;
+                default -> {
+                    if (depth == DATA_DEPTH && inData() && currentField != null) {
+                        readPagingField(token);
+                    }
+                }
+            }
+        }
+    }
+
+    private void readRowToken(JsonToken token, List<ScheduleAppointmentDto> appointments) throws IOException {
+        switch (token) {
+            // Values nested inside an appointment are not part of it and are skipped
+            case START_OBJECT, START_ARRAY -> rowNesting++;
+            case END_OBJECT, END_ARRAY -> {
+                if (rowNesting > 0) {
+                    rowNesting--;
+                } else {
+                    appointments.add(row);
+                    row = null;
+                    depth--;
+                }
+            }
+            case FIELD_NAME -> {
+                if (rowNesting == 0) {
+                    rowField = parser.currentName();
+                }
+            }
+            default -> {
+                if (rowNesting == 0 && rowField != null) {
+                    try {
+                        readRowField(token);
+                    } catch (DateTimeException e) {
+                        // Reported like any other unreadable response
+                        throw new JsonParseException(parser, e.getMessage(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void readRowField(JsonToken token) throws IOException {
+        switch (rowField) {
+            case "id" -> row.setId(text(token));
+            case "appointmentNumber" -> row.setAppointmentNumber(text(token));
+            case "doctorId" -> row.setDoctorId(text(token));
+            case "patientId" -> row.setPatientId(text(token));
+            case "sessionTypeId" -> row.setSessionTypeId(text(token));
+            case "sessionOfferingId" -> row.setSessionOfferingId(text(token));
+            case "practiceId" -> row.setPracticeId(text(token));
+            case "status" -> row.setStatus(text(token));
+            case "consultationType" -> row.setConsultationType(text(token));
+            case "notes" -> row.setNotes(text(token));
+            case "cancellationReason" -> row.setCancellationReason(text(token));
+            case "sessionDurationMinutes" ->
+                    row.setSessionDurationMinutes(token == JsonToken.VALUE_NULL ? null : parser.getValueAsInt());
+            case "appointmentDate" -> {
+                if (isTemporal(token)) {
+                    row.setAppointmentEpochDay(ScheduleTemporals.parseEpochDay(
+                            parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()));
+                }
+            }
+            case "startTime" -> {
+                if (isTemporal(token)) {
+                    row.setStartMinute(ScheduleTemporals.parseMinuteOfDay(
+                            parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()));
+                }
+            }
+            case "endTime" -> {
+                if (isTemporal(token)) {
+                    row.setEndMinute(ScheduleTemporals.parseMinuteOfDay(
+                            parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()));
+                }
+            }
+            case "checkedInAt" -> {
+                if (isTemporal(token)) {
+                    row.setCheckedInAtMicros(ScheduleTemporals.parseMicros(
+                            parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()));
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private String text(JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    /**
+     * Whether the token holds a date or time to parse; null leaves the field unset
+     *
+     * @throws JsonParseException for any other kind of value
+     */
+    private boolean isTemporal(JsonToken token) throws JsonParseException {
+        if (token == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(parser, "Expected an ISO date or time for " + rowField + " but found " + token);
+        }
+        return true;
+    }
+
+    private boolean inData() {
+        return "data".equals(containerFields[1]);
+    }
+
+    private boolean inContent() {
+        return depth == CONTENT_DEPTH && inData() && "content".equals(containerFields[DATA_DEPTH]);
+    }
+
+    private void readPagingField(JsonToken token) throws IOException {
+        switch (currentField) {
+            case "last" -> last = token == JsonToken.VALUE_TRUE;
+            case "totalPages" -> totalPages = token.isNumeric() ? parser.getIntValue() : totalPages;
+            case "totalElements" -> totalElements = token.isNumeric() ? parser.getLongValue() : totalElements;
+            default -> {
+            }
+        }
+    }
+}
@@ -1,24 +1,34 @@
 package com.tinysteps.reportservice.client;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinysteps.reportservice.config.WebClientConfig;
 import com.tinysteps.reportservice.model.AppointmentDto;
-import com.tinysteps.reportservice.model.ScheduleServiceResponse;
+import com.tinysteps.reportservice.model.AppointmentPage;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
 import io.github.resilience4j.retry.Retry;
 import io.github.resilience4j.timelimiter.TimeLimiter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.time.LocalDate;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Client for communicating with schedule-service
@@ -31,15 +41,18 @@ public class ScheduleServiceClient {
     private final CircuitBreaker circuitBreaker;
     private final Retry retry;
     private final TimeLimiter timeLimiter;
+    private final ObjectMapper objectMapper;
 
     public ScheduleServiceClient(@Qualifier("secureWebClient") WebClient webClient,
                                 CircuitBreaker scheduleServiceCircuitBreaker,
                                 Retry scheduleServiceRetry,
-                                TimeLimiter scheduleServiceTimeLimiter) {
+                                TimeLimiter scheduleServiceTimeLimiter,
+                                ObjectMapper objectMapper) {
         this.webClient = webClient;
         this.circuitBreaker = scheduleServiceCircuitBreaker;
         this.retry = scheduleServiceRetry;
         this.timeLimiter = scheduleServiceTimeLimiter;
+        this.objectMapper = objectMapper;
     }
 
     @Value("${integration.schedule-service.base-url:http://ts-schedule-service/api/v1/appointments}")
@@ -48,87 +61,166 @@ public class ScheduleServiceClient {
     @Value("${integration.schedule-service.timeout-seconds:10}")
     private int timeoutSeconds;
 
+    @Value("${integration.schedule-service.page-size:200}")
+    private int pageSize;
+
+    @Value("${integration.schedule-service.prefetch-pages:4}")
+    private int prefetchPages;
+
     public List<AppointmentDto> getAppointments(String doctorId, String patientId, String branchId, LocalDate startDate, LocalDate endDate) {
-        return circuitBreaker.executeSupplier(() ->
-            retry.executeSupplier(() -> {
-                try {
-                    UriComponentsBuilder uriBuilder = UriComponentsBuilder
-                            .fromUriString(scheduleServiceUrl);
-
-                    if (doctorId != null) {
-                        uriBuilder.queryParam("doctorId", doctorId);
-                    }
-                    if (patientId != null) {
-                        uriBuilder.queryParam("patientId", patientId);
-                    }
-                    if (branchId != null) {
-                        uriBuilder.queryParam("branchId", branchId);
-                    }
-                    if (startDate != null) {
-                        uriBuilder.queryParam("startDate", startDate);
-                    }
-                    if (endDate != null) {
-                        uriBuilder.queryParam("endDate", endDate);
-                    }
+        return fetchAppointments(doctorId, patientId, branchId, startDate, endDate)
+                .collectList()
+                .contextWrite(WebClientConfig.authenticationContext())
+                .block();
+    }
 
-                    String uri = uriBuilder.toUriString();
-                    log.info("Calling schedule service: {}", uri);
-
-                    // Use reactive approach with proper timeout and fallback handling
-                    String rawResponse = webClient.get()
-                        .uri(uri)
-                        .accept(MediaType.APPLICATION_JSON)
-                        .retrieve()
-                        .bodyToMono(String.class)
-                        .timeout(Duration.ofSeconds(timeoutSeconds))
-                        .onErrorReturn(ex -> {
-                            if (ex instanceof java.util.concurrent.TimeoutException) {
-                                log.warn("Timeout occurred while calling schedule service: {}", uri);
-                                return true;
-                            }
-                            return false;
-                        }, "")
-                        .doOnError(ex -> log.error("Error calling schedule service: {}", ex.getMessage(), ex))
-                        .block();
-
-                    log.info("Raw schedule service response: {}", rawResponse);
-
-                    if (rawResponse == null || rawResponse.isEmpty()) {
-                        log.warn("Empty or null response from schedule service");
-                        return Collections.emptyList();
-                    }
+    /**
+     * Reactive variant of {@link #getAppointments}; walks every page of the result.
+     * Completes empty when nothing matches. A page that times out or cannot be parsed is left out and
+     * marks the subscriber's {@link FetchCompleteness} truncated.
+     */
+    public Flux<AppointmentDto> fetchAppointments(String doctorId, String patientId, String branchId,
+                                                  LocalDate startDate, LocalDate endDate) {
+        return fetchAppointmentPages(doctorId, patientId, branchId, startDate, endDate)
+                .concatMapIterable(AppointmentPage::getContent);
+    }
+
+    /**
+     * Streams the matching appointments page by page, {@code page-size} appointments per page.
+     * Once the first page reports the total page count, up to {@code prefetch-pages} of the following
+     * pages are fetched concurrently and emitted back in page order. Pages are only fetched ahead as
+     * far as that window, so a slow consumer holds back fetching and memory stays bounded by the
+     * page size rather than by the number of matching appointments.
+     */
+    public Flux<AppointmentPage> fetchAppointmentPages(String doctorId, String patientId, String branchId,
+                                                       LocalDate startDate, LocalDate endDate) {
+        UriComponentsBuilder uriBuilder = appointmentsUri(doctorId, patientId, branchId, startDate, endDate);
+        Mono<AppointmentPage> firstPage = fetchPage(uriBuilder, 0, pageSize);
+        if (prefetchPages <= 1) {
+            return firstPage
+                    .expand(page -> page.isLast() ? Mono.empty() : fetchPage(uriBuilder, page.getNumber() + 1, pageSize));
+        }
+        return firstPage.flatMapMany(first -> {
+            if (first.isLast()) {
+                return Flux.just(first);
+            }
+            log.debug("Prefetching {} remaining schedule pages, {} at a time", first.getTotalPages() - 1, prefetchPages);
+            return Flux.just(first).concatWith(Flux.range(1, first.getTotalPages() - 1)
+                    // Keeps the look-ahead window in flight and reorders completed pages into sequence
+                    .flatMapSequential(pageNumber -> fetchPage(uriBuilder, pageNumber, pageSize), prefetchPages, 1));
+        });
+    }
 
-                    ScheduleServiceResponse response = null;
+    /**
+     * Number of matching appointments, read from the totals of a one-appointment page.
+     * Completes empty when schedule-service reports no totals.
+     */
+    public Mono<Long> countAppointments(String doctorId, String patientId, String branchId,
+                                        LocalDate startDate, LocalDate endDate) {
+        return fetchPage(appointmentsUri(doctorId, patientId, branchId, startDate, endDate), 0, 1)
+                .filter(page -> page.getTotalPages() > 0 || page.getContent().isEmpty())
+                .map(AppointmentPage::getTotalElements);
+    }
+
+    private UriComponentsBuilder appointmentsUri(String doctorId, String patientId, String branchId,
+                                                 LocalDate startDate, LocalDate endDate) {
+        UriComponentsBuilder uriBuilder = UriComponentsBuilder
+                .fromUriString(scheduleServiceUrl);
+
+        if (doctorId != null) {
+            uriBuilder.queryParam("doctorId", doctorId);
+        }
+        if (patientId != null) {
+            uriBuilder.queryParam("patientId", patientId);
+        }
+        if (branchId != null) {
+            uriBuilder.queryParam("branchId", branchId);
+        }
+        if (startDate != null) {
+            uriBuilder.queryParam("startDate", startDate);
+        }
+        if (endDate != null) {
+            uriBuilder.queryParam("endDate", endDate);
+        }
+        return uriBuilder;
+    }
+
+    private Mono<AppointmentPage> fetchPage(UriComponentsBuilder uriBuilder, int pageNumber, int size) {
+        String uri = uriBuilder.cloneBuilder()
+                .queryParam("page", pageNumber)
+                .queryParam("size", size)
+                .toUriString();
+        return Mono.defer(() -> decodePage(uri, pageNumber))
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .doOnSubscribe(subscription -> log.info("Calling schedule service: {}", uri))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    log.warn("No appointments found for the given criteria");
+                    // Past the first page the rows the earlier pages promised have gone missing
+                    return pageNumber > 0 ? FetchCompleteness.truncated() : Mono.empty();
+                })
+                .onErrorResume(e -> Exceptions.unwrap(e) instanceof JsonProcessingException, e -> {
+                    log.error("Failed to parse schedule service response: {}", e.getMessage(), e);
+                    return FetchCompleteness.truncated();
+                })
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry))
+                .onErrorResume(TimeoutException.class, e -> {
+                    log.warn("Timeout occurred while calling schedule service: {}", uri);
+                    return FetchCompleteness.truncated();
+                })
+                .doOnError(e -> log.error("Error calling schedule service: {}", e.getMessage(), e))
+                .onErrorMap(e -> new RuntimeException("Failed to retrieve appointments from schedule service", e));
+    }
+
+    /**
+     * Decodes the page straight from the response byte stream; appointments are bound and converted
+     * chunk by chunk as the body arrives instead of after buffering it
+     */
+    private Mono<AppointmentPage> decodePage(String uri, int pageNumber) {
+        SchedulePageDecoder decoder;
+        try {
+            decoder = new SchedulePageDecoder(objectMapper);
+        } catch (IOException e) {
+            return Mono.error(e);
+        }
+        return webClient.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .concatMapIterable(buffer -> {
                     try {
-                        response = com.fasterxml.jackson.databind.json.JsonMapper.builder().build()
-                            .readValue(rawResponse, ScheduleServiceResponse.class);
-                    } catch (Exception e) {
-                        log.error("Failed to parse schedule service response: {}", e.getMessage(), e);
-                        return Collections.emptyList();
+                        return decoder.feed(buffer);
+                    } catch (IOException e) {
+                        throw Exceptions.propagate(e);
                     }
-
-                    if (response != null && response.getData() != null && response.getData().getContent() != null) {
-                        // Convert ScheduleAppointmentDto to AppointmentDto
-                        return response.getData().getContent().stream()
-                            .map(AppointmentDto::fromScheduleAppointment)
-                            .toList();
-                    } else {
-                        log.warn("No appointments found or response data is null");
-                        return Collections.emptyList();
+                })
+                .concatWith(Flux.defer(() -> {
+                    try {
+                        return Flux.fromIterable(decoder.endOfInput());
+                    } catch (IOException e) {
+                        return Flux.error(e);
                     }
-
-                } catch (WebClientResponseException e) {
-                    if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
-                        log.warn("No appointments found for the given criteria");
-                        return Collections.emptyList();
+                }))
+                // Convert ScheduleAppointmentDto to AppointmentDto
+                .map(AppointmentDto::fromScheduleAppointment)
+                .collectList()
+                .flatMap(content -> {
+                    if (!decoder.isContentSeen()) {
+                        log.warn("No appointments found or response data is null");
+                        // Past the first page this means rows the earlier pages promised are missing
+                        return pageNumber > 0 ? FetchCompleteness.truncated() : FetchCompleteness.degraded();
                     }
-                    log.error("HTTP error calling schedule service: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
-                    throw new RuntimeException("Failed to retrieve appointments: HTTP " + e.getStatusCode(), e);
-                } catch (Exception e) {
-                    log.error("Unexpected error calling schedule service: {}", e.getMessage(), e);
-                    throw new RuntimeException("Failed to retrieve appointments from schedule service", e);
-                }
-            })
-        );
+                    // An unpaged response, or one past the reported last page, ends the walk
+                    boolean last = decoder.isLast() || content.isEmpty() || pageNumber + 1 >= decoder.getTotalPages();
+                    return Mono.just(AppointmentPage.builder()
+                            .content(content)
+                            .number(pageNumber)
+                            .totalPages(decoder.getTotalPages())
+                            .totalElements(decoder.getTotalElements())
+                            .last(last)
+                            .build());
+                });
     }
 }
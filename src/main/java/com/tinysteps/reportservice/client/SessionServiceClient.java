@@ -1,22 +1,35 @@
 package com.tinysteps.reportservice.client;
 
+import com.tinysteps.reportservice.cache.NegativeLookupCaches;
+import com.tinysteps.reportservice.config.WebClientConfig;
 import com.tinysteps.reportservice.model.SessionOfferingDto;
-import com.tinysteps.reportservice.model.SessionServiceResponse;
 import com.tinysteps.reportservice.model.SessionTypeDto;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
 import io.github.resilience4j.retry.Retry;
 import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.codec.DecodingException;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Client for communicating with session-service
@@ -25,19 +38,30 @@ import java.util.Optional;
 @Component
 public class SessionServiceClient {
 
+    private static final ParameterizedTypeReference<List<SessionTypeDto>> SESSION_TYPE_LIST_TYPE =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<List<SessionOfferingDto>> SESSION_OFFERING_LIST_TYPE =
+            new ParameterizedTypeReference<>() {};
+
     private final WebClient webClient;
     private final CircuitBreaker circuitBreaker;
     private final Retry retry;
     private final TimeLimiter timeLimiter;
+    private final NegativeLookupCaches negativeLookupCaches;
+    private final MeterRegistry meterRegistry;
 
     public SessionServiceClient(@Qualifier("secureWebClient") WebClient webClient,
                                CircuitBreaker sessionServiceCircuitBreaker,
                                Retry sessionServiceRetry,
-                               TimeLimiter sessionServiceTimeLimiter) {
+                               TimeLimiter sessionServiceTimeLimiter,
+                               NegativeLookupCaches negativeLookupCaches,
+                               MeterRegistry meterRegistry) {
         this.webClient = webClient;
         this.circuitBreaker = sessionServiceCircuitBreaker;
         this.retry = sessionServiceRetry;
         this.timeLimiter = sessionServiceTimeLimiter;
+        this.negativeLookupCaches = negativeLookupCaches;
+        this.meterRegistry = meterRegistry;
     }
 
     @Value("${integration.session-service.session-types-url:http://ts-session-service/api/v1/session-types}")
@@ -52,137 +76,184 @@ public class SessionServiceClient {
     @Value("${service.internal-secret}")
     private String internalApiSecret;
 
+    @Value("${integration.session-service.session-types-batch-url:http://ts-session-service/api/v1/session-types/batch}")
+    private String sessionTypesBatchUrl;
+
+    @Value("${integration.session-service.session-offerings-batch-url:http://ts-session-service/api/v1/session-offerings/batch}")
+    private String sessionOfferingsBatchUrl;
+
+    @Value("${integration.session-service.batch-size:100}")
+    private int batchSize;
+
+    @Value("${integration.session-service.max-in-flight:16}")
+    private int maxInFlight;
+
+    @Value("${integration.session-service.batch-reprobe-after:PT10M}")
+    private Duration batchReprobeAfter;
+
+    private BatchLookupSupport<SessionTypeDto> sessionTypeBatchLookup;
+    private BatchLookupSupport<SessionOfferingDto> sessionOfferingBatchLookup;
+
+    @PostConstruct
+    void initBatchLookup() {
+        this.sessionTypeBatchLookup = new BatchLookupSupport<>("session-service", "session-types", batchSize, maxInFlight,
+                batchReprobeAfter, negativeLookupCaches, meterRegistry);
+        this.sessionOfferingBatchLookup = new BatchLookupSupport<>("session-service", "session-offerings", batchSize, maxInFlight,
+                batchReprobeAfter, negativeLookupCaches, meterRegistry);
+    }
+
     /**
      * Get session type by ID
      */
     public Optional<SessionTypeDto> getSessionTypeById(String sessionTypeId) {
-        return circuitBreaker.executeSupplier(() ->
-            retry.executeSupplier(() -> {
-                try {
-                    String uri = sessionTypesUrl + "/" + sessionTypeId;
-                    log.debug("Calling session service for session type: {}", uri);
-
-                    // Log raw response before deserialization with timeout handling
-                    String rawResponse = webClient.get()
-                        .uri(uri)
-                        .accept(MediaType.APPLICATION_JSON)
-                        .header("X-Internal-Secret", internalApiSecret)
-                        .retrieve()
-                        .bodyToMono(String.class)
-                        .timeout(Duration.ofSeconds(timeoutSeconds))
-                        .onErrorReturn(ex -> {
-                            if (ex instanceof java.util.concurrent.TimeoutException) {
-                                log.warn("Timeout occurred while calling session service for session type: {}", uri);
-                                return true;
-                            }
-                            return false;
-                        }, "")
-                        .doOnError(ex -> log.error("Error calling session service for session type: {}", ex.getMessage(), ex))
-                        .block();
-                    log.info("Raw session type response for ID {}: {}", sessionTypeId, rawResponse);
-
-                    if (rawResponse == null || rawResponse.isEmpty()) {
-                        log.warn("Empty or null response from session service for session type ID: {}", sessionTypeId);
-                        return Optional.empty();
-                    }
-
-                    // Deserialize directly into SessionTypeDto since the response is not wrapped
-                    SessionTypeDto sessionType = null;
-                    try {
-                        sessionType = com.fasterxml.jackson.databind.json.JsonMapper.builder().build()
-                            .readValue(rawResponse, SessionTypeDto.class);
-                    } catch (Exception e) {
-                        log.error("Failed to parse session type response: {}", e.getMessage(), e);
-                        return Optional.empty();
-                    }
-
-                    if (sessionType != null) {
-                        log.debug("Successfully retrieved session type: {}", sessionTypeId);
-                        return Optional.of(sessionType);
-                    } else {
-                        log.warn("Session type response is null for ID: {}", sessionTypeId);
-                        return Optional.empty();
-                    }
+        return fetchSessionTypeById(sessionTypeId)
+                .onErrorResume(e -> Mono.empty())
+                .contextWrite(WebClientConfig.authenticationContext())
+                .blockOptional();
+    }
 
-                } catch (WebClientResponseException e) {
-                    if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
-                        log.warn("Session type not found with id: {}", sessionTypeId);
-                        return Optional.empty();
-                    }
-                    log.error("HTTP error calling session service: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
-                    throw new RuntimeException("Failed to retrieve session type: HTTP " + e.getStatusCode(), e);
-                } catch (Exception e) {
-                    log.error("Unexpected error calling session service: {}", e.getMessage(), e);
-                    throw new RuntimeException("Failed to retrieve session type from session service", e);
-                }
-            })
-        );
+    /**
+     * Reactive variant of {@link #getSessionTypeById(String)}; completes empty when the session type
+     * does not exist and fails when the call times out or the response cannot be parsed
+     */
+    public Mono<SessionTypeDto> fetchSessionTypeById(String sessionTypeId) {
+        // Decoded directly into SessionTypeDto since the response is not wrapped
+        return fetchById(sessionTypesUrl + "/" + sessionTypeId, SessionTypeDto.class, "session type", sessionTypeId);
     }
 
     /**
      * Get session offering by ID
      */
     public Optional<SessionOfferingDto> getSessionOfferingById(String sessionOfferingId) {
-        return circuitBreaker.executeSupplier(() ->
-            retry.executeSupplier(() -> {
-                try {
-                    String uri = sessionOfferingsUrl + "/" + sessionOfferingId;
-                    log.debug("Calling session service for session offering: {}", uri);
-
-                    // Log raw response before deserialization with timeout handling
-                    String rawResponse = webClient.get()
-                        .uri(uri)
-                        .accept(MediaType.APPLICATION_JSON)
-                        .header("X-Internal-Secret", internalApiSecret)
-                        .retrieve()
-                        .bodyToMono(String.class)
-                        .timeout(Duration.ofSeconds(timeoutSeconds))
-                        .onErrorReturn(ex -> {
-                            if (ex instanceof java.util.concurrent.TimeoutException) {
-                                log.warn("Timeout occurred while calling session service for session offering: {}", uri);
-                                return true;
-                            }
-                            return false;
-                        }, "")
-                        .doOnError(ex -> log.error("Error calling session service for session offering: {}", ex.getMessage(), ex))
-                        .block();
-                    log.info("Raw session offering response for ID {}: {}", sessionOfferingId, rawResponse);
-
-                    if (rawResponse == null || rawResponse.isEmpty()) {
-                        log.warn("Empty or null response from session service for session offering ID: {}", sessionOfferingId);
-                        return Optional.empty();
-                    }
+        return fetchSessionOfferingById(sessionOfferingId)
+                .onErrorResume(e -> Mono.empty())
+                .contextWrite(WebClientConfig.authenticationContext())
+                .blockOptional();
+    }
 
-                    // Deserialize directly into SessionOfferingDto since the response is not wrapped
-                    SessionOfferingDto sessionOffering = null;
-                    try {
-                        sessionOffering = com.fasterxml.jackson.databind.json.JsonMapper.builder().build()
-                            .readValue(rawResponse, SessionOfferingDto.class);
-                    } catch (Exception e) {
-                        log.error("Failed to parse session offering response: {}", e.getMessage(), e);
-                        return Optional.empty();
-                    }
+    /**
+     * Reactive variant of {@link #getSessionOfferingById(String)}; completes empty when the session offering
+     * does not exist and fails when the call times out or the response cannot be parsed
+     */
+    public Mono<SessionOfferingDto> fetchSessionOfferingById(String sessionOfferingId) {
+        // Decoded directly into SessionOfferingDto since the response is not wrapped
+        return fetchById(sessionOfferingsUrl + "/" + sessionOfferingId, SessionOfferingDto.class,
+                "session offering", sessionOfferingId);
+    }
 
-                    if (sessionOffering != null) {
-                        log.debug("Successfully retrieved session offering: {}", sessionOfferingId);
-                        return Optional.of(sessionOffering);
+    /**
+     * Get session types by IDs, sending at most {@code batch-size} IDs per request.
+     * Falls back to parallel single-ID calls when the batch endpoint is not available.
+     */
+    public Map<String, SessionTypeDto> getSessionTypesByIds(Collection<String> sessionTypeIds) {
+        return fetchSessionTypesByIds(sessionTypeIds)
+                .contextWrite(WebClientConfig.authenticationContext())
+                .block();
+    }
+
+    /**
+     * Reactive variant of {@link #getSessionTypesByIds(Collection)}
+     */
+    public Mono<Map<String, SessionTypeDto>> fetchSessionTypesByIds(Collection<String> sessionTypeIds) {
+        return sessionTypeBatchLookup.getByIds(sessionTypeIds, this::fetchSessionTypeBatch,
+                SessionTypeDto::getId, this::fetchSessionTypeById);
+    }
+
+    /**
+     * Get session offerings by IDs, sending at most {@code batch-size} IDs per request.
+     * Falls back to parallel single-ID calls when the batch endpoint is not available.
+     */
+    public Map<String, SessionOfferingDto> getSessionOfferingsByIds(Collection<String> sessionOfferingIds) {
+        return fetchSessionOfferingsByIds(sessionOfferingIds)
+                .contextWrite(WebClientConfig.authenticationContext())
+                .block();
+    }
+
+    /**
+     * Reactive variant of {@link #getSessionOfferingsByIds(Collection)}
+     */
+    public Mono<Map<String, SessionOfferingDto>> fetchSessionOfferingsByIds(Collection<String> sessionOfferingIds) {
+        return sessionOfferingBatchLookup.getByIds(sessionOfferingIds, this::fetchSessionOfferingBatch,
+                SessionOfferingDto::getId, this::fetchSessionOfferingById);
+    }
+
+    /**
+     * Fetches one entity, decoding the body from the response byte stream with the shared mapper.
+     * Only a 404 completes empty: timeouts and unreadable responses are errors, so the batch lookup
+     * records them as failures with the short failure TTL and marks the fetch degraded.
+     */
+    private <T> Mono<T> fetchById(String uri, Class<T> type, String entity, String id) {
+        return webClient.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-Internal-Secret", internalApiSecret)
+                .retrieve()
+                .bodyToMono(type)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .doOnSubscribe(subscription -> log.debug("Calling session service for {}: {}", entity, uri))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    log.warn("Session service returned not found for {} with id: {}", entity, id);
+                    return Mono.empty();
+                })
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry))
+                .doOnError(e -> {
+                    if (e instanceof TimeoutException) {
+                        log.warn("Timeout occurred while calling session service for {}: {}", entity, uri);
+                    } else if (isDecodingFailure(e)) {
+                        log.error("Failed to parse {} response: {}", entity, e.getMessage(), e);
                     } else {
-                        log.warn("Session offering response is null for ID: {}", sessionOfferingId);
-                        return Optional.empty();
+                        log.error("Error calling session service for {}: {}", entity, e.getMessage(), e);
                     }
+                })
+                .doOnNext(value -> log.debug("Successfully retrieved {}: {}", entity, id));
+    }
 
-                } catch (WebClientResponseException e) {
-                    if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
-                        log.warn("Session offering not found with id: {}", sessionOfferingId);
-                        return Optional.empty();
-                    }
-                    log.error("HTTP error calling session service: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
-                    throw new RuntimeException("Failed to retrieve session offering: HTTP " + e.getStatusCode(), e);
-                } catch (Exception e) {
-                    log.error("Unexpected error calling session service: {}", e.getMessage(), e);
-                    throw new RuntimeException("Failed to retrieve session offering from session service", e);
-                }
-            })
-        );
+    private static boolean isDecodingFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DecodingException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Mono<List<SessionTypeDto>> fetchSessionTypeBatch(List<String> sessionTypeIds) {
+        // Like the single-ID endpoint, the batch response is not wrapped
+        return webClient.post()
+                .uri(sessionTypesBatchUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-Internal-Secret", internalApiSecret)
+                .bodyValue(sessionTypeIds)
+                .retrieve()
+                .bodyToMono(SESSION_TYPE_LIST_TYPE)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .doOnSubscribe(subscription -> log.debug("Calling session service batch lookup for {} session types: {}",
+                        sessionTypeIds.size(), sessionTypesBatchUrl))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry))
+                .defaultIfEmpty(Collections.emptyList());
+    }
+
+    private Mono<List<SessionOfferingDto>> fetchSessionOfferingBatch(List<String> sessionOfferingIds) {
+        // Like the single-ID endpoint, the batch response is not wrapped
+        return webClient.post()
+                .uri(sessionOfferingsBatchUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-Internal-Secret", internalApiSecret)
+                .bodyValue(sessionOfferingIds)
+                .retrieve()
+                .bodyToMono(SESSION_OFFERING_LIST_TYPE)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .doOnSubscribe(subscription -> log.debug("Calling session service batch lookup for {} session offerings: {}",
+                        sessionOfferingIds.size(), sessionOfferingsBatchUrl))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry))
+                .defaultIfEmpty(Collections.emptyList());
     }
 }
@@ -1,20 +1,33 @@
 package com.tinysteps.reportservice.client;
 
+import com.tinysteps.reportservice.cache.NegativeLookupCaches;
+import com.tinysteps.reportservice.config.WebClientConfig;
+import com.tinysteps.reportservice.model.BatchServiceResponse;
 import com.tinysteps.reportservice.model.UserDto;
 import com.tinysteps.reportservice.model.UserServiceResponse;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
 import io.github.resilience4j.retry.Retry;
 import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -24,19 +37,28 @@ import java.util.Optional;
 @Component
 public class UserServiceClient {
 
+    private static final ParameterizedTypeReference<BatchServiceResponse<UserDto>> BATCH_RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
     private final WebClient webClient;
     private final CircuitBreaker circuitBreaker;
     private final Retry retry;
     private final TimeLimiter timeLimiter;
+    private final NegativeLookupCaches negativeLookupCaches;
+    private final MeterRegistry meterRegistry;
 
     public UserServiceClient(@Qualifier("secureWebClient") WebClient webClient,
                             CircuitBreaker userServiceCircuitBreaker,
                             Retry userServiceRetry,
-                            TimeLimiter userServiceTimeLimiter) {
+                            TimeLimiter userServiceTimeLimiter,
+                            NegativeLookupCaches negativeLookupCaches,
+                            MeterRegistry meterRegistry) {
         this.webClient = webClient;
         this.circuitBreaker = userServiceCircuitBreaker;
         this.retry = userServiceRetry;
         this.timeLimiter = userServiceTimeLimiter;
+        this.negativeLookupCaches = negativeLookupCaches;
+        this.meterRegistry = meterRegistry;
     }
 
     @Value("${integration.user-service.base-url:http://ts-user-service/api/v1/users}")
@@ -45,57 +67,102 @@ public class UserServiceClient {
     @Value("${integration.user-service.timeout-seconds:10}")
     private int timeoutSeconds;
 
+    @Value("${integration.user-service.batch-url:http://ts-user-service/api/v1/users/batch}")
+    private String userBatchUrl;
+
+    @Value("${integration.user-service.batch-size:100}")
+    private int batchSize;
+
+    @Value("${integration.user-service.max-in-flight:32}")
+    private int maxInFlight;
+
+    @Value("${integration.user-service.batch-reprobe-after:PT10M}")
+    private Duration batchReprobeAfter;
+
+    private BatchLookupSupport<UserDto> batchLookup;
+
+    @PostConstruct
+    void initBatchLookup() {
+        this.batchLookup = new BatchLookupSupport<>("user-service", "users", batchSize, maxInFlight,
+                batchReprobeAfter, negativeLookupCaches, meterRegistry);
+    }
+
     public Optional<UserDto> getUserById(String userId) {
-        return circuitBreaker.executeSupplier(() -> 
-            retry.executeSupplier(() -> {
-                try {
-                    String uri = userServiceUrl + "/" + userId;
-                    log.info("Calling user service: {}", uri);
-                    
-                    UserServiceResponse response = webClient.get()
-                            .uri(uri)
-                            .accept(MediaType.APPLICATION_JSON)
-                            .header("X-Internal-Secret", "internal-secret-key-2024")
-                            .retrieve()
-                            .onStatus(status -> status.equals(HttpStatus.NOT_FOUND), clientResponse -> {
-                                log.warn("User not found with id: {}", userId);
-                                return clientResponse.createException().map(ex ->
-                                    new RuntimeException("User not found", ex));
-                            })
-                            .onStatus(status -> status.is4xxClientError(), clientResponse -> {
-                                log.error("Client error calling user service: {}", clientResponse.statusCode());
-                                return clientResponse.createException().map(ex ->
-                                    new RuntimeException("Client error: " + clientResponse.statusCode(), ex));
-                            })
-                            .onStatus(status -> status.is5xxServerError(), clientResponse -> {
-                                log.error("Server error from user service: {}", clientResponse.statusCode());
-                                return clientResponse.createException().map(ex ->
-                                    new RuntimeException("User service unavailable: " + clientResponse.statusCode(), ex));
-                            })
-                            .bodyToMono(UserServiceResponse.class)
-                            .timeout(Duration.ofSeconds(timeoutSeconds))
-                            .block();
-
-                    if (response != null && response.getData() != null) {
-                        log.info("Successfully retrieved user: {}", userId);
-                        return Optional.of(response.getData());
-                    } else {
-                        log.warn("User response is null or has no data for ID: {}", userId);
-                        return Optional.empty();
+        return fetchUserById(userId)
+                .contextWrite(WebClientConfig.authenticationContext())
+                .blockOptional();
+    }
+
+    /**
+     * Reactive variant of {@link #getUserById(String)}; completes empty when the user does not exist
+     */
+    public Mono<UserDto> fetchUserById(String userId) {
+        String uri = userServiceUrl + "/" + userId;
+        return webClient.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-Internal-Secret", "internal-secret-key-2024")
+                .retrieve()
+                .bodyToMono(UserServiceResponse.class)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .doOnSubscribe(subscription -> log.info("Calling user service: {}", uri))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    log.warn("User not found with id: {}", userId);
+                    return Mono.empty();
+                })
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry))
+                .doOnError(e -> log.error("Failed to retrieve user {} from user service: {}", userId, e.getMessage()))
+                .flatMap(response -> {
+                    if (response.getData() == null) {
+                        log.warn("User response has no data for ID: {}", userId);
+                        return Mono.empty();
                     }
+                    log.info("Successfully retrieved user: {}", userId);
+                    return Mono.just(response.getData());
+                });
+    }
+
+    /**
+     * Get users by IDs, sending at most {@code batch-size} IDs per request.
+     * Falls back to parallel single-ID calls when the batch endpoint is not available.
+     */
+    public Map<String, UserDto> getUsersByIds(Collection<String> userIds) {
+        return fetchUsersByIds(userIds)
+                .contextWrite(WebClientConfig.authenticationContext())
+                .block();
+    }
+
+    /**
+     * Reactive variant of {@link #getUsersByIds(Collection)}
+     */
+    public Mono<Map<String, UserDto>> fetchUsersByIds(Collection<String> userIds) {
+        return batchLookup.getByIds(userIds, this::fetchUserBatch, UserDto::getId, this::fetchUserById);
+    }
 
-                } catch (WebClientResponseException e) {
-                    if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
-                        log.warn("User not found with id: {}", userId);
-                        return Optional.empty();
+    private Mono<List<UserDto>> fetchUserBatch(List<String> userIds) {
+        return webClient.post()
+                .uri(userBatchUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-Internal-Secret", "internal-secret-key-2024")
+                .bodyValue(userIds)
+                .retrieve()
+                .bodyToMono(BATCH_RESPONSE_TYPE)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .doOnSubscribe(subscription ->
+                        log.info("Calling user service batch lookup for {} users: {}", userIds.size(), userBatchUrl))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry))
+                .map(response -> {
+                    if (response.getData() == null) {
+                        log.warn("User batch response has no data for {} IDs", userIds.size());
+                        return Collections.<UserDto>emptyList();
                     }
-                    log.error("HTTP error calling user service: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
-                    throw new RuntimeException("Failed to retrieve user: HTTP " + e.getStatusCode(), e);
-                } catch (Exception e) {
-                    log.error("Unexpected error calling user service: {}", e.getMessage(), e);
-                    throw new RuntimeException("Failed to retrieve user from user service", e);
-                }
-            })
-        );
+                    return response.getData();
+                })
+                .defaultIfEmpty(Collections.emptyList());
     }
-}
\ No newline at end of file
+}
@@ -12,6 +12,12 @@ public class KafkaConfig {
     @Value("${kafka.topics.report-events}")
     private String reportEventsTopic;
 
+    @Value("${kafka.topics.report-requests}")
+    private String reportRequestsTopic;
+
+    @Value("${kafka.report-requests.partitions:3}")
+    private int reportRequestsPartitions;
+
     @Bean
     public NewTopic reportEventsTopic() {
         return TopicBuilder.name(reportEventsTopic)
@@ -19,4 +25,15 @@ public class KafkaConfig {
                 .replicas(1)
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Queued reports keyed by branch; partitions bound how many instances can consume in parallel
+     */
+    @Bean
+    public NewTopic reportRequestsTopic() {
+        return TopicBuilder.name(reportRequestsTopic)
+                .partitions(reportRequestsPartitions)
+                .replicas(1)
+                .build();
+    }
+}
@@ -0,0 +1,51 @@
+package com.tinysteps.reportservice.config;
+
+import com.tinysteps.reportservice.cache.CacheEvictionPolicy;
+import com.tinysteps.reportservice.cache.ReferenceDataCache;
+import com.tinysteps.reportservice.model.DoctorDto;
+import com.tinysteps.reportservice.model.SessionOfferingDto;
+import com.tinysteps.reportservice.model.SessionTypeDto;
+import com.tinysteps.reportservice.model.UserDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the in-process reference data caches placed in front of the downstream clients
+ */
+@Configuration
+public class ReferenceDataCacheConfig {
+
+    @Value("${integration.cache.eviction-policy:W_TINYLFU}")
+    private CacheEvictionPolicy evictionPolicy;
+
+    @Value("${integration.cache.max-entries:5000}")
+    private long maxEntries;
+
+    @Bean
+    public ReferenceDataCache<DoctorDto> doctorCache(MeterRegistry meterRegistry,
+                                                     @Value("${integration.cache.doctor-ttl:1h}") Duration ttl) {
+        return new ReferenceDataCache<>("doctors", evictionPolicy, maxEntries, ttl, meterRegistry);
+    }
+
+    @Bean
+    public ReferenceDataCache<UserDto> userCache(MeterRegistry meterRegistry,
+                                                 @Value("${integration.cache.user-ttl:30m}") Duration ttl) {
+        return new ReferenceDataCache<>("users", evictionPolicy, maxEntries, ttl, meterRegistry);
+    }
+
+    @Bean
+    public ReferenceDataCache<SessionTypeDto> sessionTypeCache(MeterRegistry meterRegistry,
+                                                               @Value("${integration.cache.session-type-ttl:6h}") Duration ttl) {
+        return new ReferenceDataCache<>("session-types", evictionPolicy, maxEntries, ttl, meterRegistry);
+    }
+
+    @Bean
+    public ReferenceDataCache<SessionOfferingDto> sessionOfferingCache(MeterRegistry meterRegistry,
+                                                                       @Value("${integration.cache.session-offering-ttl:1h}") Duration ttl) {
+        return new ReferenceDataCache<>("session-offerings", evictionPolicy, maxEntries, ttl, meterRegistry);
+    }
+}
@@ -1,11 +1,14 @@
 package com.tinysteps.reportservice.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -14,6 +17,7 @@ import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
 
 @Configuration
 public class WebClientConfig {
@@ -25,8 +29,13 @@ public class WebClientConfig {
 
     @Bean
     @LoadBalanced
-    public WebClient.Builder loadBalancedWebClientBuilder() {
+    public WebClient.Builder loadBalancedWebClientBuilder(ObjectMapper objectMapper) {
         return WebClient.builder()
+                // Decode and encode JSON with the application's shared ObjectMapper instead of a per-builder copy
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                })
                 // Add the internal secret to the base builder for internal service calls
                 .defaultHeader("X-Internal-Secret", internalApiSecret)
                 // Add a filter to log outgoing request headers for debugging
@@ -50,15 +59,29 @@ public class WebClientConfig {
                 .build();
     }
 
+    /**
+     * Captures the current authentication into a Reactor context, so the JWT propagation filter
+     * can still find it when a request is subscribed on a non-servlet thread.
+     * @return A context to pass to {@code contextWrite} at the end of a reactive pipeline.
+     */
+    public static Context authenticationContext() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? Context.of(Authentication.class, authentication) : Context.empty();
+    }
+
     /**
      * Creates a filter that intercepts requests to add the Authorization header.
-     * It retrieves the JWT from the blocking security context.
+     * It retrieves the JWT from the blocking security context, falling back to the
+     * authentication captured in the Reactor context by {@link #authenticationContext()}.
      * @return An ExchangeFilterFunction that adds a Bearer token.
      */
     private ExchangeFilterFunction jwtPropagationFilter() {
-        return (request, next) -> {
+        return (request, next) -> Mono.deferContextual(context -> {
             try {
                 Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+                if (authentication == null && context.hasKey(Authentication.class)) {
+                    authentication = context.get(Authentication.class);
+                }
                 if (authentication instanceof JwtAuthenticationToken jwtAuth) {
                     Jwt jwt = jwtAuth.getToken();
                     String tokenValue = jwt.getTokenValue();
@@ -77,7 +100,7 @@ public class WebClientConfig {
                 logger.error("Error propagating JWT token: {}", e.getMessage(), e);
                 return next.exchange(request);
             }
-        };
+        });
     }
 
     /**
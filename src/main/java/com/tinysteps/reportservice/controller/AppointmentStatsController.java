@@ -0,0 +1,64 @@
+package com.tinysteps.reportservice.controller;
+
+import com.tinysteps.reportservice.model.AppointmentStatsDto;
+import com.tinysteps.reportservice.service.aggregate.DailyAppointmentAggregates;
+import com.tinysteps.reportservice.service.replica.AppointmentReplica;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/v1/reports/stats")
+@RequiredArgsConstructor
+@Slf4j
+public class AppointmentStatsController {
+
+    private final DailyAppointmentAggregates dailyAggregates;
+    private final AppointmentReplica appointmentReplica;
+
+    @GetMapping
+    public ResponseEntity<AppointmentStatsDto> getStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String branchId,
+            @RequestParam(required = false) String doctorId,
+            @RequestParam(defaultValue = "status") String groupBy) {
+        log.info("Retrieving appointment stats from {} to {} for branchId: {}, doctorId: {} grouped by {}",
+                startDate, endDate, branchId, doctorId, groupBy);
+        if (!appointmentReplica.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (endDate.isBefore(startDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            boolean replicaCovers = appointmentReplica.covers(branchId, startDate, endDate);
+            return ResponseEntity.ok(dailyAggregates.stats(startDate, endDate, branchId, doctorId, groupBy, replicaCovers));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid stats request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Starts the aggregate consistency check now instead of waiting for the nightly run. It runs in the
+     * background; mismatching days are logged and, with repair enabled, queued for refresh.
+     */
+    @PostMapping("/consistency-check")
+    public ResponseEntity<Void> checkConsistency() {
+        if (!appointmentReplica.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!dailyAggregates.startConsistencyCheck()) {
+            log.info("Daily appointment aggregate consistency check already running");
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        log.info("Started daily appointment aggregate consistency check on request");
+        return ResponseEntity.accepted().build();
+    }
+}
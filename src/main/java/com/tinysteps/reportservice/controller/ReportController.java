@@ -4,6 +4,7 @@ import com.tinysteps.reportservice.model.ReportRequestDto;
 import com.tinysteps.reportservice.model.ReportResponseDto;
 import com.tinysteps.reportservice.model.ReportType;
 import com.tinysteps.reportservice.service.ReportService;
+import com.tinysteps.reportservice.service.admission.AdmissionRejectedException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,16 +13,19 @@ import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/v1/reports")
@@ -34,11 +38,44 @@ public class ReportController {
     @Value("${report.storage.path}")
     private String reportStoragePath;
 
+    @Value("${report.async.enabled:true}")
+    private boolean asyncByDefault;
+
+    @Value("${report.async.retry-after-seconds:30}")
+    private long retryAfterSeconds;
+
+    /**
+     * Generates a report. In async mode the report is queued and 202 Accepted is returned at once with
+     * the PENDING report; poll {@code GET /api/v1/reports/{id}} for its status. A full queue answers 503;
+     * a user or branch over its admission limits gets 429. Both carry Retry-After.
+     */
     @PostMapping
-    public ResponseEntity<ReportResponseDto> generateReport(@Valid @RequestBody ReportRequestDto reportRequest) {
+    public ResponseEntity<ReportResponseDto> generateReport(@Valid @RequestBody ReportRequestDto reportRequest,
+                                                            @RequestParam(required = false) Boolean async) {
         log.info("Received request to generate report of type: {}", reportRequest.getReportType());
-        ReportResponseDto response = reportService.generateReport(reportRequest);
-        return ResponseEntity.ok(response);
+        ReportResponseDto response;
+        try {
+            if (!(async != null ? async : asyncByDefault)) {
+                response = reportService.generateReport(reportRequest);
+                return ResponseEntity.ok(response);
+            }
+            response = reportService.submitReport(reportRequest);
+        } catch (AdmissionRejectedException e) {
+            log.info("Report request rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(e.getRetryAfter().toSeconds(), 1)))
+                    .build();
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .build();
+        }
+        if ("COMPLETED".equals(response.getStatus())) {
+            return ResponseEntity.ok(response);
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/reports/" + response.getId()))
+                .body(response);
     }
 
     @GetMapping("/{reportId}")
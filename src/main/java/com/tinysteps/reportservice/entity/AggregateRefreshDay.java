@@ -0,0 +1,28 @@
+package com.tinysteps.reportservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * A day whose replicated appointments changed since its aggregates were last computed
+ */
+@Entity
+@Table(name = "aggregate_refresh_days")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AggregateRefreshDay {
+
+    @Id
+    private LocalDate appointmentDate;
+
+    @Column(nullable = false)
+    private Instant markedAt;
+}
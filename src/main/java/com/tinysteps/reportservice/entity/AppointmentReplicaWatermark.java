@@ -0,0 +1,39 @@
+package com.tinysteps.reportservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * How far the appointment replica is complete for one branch, or for all branches under "all".
+ * Appointments dated between {@code coveredFrom} and {@code coveredTo} were seeded and have been
+ * kept up to date from events since.
+ */
+@Entity
+@Table(name = "appointment_replica_watermarks")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentReplicaWatermark {
+
+    @Id
+    private String branchId;
+
+    @Column(nullable = false)
+    private LocalDate coveredFrom;
+
+    @Column(nullable = false)
+    private LocalDate coveredTo;
+
+    @Column(nullable = false)
+    private Instant seededAt;
+
+    @Column
+    private Instant lastEventAt;
+}
@@ -0,0 +1,53 @@
+package com.tinysteps.reportservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Appointment count and session offering revenue for one day, branch, doctor, status and consultation type,
+ * materialized from the appointment replica
+ */
+@Entity
+@Table(name = "daily_appointment_aggregates", indexes = {
+        @Index(name = "idx_daily_appointment_aggregates_date_branch", columnList = "appointmentDate, branchId")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_appointment_aggregates_key",
+                columnNames = {"appointmentDate", "branchId", "doctorId", "status", "consultationType"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyAppointmentAggregate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate appointmentDate;
+
+    @Column
+    private String branchId;
+
+    @Column
+    private String doctorId;
+
+    @Column
+    private String status;
+
+    @Column
+    private String consultationType;
+
+    @Column(nullable = false)
+    private long appointmentCount;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue; // sum of the prices snapshotted on the replicated appointments
+}
@@ -0,0 +1,85 @@
+package com.tinysteps.reportservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Local copy of a schedule-service appointment, kept in sync from appointment events
+ */
+@Entity
+@Table(name = "replicated_appointments", indexes = {
+        @Index(name = "idx_replicated_appointments_branch_date", columnList = "branchId, appointmentDate"),
+        @Index(name = "idx_replicated_appointments_date", columnList = "appointmentDate")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicatedAppointment {
+
+    @Id
+    private String id;
+
+    @Column
+    private String appointmentNumber;
+
+    @Column
+    private String branchId; // practiceId of the schedule-service appointment
+
+    @Column
+    private String doctorId;
+
+    @Column
+    private String patientId;
+
+    @Column
+    private String sessionTypeId;
+
+    @Column
+    private String sessionOfferingId;
+
+    @Column(nullable = false)
+    private LocalDate appointmentDate;
+
+    @Column
+    private LocalTime startTime;
+
+    @Column
+    private LocalTime endTime;
+
+    @Column
+    private String status;
+
+    @Column
+    private String consultationType;
+
+    @Column(length = 2000)
+    private String notes;
+
+    @Column(length = 1000)
+    private String cancellationReason;
+
+    @Column
+    private LocalDateTime checkedInAt;
+
+    @Column
+    private Integer sessionDurationMinutes;
+
+    @Column(precision = 12, scale = 2)
+    private BigDecimal sessionOfferingPrice; // offering price when the appointment's day was first aggregated
+
+    @Column(nullable = false)
+    private boolean deleted; // kept as a tombstone so an older seed cannot bring the appointment back
+
+    @Column(nullable = false)
+    private Instant changedAt; // when this row was last written, by the seed or by an event
+}
@@ -8,10 +8,13 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reports")
+@Table(name = "reports", indexes = {
+        @Index(name = "idx_reports_parameters_hash", columnList = "parametersHash")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -39,6 +42,9 @@ public class Report {
     @Column(nullable = false)
     private String userId;
 
+    @Column
+    private String submittedBy; // authenticated caller, which per-user limits count against
+
     @Column
     private String branchId; // Can store "all" for all branches or specific branchId
 
@@ -48,9 +54,33 @@ public class Report {
     @Column
     private String parameters;
 
+    @Column(length = 64)
+    private String parametersHash; // SHA-256 of the canonical request, see ReportParameters; finds reusable reports
+
     @Column
     private Long fileSize;
 
+    @Column(length = 32)
+    private String executionPlan; // ExecutionStrategy the planner chose
+
+    @Column
+    private Long estimatedRows; // planner's estimate, null when it had none
+
+    @Column
+    private Long estimatedBytes;
+
+    @Column
+    private Long actualRows;
+
     @Column
     private String status;
+
+    @Column
+    private Boolean complete; // false when some names or prices fell back to placeholders; such reports are not reused
+
+    @Column
+    private String leaseOwner; // instance generating the report while PROCESSING, see ReportLeases
+
+    @Column
+    private Instant leaseExpiresAt;
 }
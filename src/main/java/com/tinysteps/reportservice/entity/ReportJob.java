@@ -0,0 +1,68 @@
+package com.tinysteps.reportservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Durable queue entry for an asynchronous report. Workers on any instance claim entries with
+ * {@code FOR UPDATE SKIP LOCKED} and hold them under a lease they renew while generating; an entry whose
+ * lease ran out is claimed again. Entries are deleted once their report finished.
+ * Within a lane, entries are claimed in order of their fair-queuing virtual finish, see {@code ReportJobQueue}.
+ */
+@Entity
+@Table(name = "report_jobs", indexes = {
+        @Index(name = "idx_report_jobs_lane_status_finish", columnList = "lane, status, virtualFinish")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private Long reportId;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String request; // JSON of the ReportRequestDto
+
+    @Column(nullable = false)
+    private String status; // QUEUED or RUNNING
+
+    // The default fills jobs queued before lanes existed when the schema update adds the column
+    @Column(nullable = false, columnDefinition = "varchar(16) default 'BULK'")
+    private String lane; // ReportLane name
+
+    @Column
+    private String submittedBy; // authenticated caller, whose earlier jobs delay this one
+
+    // Jobs queued before fair queuing existed start and finish at 0, so they go first
+    @Column(nullable = false, columnDefinition = "double precision default 0")
+    private double virtualStart;
+
+    @Column(nullable = false, columnDefinition = "double precision default 0")
+    private double virtualFinish;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column
+    private String leaseOwner;
+
+    @Column
+    private Instant leaseExpiresAt;
+
+    @Column
+    private Instant heartbeatAt;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,39 @@
+package com.tinysteps.reportservice.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinysteps.reportservice.model.AppointmentChangeEvent;
+import com.tinysteps.reportservice.service.replica.AppointmentReplica;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumes appointment events from schedule-service and applies them to the local appointment replica.
+ * Unlike the cache listeners, all instances share one consumer group, because the replica lives in the
+ * shared reports database. Only started when the replica is enabled.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AppointmentChangeListener {
+
+    private final AppointmentReplica appointmentReplica;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(
+            topics = "${kafka.topics.appointment-changes}",
+            groupId = "${kafka.appointment-changes.group-id:report-service-appointment-replica}",
+            autoStartup = "${report.replica.enabled:false}",
+            properties = "auto.offset.reset=earliest")
+    public void onAppointmentChange(String payload) {
+        AppointmentChangeEvent event;
+        try {
+            event = objectMapper.readValue(payload, AppointmentChangeEvent.class);
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable appointment event: {}", e.getMessage());
+            return;
+        }
+        appointmentReplica.apply(event);
+    }
+}
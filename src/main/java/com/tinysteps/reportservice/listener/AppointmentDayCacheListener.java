@@ -0,0 +1,44 @@
+package com.tinysteps.reportservice.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinysteps.reportservice.model.AppointmentChangeEvent;
+import com.tinysteps.reportservice.service.fetch.EnrichedDayCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Consumes appointment events from schedule-service and drops the affected days from the enriched day cache.
+ * Like the entity cache listener, every instance uses its own consumer group, because each instance holds
+ * its own day cache, while the replica is updated by only one of them. The group is named after the pod.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AppointmentDayCacheListener {
+
+    private final EnrichedDayCache enrichedDayCache;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(
+            topics = "${kafka.topics.appointment-changes}",
+            groupId = "${kafka.appointment-changes.cache-group-id:report-service-day-cache-${kafka.instance-id:local}}",
+            autoStartup = "${report.day-cache.enabled:true}",
+            properties = "auto.offset.reset=latest")
+    public void onAppointmentChange(String payload) {
+        AppointmentChangeEvent event;
+        try {
+            event = objectMapper.readValue(payload, AppointmentChangeEvent.class);
+        } catch (Exception e) {
+            log.debug("Ignoring unreadable appointment event: {}", e.getMessage());
+            return;
+        }
+        String appointmentId = event.getAppointmentId() != null ? event.getAppointmentId()
+                : event.getAppointment() != null ? event.getAppointment().getId() : null;
+        LocalDate appointmentDate = event.getAppointment() != null ? event.getAppointment().getAppointmentDate() : null;
+        enrichedDayCache.invalidateAppointment(appointmentId, appointmentDate);
+    }
+}
@@ -0,0 +1,103 @@
+package com.tinysteps.reportservice.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinysteps.reportservice.cache.ReferenceDataLookup;
+import com.tinysteps.reportservice.model.EntityChangeEvent;
+import com.tinysteps.reportservice.service.fetch.EnrichedDayCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Consumes entity-change events from the upstream services and evicts the affected entries from
+ * the reference data and negative lookup caches, so renamed doctors or repriced offerings show up
+ * in the next report without waiting for the cache TTL. Changes to existing entities also drop the
+ * enriched days whose rows embed their names.
+ * Every instance uses its own consumer group, because each instance holds its own caches. The group is
+ * named after the pod, so a restarted pod rejoins its group instead of leaving one behind.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EntityChangeListener {
+
+    private final ReferenceDataLookup referenceDataLookup;
+    private final EnrichedDayCache enrichedDayCache;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${integration.cache.refresh-on-change:true}")
+    private boolean refreshOnChange;
+
+    @KafkaListener(
+            topics = "#{'${kafka.topics.entity-changes}'.split(',')}",
+            groupId = "${kafka.entity-changes.group-id:report-service-cache-${kafka.instance-id:local}}",
+            properties = "auto.offset.reset=latest")
+    public void onEntityChange(String payload) {
+        EntityChangeEvent event;
+        try {
+            event = objectMapper.readValue(payload, EntityChangeEvent.class);
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable entity change event: {}", e.getMessage());
+            return;
+        }
+
+        String entity = toCacheEntity(event);
+        if (entity == null || event.getEntityId() == null) {
+            log.debug("Ignoring entity change event without a known entity: {}", payload);
+            return;
+        }
+
+        // Deleted entities are only evicted; anything else is reloaded if it was cached
+        boolean deleted = event.getEventType() != null
+                && event.getEventType().toUpperCase(Locale.ROOT).endsWith("DELETED");
+        if (event.getEventType() == null || !event.getEventType().toUpperCase(Locale.ROOT).endsWith("CREATED")) {
+            // Before the user is evicted, while its old name is still known
+            invalidateEnrichedDays(entity, event.getEntityId());
+        }
+        referenceDataLookup.invalidate(entity, event.getEntityId(), refreshOnChange && !deleted);
+        meterRegistry.counter("report.cache.invalidations", "cache", entity).increment();
+        log.info("Invalidated {} {} after {} event", entity, event.getEntityId(), event.getEventType());
+    }
+
+    private void invalidateEnrichedDays(String entity, String id) {
+        switch (entity) {
+            case "doctors" -> enrichedDayCache.invalidateRows(row -> id.equals(row.getDoctorId()));
+            case "patients" -> enrichedDayCache.invalidateRows(row -> id.equals(row.getPatientId()));
+            case "session-types" -> enrichedDayCache.invalidateRows(row -> id.equals(row.getSessionTypeId()));
+            case "session-offerings" -> enrichedDayCache.invalidateRows(row -> id.equals(row.getSessionId()));
+            // Rows carry a user's name as the patient name but not the user ID; unknown users clear everything
+            default -> referenceDataLookup.cachedUserName(id).ifPresentOrElse(
+                    name -> enrichedDayCache.invalidateRows(row -> name.equals(row.getPatientName())),
+                    enrichedDayCache::invalidateAll);
+        }
+    }
+
+    /**
+     * Maps the event's entity type, or the prefix of its event type, to the cache name
+     */
+    private static String toCacheEntity(EntityChangeEvent event) {
+        String type = event.getEntityType() != null ? event.getEntityType() : event.getEventType();
+        if (type == null) {
+            return null;
+        }
+        type = type.toUpperCase(Locale.ROOT).replace('-', '_');
+        if (type.startsWith("SESSION_OFFERING")) {
+            return "session-offerings";
+        } else if (type.startsWith("SESSION_TYPE")) {
+            return "session-types";
+        } else if (type.startsWith("DOCTOR")) {
+            return "doctors";
+        } else if (type.startsWith("PATIENT")) {
+            return "patients";
+        } else if (type.startsWith("USER")) {
+            return "users";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,107 @@
+package com.tinysteps.reportservice.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinysteps.reportservice.model.ReportRequestMessage;
+import com.tinysteps.reportservice.service.ReportService;
+import com.tinysteps.reportservice.service.jobs.ReportJobExecutor;
+import com.tinysteps.reportservice.service.jobs.ReportJobQueue;
+import com.tinysteps.reportservice.service.jobs.ReportLane;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates reports queued on the report-requests topic. All instances share one consumer group, so
+ * partitions, and with them branches, are spread over the instances and rebalanced as they scale;
+ * the reports of one branch are generated in order. Consumer lag is the backlog.
+ * Each record is generated on the listener thread, one record per poll, within the timeout of the lane
+ * it was classified into; the poll interval limit must exceed the longest lane timeout. A record
+ * redelivered while another worker still generates its report is skipped. Reports queued by this instance
+ * run with the submitter's JWT, others without one. Only started when reports are dispatched through Kafka.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReportRequestListener {
+
+    private final ReportService reportService;
+    private final ReportJobExecutor jobExecutor;
+    private final ReportJobQueue jobQueue;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @KafkaListener(
+            topics = "${kafka.topics.report-requests}",
+            groupId = "${kafka.report-requests.group-id:report-service-report-workers}",
+            concurrency = "${report.async.workers:2}",
+            autoStartup = "#{'${report.async.dispatch:database}' == 'kafka'}",
+            properties = {
+                    "auto.offset.reset=earliest",
+                    "max.poll.records=1",
+                    "max.poll.interval.ms=${kafka.report-requests.max-poll-interval-ms:2100000}"
+            })
+    public void onReportRequest(String payload) {
+        ReportRequestMessage message;
+        try {
+            message = objectMapper.readValue(payload, ReportRequestMessage.class);
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable report request: {}", e.getMessage());
+            return;
+        }
+        if (message.getReportId() == null || message.getRequest() == null) {
+            log.warn("Ignoring report request without a report ID or request");
+            return;
+        }
+
+        ReportLane lane = laneOf(message);
+        String tag = lane.name().toLowerCase(Locale.ROOT);
+        if (message.getQueuedAt() != null) {
+            meterRegistry.timer("report.jobs.wait", "lane", tag).record(Duration.between(message.getQueuedAt(), Instant.now()));
+        }
+        SecurityContext securityContext = jobQueue.localContext(message.getReportId());
+        if (securityContext != null) {
+            SecurityContextHolder.setContext(securityContext);
+        }
+        long startedAt = System.nanoTime();
+        String outcome = "completed";
+        try {
+            if (!reportService.runReport(message.getReportId(), message.getRequest(), jobExecutor.timeout(lane))) {
+                // Redelivered after a rebalance while the first consumer is still generating it
+                outcome = "skipped";
+            }
+        } catch (RuntimeException e) {
+            // The report is marked FAILED; redelivering would only fail it again
+            outcome = "failed";
+            log.error("Report {} from report-requests failed: {}", message.getReportId(), e.getMessage());
+        } finally {
+            SecurityContextHolder.clearContext();
+            jobQueue.forgetContext(message.getReportId());
+            meterRegistry.timer("report.jobs.run", "lane", tag, "outcome", outcome)
+                    .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * The lane the report was classified into; missing, legacy or unknown lanes run in the bulk lane
+     */
+    private static ReportLane laneOf(ReportRequestMessage message) {
+        if (message.getLane() == null) {
+            return ReportLane.BULK;
+        }
+        try {
+            return ReportLane.valueOf(message.getLane().trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("Report {} has unknown lane {}, running it in the bulk lane", message.getReportId(), message.getLane());
+            return ReportLane.BULK;
+        }
+    }
+}
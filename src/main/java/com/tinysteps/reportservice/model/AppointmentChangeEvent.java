@@ -0,0 +1,25 @@
+package com.tinysteps.reportservice.model;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change notification published by schedule-service for an appointment
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AppointmentChangeEvent {
+    private String eventType;  // e.g. APPOINTMENT_CREATED, APPOINTMENT_RESCHEDULED, APPOINTMENT_DELETED
+    @JsonAlias({"id", "entityId"})
+    private String appointmentId;
+    private String occurredAt; // ISO timestamp, kept as String like the other schedule-service timestamps
+    @JsonAlias({"data", "payload"})
+    private ScheduleServiceResponse.ScheduleAppointmentDto appointment; // state after the change, if included
+}
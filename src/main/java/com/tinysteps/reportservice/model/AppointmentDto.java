@@ -21,6 +21,7 @@ public class AppointmentDto {
     private String patientName;
     private String doctorId;
     private String doctorName;
+    private String branchId; // This will map to practiceId from schedule service
     private String sessionTypeId;
     private String sessionId; // This will map to sessionOfferingId from schedule service
     private String sessionTypeName; // Name of the session type (e.g., "General Consultation")
@@ -38,31 +39,31 @@ public class AppointmentDto {
     private String durationFormatted; // Formatted duration string (e.g., "30 minutes")
 
     /**
-     * Converts from ScheduleServiceResponse.ScheduleAppointmentDto to AppointmentDto
+     * Converts from ScheduleServiceResponse.ScheduleAppointmentDto to AppointmentDto.
+     * Dates and times are taken from the row's primitive encodings and come from the
+     * {@link ScheduleTemporals} caches, so nothing is parsed here and, apart from a check-in time,
+     * the appointment is the only object allocated.
      */
     public static AppointmentDto fromScheduleAppointment(ScheduleServiceResponse.ScheduleAppointmentDto scheduleDto) {
-        return AppointmentDto.builder()
-                .id(scheduleDto.getId())
-                .appointmentNumber(scheduleDto.getAppointmentNumber())
-                .patientId(scheduleDto.getPatientId())
-                .doctorId(scheduleDto.getDoctorId())
-                .sessionTypeId(scheduleDto.getSessionTypeId())
-                .sessionId(scheduleDto.getSessionOfferingId())
-                .appointmentType(scheduleDto.getConsultationType())
-                .appointmentDate(scheduleDto.getAppointmentDate() != null ?
-                    LocalDate.parse(scheduleDto.getAppointmentDate()) : null)
-                .startTime(scheduleDto.getStartTime() != null ?
-                    LocalTime.parse(scheduleDto.getStartTime()) : null)
-                .endTime(scheduleDto.getEndTime() != null ?
-                    LocalTime.parse(scheduleDto.getEndTime()) : null)
-                .status(scheduleDto.getStatus())
-                .consultationType(scheduleDto.getConsultationType())
-                .notes(scheduleDto.getNotes())
-                .cancellationReason(scheduleDto.getCancellationReason())
-                .checkedInAt(scheduleDto.getCheckedInAt() != null ?
-                        LocalDateTime.parse(scheduleDto.getCheckedInAt()) : null)
-                .sessionDurationMinutes(scheduleDto.getSessionDurationMinutes())
-                .build();
+        AppointmentDto appointment = new AppointmentDto();
+        appointment.id = scheduleDto.getId();
+        appointment.appointmentNumber = scheduleDto.getAppointmentNumber();
+        appointment.patientId = scheduleDto.getPatientId();
+        appointment.doctorId = scheduleDto.getDoctorId();
+        appointment.branchId = scheduleDto.getPracticeId();
+        appointment.sessionTypeId = scheduleDto.getSessionTypeId();
+        appointment.sessionId = scheduleDto.getSessionOfferingId();
+        appointment.appointmentType = scheduleDto.getConsultationType();
+        appointment.appointmentDate = ScheduleTemporals.date(scheduleDto.getAppointmentEpochDay());
+        appointment.startTime = ScheduleTemporals.time(scheduleDto.getStartMinute());
+        appointment.endTime = ScheduleTemporals.time(scheduleDto.getEndMinute());
+        appointment.status = scheduleDto.getStatus();
+        appointment.consultationType = scheduleDto.getConsultationType();
+        appointment.notes = scheduleDto.getNotes();
+        appointment.cancellationReason = scheduleDto.getCancellationReason();
+        appointment.checkedInAt = ScheduleTemporals.dateTime(scheduleDto.getCheckedInAtMicros());
+        appointment.sessionDurationMinutes = scheduleDto.getSessionDurationMinutes();
+        return appointment;
     }
 
     /**
@@ -0,0 +1,23 @@
+package com.tinysteps.reportservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of appointments from the schedule service, with the paging metadata of the response
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentPage {
+    private List<AppointmentDto> content;
+    private int number;
+    private int totalPages;
+    private long totalElements;
+    private boolean last;
+}
@@ -0,0 +1,39 @@
+package com.tinysteps.reportservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Appointment counts and revenue over a date range, grouped by one aggregate dimension
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentStatsDto {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String branchId;
+    private String doctorId;
+    private String groupBy; // day, branch, doctor, status or consultationType
+    private boolean complete; // false when the replica does not cover the range or days are awaiting refresh
+    private long totalAppointments;
+    private BigDecimal totalRevenue;
+    private List<Group> groups;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Group {
+        private String key;
+        private long appointmentCount;
+        private BigDecimal revenue;
+    }
+}
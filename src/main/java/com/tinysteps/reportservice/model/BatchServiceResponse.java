@@ -0,0 +1,19 @@
+package com.tinysteps.reportservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response wrapper for batch lookup endpoints of the patient, doctor and user services
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchServiceResponse<T> {
+    private List<T> data;
+    private String message;
+    private boolean success;
+}
@@ -0,0 +1,23 @@
+package com.tinysteps.reportservice.model;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change notification published by the doctor, patient, user and session services
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class EntityChangeEvent {
+    private String eventType;   // e.g. DOCTOR_UPDATED, SESSION_OFFERING_REPRICED, USER_DELETED
+    private String entityType;  // e.g. DOCTOR, PATIENT, USER, SESSION_TYPE, SESSION_OFFERING
+    @JsonAlias({"id", "doctorId", "patientId", "userId", "sessionTypeId", "sessionOfferingId"})
+    private String entityId;
+}
@@ -0,0 +1,24 @@
+package com.tinysteps.reportservice.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A queued report on the report-requests topic, keyed by branch
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ReportRequestMessage {
+    private Long reportId;
+    private ReportRequestDto request;
+    private String lane; // ReportLane name; messages published before lanes existed count as BULK
+    private Instant queuedAt;
+}
@@ -19,4 +19,5 @@ public class ReportResponseDto {
     private String downloadUrl;
     private LocalDateTime generatedAt;
     private String status;
+    private Boolean complete; // false when some names or prices fell back to placeholders
 }
\ No newline at end of file
@@ -1,11 +1,13 @@
 package com.tinysteps.reportservice.model;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime; // Changed back from ZonedDateTime
+import java.time.LocalTime;
 import java.util.List;
 
 /**
@@ -72,14 +74,52 @@ public class ScheduleServiceResponse {
         private String sessionTypeId;
         private String sessionOfferingId;
         private String practiceId;
-        private String appointmentDate;
-        private String startTime;
-        private String endTime;
+        // Dates and times as ScheduleTemporals encodings, read by SchedulePageDecoder straight from the
+        // parser's buffer; the java.time accessors below bind them everywhere else
+        @JsonIgnore
+        private int appointmentEpochDay = ScheduleTemporals.NO_DAY;
+        @JsonIgnore
+        private short startMinute = ScheduleTemporals.NO_MINUTE;
+        @JsonIgnore
+        private short endMinute = ScheduleTemporals.NO_MINUTE;
         private String status;
         private String consultationType;
         private String notes;
         private String cancellationReason;
-        private String checkedInAt; // Changed to String to avoid LocalDateTime parsing issues
+        @JsonIgnore
+        private long checkedInAtMicros = ScheduleTemporals.NO_MICROS;
         private Integer sessionDurationMinutes;
+
+        public LocalDate getAppointmentDate() {
+            return ScheduleTemporals.date(appointmentEpochDay);
+        }
+
+        public void setAppointmentDate(LocalDate appointmentDate) {
+            appointmentEpochDay = ScheduleTemporals.epochDay(appointmentDate);
+        }
+
+        public LocalTime getStartTime() {
+            return ScheduleTemporals.time(startMinute);
+        }
+
+        public void setStartTime(LocalTime startTime) {
+            startMinute = ScheduleTemporals.minuteOfDay(startTime);
+        }
+
+        public LocalTime getEndTime() {
+            return ScheduleTemporals.time(endMinute);
+        }
+
+        public void setEndTime(LocalTime endTime) {
+            endMinute = ScheduleTemporals.minuteOfDay(endTime);
+        }
+
+        public LocalDateTime getCheckedInAt() {
+            return ScheduleTemporals.dateTime(checkedInAtMicros);
+        }
+
+        public void setCheckedInAt(LocalDateTime checkedInAt) {
+            checkedInAtMicros = ScheduleTemporals.micros(checkedInAt);
+        }
     }
 }
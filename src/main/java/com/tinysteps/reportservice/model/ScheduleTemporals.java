@@ -0,0 +1,227 @@
+package com.tinysteps.reportservice.model;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Primitive encodings of the schedule service's ISO-8601 dates and times, parsed straight from a JSON
+ * parser's character buffer, and the {@code java.time} values they turn back into. Dates are epoch days,
+ * appointment start and end times are minutes of the day (seconds are dropped; appointments are booked
+ * in whole minutes), and check-in times are microseconds since 1970-01-01T00:00, all in local time.
+ * Dates of this century and times of the day are handed out from caches, so decoding a row allocates
+ * no intermediate objects.
+ */
+public final class ScheduleTemporals {
+
+    public static final int NO_DAY = Integer.MIN_VALUE;
+    public static final short NO_MINUTE = -1;
+    public static final long NO_MICROS = Long.MIN_VALUE;
+
+    private static final int DAYS_0000_TO_1970 = 719_528;
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+    private static final long MICROS_PER_DAY = 86_400L * MICROS_PER_SECOND;
+    private static final int FIRST_CACHED_DAY = (int) LocalDate.of(2000, 1, 1).toEpochDay();
+    private static final int END_CACHED_DAY = (int) LocalDate.of(2100, 1, 1).toEpochDay();
+
+    // Filled lazily; racing writers store equal immutable values
+    private static final LocalDate[] DATES = new LocalDate[END_CACHED_DAY - FIRST_CACHED_DAY];
+    private static final LocalTime[] SECONDS_OF_DAY = new LocalTime[86_400];
+    private static final LocalTime[] MINUTES_OF_DAY = new LocalTime[1_440];
+
+    static {
+        for (int minute = 0; minute < MINUTES_OF_DAY.length; minute++) {
+            MINUTES_OF_DAY[minute] = LocalTime.of(minute / 60, minute % 60);
+        }
+    }
+
+    private ScheduleTemporals() {
+    }
+
+    /**
+     * Parses {@code yyyy-MM-dd} into its epoch day
+     *
+     * @throws DateTimeException when the text is not such a date
+     */
+    public static int parseEpochDay(char[] text, int offset, int length) {
+        if (length != 10 || !isDate(text, offset)) {
+            throw invalid("date", text, offset, length);
+        }
+        return epochDay(text, offset, length);
+    }
+
+    /**
+     * Parses {@code HH:mm[:ss[.fffffffff]]} into its minute of the day
+     *
+     * @throws DateTimeException when the text is not such a time
+     */
+    public static short parseMinuteOfDay(char[] text, int offset, int length) {
+        long micros = microsOfDay(text, offset, length);
+        if (micros < 0) {
+            throw invalid("time", text, offset, length);
+        }
+        return (short) (micros / (60 * MICROS_PER_SECOND));
+    }
+
+    /**
+     * Parses {@code yyyy-MM-ddTHH:mm[:ss[.fffffffff]]} into microseconds since 1970-01-01T00:00; digits
+     * past the microsecond are dropped
+     *
+     * @throws DateTimeException when the text is not such a date-time
+     */
+    public static long parseMicros(char[] text, int offset, int length) {
+        long micros = length > 11 && isDate(text, offset) && text[offset + 10] == 'T'
+                ? microsOfDay(text, offset + 11, length - 11) : -1;
+        if (micros < 0) {
+            throw invalid("date-time", text, offset, length);
+        }
+        return epochDay(text, offset, length) * MICROS_PER_DAY + micros;
+    }
+
+    public static LocalDate date(int epochDay) {
+        if (epochDay == NO_DAY) {
+            return null;
+        }
+        if (epochDay < FIRST_CACHED_DAY || epochDay >= END_CACHED_DAY) {
+            return LocalDate.ofEpochDay(epochDay);
+        }
+        LocalDate date = DATES[epochDay - FIRST_CACHED_DAY];
+        if (date == null) {
+            date = LocalDate.ofEpochDay(epochDay);
+            DATES[epochDay - FIRST_CACHED_DAY] = date;
+        }
+        return date;
+    }
+
+    public static LocalTime time(short minuteOfDay) {
+        return minuteOfDay == NO_MINUTE ? null : MINUTES_OF_DAY[minuteOfDay];
+    }
+
+    public static LocalDateTime dateTime(long micros) {
+        if (micros == NO_MICROS) {
+            return null;
+        }
+        long microsOfDay = Math.floorMod(micros, MICROS_PER_DAY);
+        LocalDate date = date((int) Math.floorDiv(micros, MICROS_PER_DAY));
+        if (microsOfDay % MICROS_PER_SECOND != 0) {
+            return LocalDateTime.of(date, LocalTime.ofNanoOfDay(microsOfDay * 1_000));
+        }
+        int second = (int) (microsOfDay / MICROS_PER_SECOND);
+        LocalTime time = SECONDS_OF_DAY[second];
+        if (time == null) {
+            time = LocalTime.ofSecondOfDay(second);
+            SECONDS_OF_DAY[second] = time;
+        }
+        return LocalDateTime.of(date, time);
+    }
+
+    public static int epochDay(LocalDate date) {
+        return date != null ? (int) date.toEpochDay() : NO_DAY;
+    }
+
+    public static short minuteOfDay(LocalTime time) {
+        return time != null ? (short) (time.getHour() * 60 + time.getMinute()) : NO_MINUTE;
+    }
+
+    public static long micros(LocalDateTime dateTime) {
+        return dateTime != null
+                ? dateTime.toLocalDate().toEpochDay() * MICROS_PER_DAY + dateTime.toLocalTime().toNanoOfDay() / 1_000
+                : NO_MICROS;
+    }
+
+    // Checks the yyyy-MM-dd at offset, including the day of the month
+    private static boolean isDate(char[] text, int offset) {
+        if (text[offset + 4] != '-' || text[offset + 7] != '-') {
+            return false;
+        }
+        int year = digits(text, offset, 4);
+        int month = digits(text, offset + 5, 2);
+        int day = digits(text, offset + 8, 2);
+        return year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month);
+    }
+
+    // Same arithmetic as LocalDate.toEpochDay, for a date isDate accepted
+    private static int epochDay(char[] text, int offset, int length) {
+        int year = digits(text, offset, 4);
+        int month = digits(text, offset + 5, 2);
+        int day = digits(text, offset + 8, 2);
+        int total = 365 * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400
+                + (367 * month - 362) / 12 + day - 1;
+        if (month > 2) {
+            total -= isLeap(year) ? 1 : 2;
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    // Microseconds of the day of HH:mm[:ss[.fffffffff]], or -1 when the text is not such a time
+    private static long microsOfDay(char[] text, int offset, int length) {
+        if (length < 5 || text[offset + 2] != ':') {
+            return -1;
+        }
+        int hour = digits(text, offset, 2);
+        int minute = digits(text, offset + 3, 2);
+        int second = 0;
+        long micros = 0;
+        if (length > 5) {
+            if (length < 8 || text[offset + 5] != ':') {
+                return -1;
+            }
+            second = digits(text, offset + 6, 2);
+            if (length > 8) {
+                if (text[offset + 8] != '.' || length == 9 || length > 18) {
+                    return -1;
+                }
+                for (int i = 9; i < 15; i++) {
+                    int digit = i < length ? digit(text[offset + i]) : 0;
+                    if (digit < 0) {
+                        return -1;
+                    }
+                    micros = micros * 10 + digit;
+                }
+                for (int i = 15; i < length; i++) {
+                    if (digit(text[offset + i]) < 0) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return -1;
+        }
+        return (hour * 3_600L + minute * 60L + second) * MICROS_PER_SECOND + micros;
+    }
+
+    // The value of count decimal digits, or -1 when one of them is not a digit
+    private static int digits(char[] text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = digit(text[i]);
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+
+    private static boolean isLeap(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> isLeap(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static DateTimeException invalid(String kind, char[] text, int offset, int length) {
+        return new DateTimeException("Invalid " + kind + ": " + new String(text, offset, length));
+    }
+}
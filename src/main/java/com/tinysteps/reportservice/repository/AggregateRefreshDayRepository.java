@@ -0,0 +1,17 @@
+package com.tinysteps.reportservice.repository;
+
+import com.tinysteps.reportservice.entity.AggregateRefreshDay;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AggregateRefreshDayRepository extends JpaRepository<AggregateRefreshDay, LocalDate> {
+
+    List<AggregateRefreshDay> findAllByOrderByAppointmentDateAsc(Pageable pageable);
+
+    long countByAppointmentDateBetween(LocalDate startDate, LocalDate endDate);
+}
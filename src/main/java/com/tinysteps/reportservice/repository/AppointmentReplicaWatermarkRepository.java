@@ -0,0 +1,9 @@
+package com.tinysteps.reportservice.repository;
+
+import com.tinysteps.reportservice.entity.AppointmentReplicaWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AppointmentReplicaWatermarkRepository extends JpaRepository<AppointmentReplicaWatermark, String> {
+}
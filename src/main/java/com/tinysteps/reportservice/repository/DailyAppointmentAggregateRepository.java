@@ -0,0 +1,27 @@
+package com.tinysteps.reportservice.repository;
+
+import com.tinysteps.reportservice.entity.DailyAppointmentAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyAppointmentAggregateRepository extends JpaRepository<DailyAppointmentAggregate, Long>,
+        JpaSpecificationExecutor<DailyAppointmentAggregate> {
+
+    List<DailyAppointmentAggregate> findByAppointmentDate(LocalDate appointmentDate);
+
+    // Serializes writers of one day across instances until the transaction ends
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:lockId, :epochDay)) AS day_lock", nativeQuery = true)
+    Integer lockDay(@Param("lockId") int lockId, @Param("epochDay") int epochDay);
+
+    @Modifying
+    @Query("delete from DailyAppointmentAggregate a where a.appointmentDate = :appointmentDate")
+    void deleteByAppointmentDate(@Param("appointmentDate") LocalDate appointmentDate);
+}
@@ -0,0 +1,35 @@
+package com.tinysteps.reportservice.repository;
+
+import com.tinysteps.reportservice.entity.ReplicatedAppointment;
+import com.tinysteps.reportservice.service.aggregate.AppointmentGroupCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ReplicatedAppointmentRepository extends JpaRepository<ReplicatedAppointment, String>,
+        JpaSpecificationExecutor<ReplicatedAppointment> {
+
+    @Query("select new com.tinysteps.reportservice.service.aggregate.AppointmentGroupCount("
+            + "r.appointmentDate, r.branchId, r.doctorId, r.status, r.consultationType, count(r), sum(r.sessionOfferingPrice)) "
+            + "from ReplicatedAppointment r where r.deleted = false and r.appointmentDate = :appointmentDate "
+            + "group by r.appointmentDate, r.branchId, r.doctorId, r.status, r.consultationType")
+    List<AppointmentGroupCount> countByAggregateKey(@Param("appointmentDate") LocalDate appointmentDate);
+
+    @Query("select distinct r.sessionOfferingId from ReplicatedAppointment r where r.deleted = false"
+            + " and r.appointmentDate = :appointmentDate and r.sessionOfferingId is not null and r.sessionOfferingPrice is null")
+    List<String> findUnpricedOfferingIds(@Param("appointmentDate") LocalDate appointmentDate);
+
+    @Modifying
+    @Query("update ReplicatedAppointment r set r.sessionOfferingPrice = :price where r.appointmentDate = :appointmentDate"
+            + " and r.sessionOfferingId = :sessionOfferingId and r.sessionOfferingPrice is null")
+    int snapshotPrice(@Param("appointmentDate") LocalDate appointmentDate,
+                      @Param("sessionOfferingId") String sessionOfferingId, @Param("price") BigDecimal price);
+}
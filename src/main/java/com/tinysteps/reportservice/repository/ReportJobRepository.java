@@ -0,0 +1,70 @@
+package com.tinysteps.reportservice.repository;
+
+import com.tinysteps.reportservice.entity.ReportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ReportJobRepository extends JpaRepository<ReportJob, Long> {
+
+    /**
+     * Locks the lane's queued jobs with the earliest virtual finish and jobs whose lease expired, skipping rows
+     * other workers hold. Must run inside the transaction that claims them.
+     */
+    @Query(value = "SELECT * FROM report_jobs WHERE lane = :lane"
+            + " AND (status = 'QUEUED' OR (status = 'RUNNING' AND lease_expires_at < :now))"
+            + " ORDER BY virtual_finish, created_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<ReportJob> lockClaimable(@Param("lane") String lane, @Param("now") Instant now, @Param("limit") int limit);
+
+    // Serializes enqueues into one lane across instances until the transaction ends
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:lockId, :lane)) AS lane_lock", nativeQuery = true)
+    Integer lockLane(@Param("lockId") int lockId, @Param("lane") int lane);
+
+    /**
+     * The lane's virtual time: the latest start among running jobs, else the earliest among queued ones,
+     * else 0 for an idle lane
+     */
+    @Query(value = "SELECT COALESCE("
+            + "(SELECT MAX(virtual_start) FROM report_jobs WHERE lane = :lane AND status = 'RUNNING'),"
+            + " (SELECT MIN(virtual_start) FROM report_jobs WHERE lane = :lane AND status = 'QUEUED'), 0)",
+            nativeQuery = true)
+    double virtualTime(@Param("lane") String lane);
+
+    @Query("select max(j.virtualFinish) from ReportJob j where j.lane = :lane and j.submittedBy = :submittedBy")
+    Double lastVirtualFinish(@Param("lane") String lane, @Param("submittedBy") String submittedBy);
+
+    long countByStatus(String status);
+
+    long countByStatusAndLane(String status, String lane);
+
+    @Transactional
+    @Modifying
+    @Query("update ReportJob j set j.leaseExpiresAt = :leaseExpiresAt, j.heartbeatAt = :now"
+            + " where j.id = :id and j.leaseOwner = :owner and j.status = 'RUNNING'")
+    int renewLease(@Param("id") Long id, @Param("owner") String owner, @Param("now") Instant now,
+                   @Param("leaseExpiresAt") Instant leaseExpiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("update ReportJob j set j.status = 'QUEUED', j.leaseOwner = null, j.leaseExpiresAt = null,"
+            + " j.attempts = j.attempts - 1 where j.id = :id and j.leaseOwner = :owner")
+    int release(@Param("id") Long id, @Param("owner") String owner);
+
+    @Transactional
+    @Modifying
+    @Query("update ReportJob j set j.leaseExpiresAt = :leaseExpiresAt, j.attempts = j.attempts - 1"
+            + " where j.id = :id and j.leaseOwner = :owner")
+    int postpone(@Param("id") Long id, @Param("owner") String owner, @Param("leaseExpiresAt") Instant leaseExpiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ReportJob j where j.id = :id and j.leaseOwner = :owner")
+    int deleteClaimed(@Param("id") Long id, @Param("owner") String owner);
+}
@@ -4,8 +4,13 @@ import com.tinysteps.reportservice.entity.Report;
 import com.tinysteps.reportservice.model.ReportType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -18,4 +23,20 @@ public interface ReportRepository extends JpaRepository<Report, Long>, JpaSpecif
     List<Report> findByReportType(ReportType reportType);
 
     List<Report> findByUserIdAndReportType(String userId, ReportType reportType);
+
+    /**
+     * Moves the report to PROCESSING under the owner's lease, unless it completed or another owner's lease is live
+     */
+    @Transactional
+    @Modifying
+    @Query("update Report r set r.status = 'PROCESSING', r.leaseOwner = :owner, r.leaseExpiresAt = :leaseExpiresAt"
+            + " where r.id = :id and r.status <> 'COMPLETED' and (r.status <> 'PROCESSING' or r.leaseOwner is null"
+            + " or r.leaseOwner = :owner or r.leaseExpiresAt < :now)")
+    int startProcessing(@Param("id") Long id, @Param("owner") String owner, @Param("now") Instant now,
+                        @Param("leaseExpiresAt") Instant leaseExpiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("update Report r set r.leaseExpiresAt = :leaseExpiresAt where r.id = :id and r.leaseOwner = :owner")
+    int renewLease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseExpiresAt") Instant leaseExpiresAt);
 }
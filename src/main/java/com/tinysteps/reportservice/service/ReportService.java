@@ -4,6 +4,7 @@ import com.tinysteps.reportservice.model.ReportRequestDto;
 import com.tinysteps.reportservice.model.ReportResponseDto;
 import com.tinysteps.reportservice.model.ReportType;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -14,8 +15,32 @@ public interface ReportService {
      * 
      * @param reportRequest the report generation request
      * @return the generated report response with download information
+     * @throws com.tinysteps.reportservice.service.admission.AdmissionRejectedException when no generation slot
+     *         is available in time
      */
     ReportResponseDto generateReport(ReportRequestDto reportRequest);
+
+    /**
+     * Queues a report for asynchronous generation
+     *
+     * @param reportRequest the report generation request
+     * @return the PENDING report, or an identical report that is completed or already in progress
+     * @throws java.util.concurrent.RejectedExecutionException when the job queue is full
+     * @throws com.tinysteps.reportservice.service.admission.AdmissionRejectedException when the user or branch
+     *         already has too many reports in progress
+     */
+    ReportResponseDto submitReport(ReportRequestDto reportRequest);
+
+    /**
+     * Generates a queued report on the calling worker thread, marking it PROCESSING and then
+     * COMPLETED or FAILED. Reports that already completed are left as they are.
+     *
+     * @param reportId the ID of the PENDING report
+     * @param reportRequest the request it was submitted with
+     * @param timeout longest the generation may take, or null for no limit
+     * @return false when another worker is still generating the report under a live lease
+     */
+    boolean runReport(Long reportId, ReportRequestDto reportRequest, Duration timeout);
     
     /**
      * Retrieves a report by its ID
@@ -0,0 +1,19 @@
+package com.tinysteps.reportservice.service.admission;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * A report request turned away because its user, its branch or the service has too much work queued
+ */
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public AdmissionRejectedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,239 @@
+package com.tinysteps.reportservice.service.admission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Admission control for reports generated within the request. At most {@code max-concurrent} reports
+ * run at once, no more than {@code per-user} for one user and {@code per-branch} for one branch.
+ * Requests beyond that wait in a weighted fair queue: each gets a virtual finish time of
+ * {@code max(virtual time, user's last finish) + cost / weight}, with the cost growing with the date
+ * range, and the eligible waiter with the earliest finish goes next. A user queuing many long reports
+ * therefore only delays their own requests. Requests are rejected at once when the queue, or the
+ * user's share of it, is full, and when they waited longer than {@code max-wait}.
+ */
+@Slf4j
+@Component
+public class ReportAdmissionController {
+
+    private static final String ANONYMOUS = "anonymous";
+
+    private final MeterRegistry meterRegistry;
+    private final Timer waitTimer;
+    private final Map<String, Integer> activeByUser = new HashMap<>();
+    private final Map<String, Integer> activeByBranch = new HashMap<>();
+    private final Map<String, Double> lastFinishByUser = new HashMap<>();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private int active;
+    private double virtualTime;
+
+    @Value("${report.admission.max-concurrent:3}")
+    private int maxConcurrent;
+
+    @Value("${report.admission.per-user:1}")
+    private int perUser;
+
+    @Value("${report.admission.per-branch:2}")
+    private int perBranch;
+
+    @Value("${report.admission.max-queued:20}")
+    private int maxQueued;
+
+    @Value("${report.admission.max-queued-per-user:3}")
+    private int maxQueuedPerUser;
+
+    @Value("${report.admission.max-wait:PT2M}")
+    private Duration maxWait;
+
+    @Value("${report.admission.retry-after:PT30S}")
+    private Duration retryAfter;
+
+    @Value("#{${report.admission.user-weights:{:}}}")
+    private Map<String, Double> userWeights;
+
+    public ReportAdmissionController(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.waitTimer = Timer.builder("report.admission.wait")
+                .description("Time report requests waited for admission")
+                .register(meterRegistry);
+        Gauge.builder("report.admission.queued", this, controller -> controller.queuedCount())
+                .description("Report requests waiting for admission")
+                .register(meterRegistry);
+        Gauge.builder("report.admission.active", this, controller -> controller.activeCount())
+                .description("Admitted report requests being generated")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits for a slot to generate a report. The permit must be closed once the report is done.
+     *
+     * @param userId authenticated caller the per-user limits count against, or null when anonymous
+     * @param cost relative size of the report, e.g. the days it covers
+     * @throws AdmissionRejectedException when the request cannot be queued or waited too long
+     */
+    public Permit admit(String userId, String branchId, double cost) {
+        String user = userId != null ? userId : ANONYMOUS;
+        String branch = branchId != null ? branchId : "all";
+        Waiter waiter;
+        synchronized (this) {
+            if (waiters.size() >= maxQueued) {
+                throw reject("queue-full", "Too many reports are queued, try again later");
+            }
+            if (waiters.stream().filter(w -> w.userId().equals(user)).count() >= maxQueuedPerUser) {
+                throw reject("user-queue-full", "Too many of your reports are queued, try again later");
+            }
+            double start = Math.max(virtualTime, lastFinishByUser.getOrDefault(user, 0.0));
+            double finish = start + Math.max(cost, 1) / userWeights.getOrDefault(user, 1.0);
+            lastFinishByUser.put(user, finish);
+            waiter = new Waiter(user, branch, cost, start, finish, System.nanoTime(), new CompletableFuture<>());
+            waiters.add(waiter);
+            dispatch();
+        }
+
+        try {
+            Permit permit = waiter.granted().get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+            waitTimer.record(System.nanoTime() - waiter.queuedAt(), TimeUnit.NANOSECONDS);
+            return permit;
+        } catch (TimeoutException e) {
+            synchronized (this) {
+                if (waiters.remove(waiter)) {
+                    throw reject("timeout", "Timed out waiting for a free report slot, try again later");
+                }
+            }
+            // Admitted just as the wait ran out
+            return waiter.granted().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            synchronized (this) {
+                if (!waiters.remove(waiter)) {
+                    waiter.granted().join().close();
+                }
+            }
+            throw new RuntimeException("Interrupted while waiting for admission", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Admission failed", e.getCause());
+        }
+    }
+
+    /**
+     * Current queue and slot usage, for the actuator endpoint
+     */
+    public synchronized Map<String, Object> state() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("active", active);
+        state.put("maxConcurrent", maxConcurrent);
+        state.put("activeByUser", new HashMap<>(activeByUser));
+        state.put("activeByBranch", new HashMap<>(activeByBranch));
+        state.put("virtualTime", virtualTime);
+        long now = System.nanoTime();
+        List<Map<String, Object>> queued = waiters.stream()
+                .sorted((a, b) -> Double.compare(a.finish(), b.finish()))
+                .map(w -> {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("userId", w.userId());
+                    entry.put("branchId", w.branchId());
+                    entry.put("cost", w.cost());
+                    entry.put("virtualFinish", w.finish());
+                    entry.put("waitedMs", TimeUnit.NANOSECONDS.toMillis(now - w.queuedAt()));
+                    return entry;
+                })
+                .toList();
+        state.put("queued", queued);
+        return state;
+    }
+
+    private synchronized int queuedCount() {
+        return waiters.size();
+    }
+
+    private synchronized int activeCount() {
+        return active;
+    }
+
+    // Admits the eligible waiters with the earliest virtual finish while slots are free; holds the lock
+    private void dispatch() {
+        while (active < maxConcurrent) {
+            Waiter next = null;
+            for (Waiter waiter : waiters) {
+                if (activeByUser.getOrDefault(waiter.userId(), 0) < perUser
+                        && activeByBranch.getOrDefault(waiter.branchId(), 0) < perBranch
+                        && (next == null || waiter.finish() < next.finish())) {
+                    next = waiter;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            waiters.remove(next);
+            active++;
+            activeByUser.merge(next.userId(), 1, Integer::sum);
+            activeByBranch.merge(next.branchId(), 1, Integer::sum);
+            virtualTime = Math.max(virtualTime, next.start());
+            next.granted().complete(new Permit(next.userId(), next.branchId()));
+        }
+    }
+
+    private synchronized void release(Permit permit) {
+        active--;
+        activeByUser.computeIfPresent(permit.userId, (user, count) -> count > 1 ? count - 1 : null);
+        activeByBranch.computeIfPresent(permit.branchId, (branch, count) -> count > 1 ? count - 1 : null);
+        // Users whose last finish the virtual time has passed have no backlog left to remember
+        lastFinishByUser.values().removeIf(finish -> finish <= virtualTime);
+        if (active == 0 && waiters.isEmpty()) {
+            virtualTime = 0;
+            lastFinishByUser.clear();
+        }
+        dispatch();
+    }
+
+    private AdmissionRejectedException reject(String reason, String message) {
+        meterRegistry.counter("report.admission.rejected", "reason", reason).increment();
+        log.info("Rejected report request: {}", reason);
+        return new AdmissionRejectedException(message, retryAfter);
+    }
+
+    private record Waiter(String userId, String branchId, double cost, double start, double finish,
+                          long queuedAt, CompletableFuture<Permit> granted) {
+    }
+
+    /**
+     * A held report slot; closing it admits the next waiter
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final String userId;
+        private final String branchId;
+        private boolean closed;
+
+        private Permit(String userId, String branchId) {
+            this.userId = userId;
+            this.branchId = branchId;
+        }
+
+        @Override
+        public void close() {
+            synchronized (ReportAdmissionController.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            release(this);
+        }
+    }
+}
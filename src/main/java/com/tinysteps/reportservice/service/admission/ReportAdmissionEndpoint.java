@@ -0,0 +1,24 @@
+package com.tinysteps.reportservice.service.admission;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes the admission queue at {@code /actuator/reportadmission}
+ */
+@Component
+@Endpoint(id = "reportadmission")
+@RequiredArgsConstructor
+public class ReportAdmissionEndpoint {
+
+    private final ReportAdmissionController admissionController;
+
+    @ReadOperation
+    public Map<String, Object> state() {
+        return admissionController.state();
+    }
+}
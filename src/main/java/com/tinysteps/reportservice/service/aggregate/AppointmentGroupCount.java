@@ -0,0 +1,12 @@
+package com.tinysteps.reportservice.service.aggregate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Number of replicated appointments sharing an aggregate key and the sum of their snapshotted prices,
+ * null when none has a price
+ */
+public record AppointmentGroupCount(LocalDate appointmentDate, String branchId, String doctorId, String status,
+                                    String consultationType, long appointmentCount, BigDecimal revenue) {
+}
@@ -0,0 +1,332 @@
+package com.tinysteps.reportservice.service.aggregate;
+
+import com.tinysteps.reportservice.cache.ReferenceDataLookup;
+import com.tinysteps.reportservice.entity.AggregateRefreshDay;
+import com.tinysteps.reportservice.entity.DailyAppointmentAggregate;
+import com.tinysteps.reportservice.model.AppointmentStatsDto;
+import com.tinysteps.reportservice.model.SessionOfferingDto;
+import com.tinysteps.reportservice.repository.AggregateRefreshDayRepository;
+import com.tinysteps.reportservice.repository.DailyAppointmentAggregateRepository;
+import com.tinysteps.reportservice.repository.ReplicatedAppointmentRepository;
+import com.tinysteps.reportservice.specification.DailyAppointmentAggregateSpecification;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Daily appointment aggregates keyed by (day, branch, doctor, status, consultation type), materialized
+ * from the appointment replica so summaries read a few rows per day instead of every appointment.
+ * Replica changes mark their days; a frequent incremental job recomputes only those days. A nightly
+ * consistency check recomputes recent days in full and compares them with the stored rows.
+ * Every instance runs both jobs; a day is rewritten under a Postgres advisory lock, and a day another
+ * instance already refreshed is skipped.
+ * Revenue sums the price each appointment had when its day was first aggregated, snapshotted on the
+ * replicated appointment, so later price changes do not rewrite past revenue.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DailyAppointmentAggregates {
+
+    private static final Set<String> GROUP_BY = Set.of("day", "branch", "doctor", "status", "consultationType");
+    // First key of the advisory locks on aggregate days; the second is the epoch day
+    private static final int DAY_LOCK_ID = 0x61676764;
+
+    private final DailyAppointmentAggregateRepository aggregateRepository;
+    private final AggregateRefreshDayRepository refreshDayRepository;
+    private final ReplicatedAppointmentRepository appointmentRepository;
+    private final ReferenceDataLookup referenceDataLookup;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean checkRunning = new AtomicBoolean();
+    private final ExecutorService checkExecutor =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("aggregate-check-"));
+
+    @Value("${report.replica.enabled:false}")
+    private boolean enabled;
+
+    @Value("${report.aggregates.refresh-batch-days:50}")
+    private int refreshBatchDays;
+
+    @Value("${report.aggregates.check.days:35}")
+    private int checkDays;
+
+    @Value("${report.aggregates.check.repair:true}")
+    private boolean repairOnMismatch;
+
+    @Value("${report.aggregates.price-lookup-timeout:30s}")
+    private Duration priceLookupTimeout;
+
+    /**
+     * Marks a day for recomputation; joins the caller's transaction
+     */
+    public void markChanged(LocalDate appointmentDate) {
+        if (appointmentDate != null) {
+            refreshDayRepository.save(new AggregateRefreshDay(appointmentDate, Instant.now()));
+        }
+    }
+
+    /**
+     * Marks every day of an inclusive range for recomputation
+     */
+    public void markChanged(LocalDate startDate, LocalDate endDate) {
+        Instant now = Instant.now();
+        List<AggregateRefreshDay> days = startDate.datesUntil(endDate.plusDays(1))
+                .map(day -> new AggregateRefreshDay(day, now))
+                .toList();
+        refreshDayRepository.saveAll(days);
+    }
+
+    /**
+     * Recomputes the aggregates of days changed since their last refresh, oldest first
+     */
+    @Scheduled(fixedDelayString = "${report.aggregates.refresh-interval:PT5M}",
+            initialDelayString = "${report.aggregates.refresh-interval:PT5M}")
+    public void refreshChangedDays() {
+        if (!enabled) {
+            return;
+        }
+        List<AggregateRefreshDay> days;
+        int refreshed = 0;
+        do {
+            days = refreshDayRepository.findAllByOrderByAppointmentDateAsc(PageRequest.of(0, refreshBatchDays));
+            for (AggregateRefreshDay day : days) {
+                refresh(day);
+                refreshed++;
+            }
+        } while (days.size() == refreshBatchDays);
+        if (refreshed > 0) {
+            log.info("Refreshed daily appointment aggregates for {} day(s)", refreshed);
+        }
+    }
+
+    private void refresh(AggregateRefreshDay day) {
+        snapshotPrices(day.getAppointmentDate());
+        Boolean refreshed = transactionTemplate.execute(status -> {
+            aggregateRepository.lockDay(DAY_LOCK_ID, (int) day.getAppointmentDate().toEpochDay());
+            Optional<AggregateRefreshDay> mark = refreshDayRepository.findById(day.getAppointmentDate());
+            if (mark.isEmpty()) {
+                // Another instance refreshed it while this one waited for the lock
+                return false;
+            }
+            aggregateRepository.deleteByAppointmentDate(day.getAppointmentDate());
+            aggregateRepository.saveAll(recompute(day.getAppointmentDate()));
+            // A change that marked the day again while it was recomputed keeps it queued
+            if (!mark.get().getMarkedAt().isAfter(day.getMarkedAt())) {
+                refreshDayRepository.delete(mark.get());
+            }
+            return true;
+        });
+        if (Boolean.TRUE.equals(refreshed)) {
+            meterRegistry.counter("report.aggregates.refreshed.days").increment();
+        }
+    }
+
+    /**
+     * Starts the consistency check in the background
+     *
+     * @return false when a check is already running in this instance
+     */
+    public boolean startConsistencyCheck() {
+        if (!checkRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        checkExecutor.execute(() -> {
+            try {
+                compareRecentDays();
+            } catch (RuntimeException e) {
+                log.error("Daily appointment aggregate consistency check failed", e);
+            } finally {
+                checkRunning.set(false);
+            }
+        });
+        return true;
+    }
+
+    @Scheduled(cron = "${report.aggregates.check.cron:0 30 2 * * *}")
+    public void checkConsistency() {
+        if (!checkRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            compareRecentDays();
+        } finally {
+            checkRunning.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkExecutor.shutdownNow();
+    }
+
+    /**
+     * Recomputes recent days in full and compares them with the stored aggregates.
+     * Mismatching days are logged and, when repair is enabled, queued for refresh.
+     *
+     * @return the days whose stored aggregates differed
+     */
+    private List<LocalDate> compareRecentDays() {
+        if (!enabled) {
+            return Collections.emptyList();
+        }
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(checkDays - 1L);
+        List<LocalDate> mismatched = new ArrayList<>();
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            snapshotPrices(day);
+            Map<AggregateKey, DailyAppointmentAggregate> expected = byKey(recompute(day));
+            Map<AggregateKey, DailyAppointmentAggregate> stored = byKey(aggregateRepository.findByAppointmentDate(day));
+            if (!sameAggregates(expected, stored)) {
+                mismatched.add(day);
+            }
+        }
+        meterRegistry.counter("report.aggregates.mismatches").increment(mismatched.size());
+        if (mismatched.isEmpty()) {
+            log.info("Daily appointment aggregates consistent for {} to {}", startDate, endDate);
+            return mismatched;
+        }
+        log.warn("Daily appointment aggregates differ from a full recompute on {} day(s): {}", mismatched.size(), mismatched);
+        if (repairOnMismatch) {
+            transactionTemplate.executeWithoutResult(status -> mismatched.forEach(this::markChanged));
+        }
+        return mismatched;
+    }
+
+    /**
+     * Sums the aggregates of a range by one dimension. The result is marked incomplete when the replica
+     * does not cover the range or some of its days still await a refresh.
+     */
+    public AppointmentStatsDto stats(LocalDate startDate, LocalDate endDate, String branchId, String doctorId,
+                                     String groupBy, boolean replicaCovers) {
+        if (!GROUP_BY.contains(groupBy)) {
+            throw new IllegalArgumentException("Unsupported groupBy: " + groupBy + ", expected one of " + GROUP_BY);
+        }
+        List<DailyAppointmentAggregate> rows = aggregateRepository.findAll(
+                DailyAppointmentAggregateSpecification.forStats(startDate, endDate, branchId, doctorId));
+        Function<DailyAppointmentAggregate, String> key = switch (groupBy) {
+            case "day" -> row -> row.getAppointmentDate().toString();
+            case "branch" -> DailyAppointmentAggregate::getBranchId;
+            case "doctor" -> DailyAppointmentAggregate::getDoctorId;
+            case "status" -> DailyAppointmentAggregate::getStatus;
+            default -> DailyAppointmentAggregate::getConsultationType;
+        };
+
+        Map<String, AppointmentStatsDto.Group> groups = new TreeMap<>();
+        long totalAppointments = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        for (DailyAppointmentAggregate row : rows) {
+            String groupKey = Objects.toString(key.apply(row), "UNKNOWN");
+            AppointmentStatsDto.Group group = groups.computeIfAbsent(groupKey,
+                    k -> new AppointmentStatsDto.Group(k, 0, BigDecimal.ZERO));
+            group.setAppointmentCount(group.getAppointmentCount() + row.getAppointmentCount());
+            group.setRevenue(group.getRevenue().add(row.getRevenue()));
+            totalAppointments += row.getAppointmentCount();
+            totalRevenue = totalRevenue.add(row.getRevenue());
+        }
+
+        boolean complete = replicaCovers && refreshDayRepository.countByAppointmentDateBetween(startDate, endDate) == 0;
+        return AppointmentStatsDto.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .branchId(branchId)
+                .doctorId(doctorId)
+                .groupBy(groupBy)
+                .complete(complete)
+                .totalAppointments(totalAppointments)
+                .totalRevenue(totalRevenue)
+                .groups(new ArrayList<>(groups.values()))
+                .build();
+    }
+
+    private List<DailyAppointmentAggregate> recompute(LocalDate appointmentDate) {
+        return appointmentRepository.countByAggregateKey(appointmentDate).stream()
+                .map(count -> DailyAppointmentAggregate.builder()
+                        .appointmentDate(count.appointmentDate())
+                        .branchId(count.branchId())
+                        .doctorId(count.doctorId())
+                        .status(count.status())
+                        .consultationType(count.consultationType())
+                        .appointmentCount(count.appointmentCount())
+                        .revenue(count.revenue() != null ? count.revenue() : BigDecimal.ZERO)
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Gives the day's appointments that have none yet the current price of their session offering.
+     * Offerings whose price cannot be loaded are retried the next time the day is aggregated.
+     */
+    private void snapshotPrices(LocalDate appointmentDate) {
+        List<String> offeringIds = appointmentRepository.findUnpricedOfferingIds(appointmentDate);
+        if (offeringIds.isEmpty()) {
+            return;
+        }
+        Map<String, SessionOfferingDto> offerings;
+        try {
+            offerings = referenceDataLookup.getSessionOfferingsByIds(offeringIds).block(priceLookupTimeout);
+        } catch (RuntimeException e) {
+            log.warn("Could not load {} session offering prices for {}: {}", offeringIds.size(), appointmentDate, e.getMessage());
+            return;
+        }
+        if (offerings == null || offerings.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> offerings.forEach((id, offering) -> {
+            if (offering.getPrice() != null) {
+                appointmentRepository.snapshotPrice(appointmentDate, id, offering.getPrice());
+            }
+        }));
+    }
+
+    private static Map<AggregateKey, DailyAppointmentAggregate> byKey(List<DailyAppointmentAggregate> aggregates) {
+        return aggregates.stream().collect(Collectors.toMap(
+                row -> new AggregateKey(row.getAppointmentDate(), row.getBranchId(), row.getDoctorId(),
+                        row.getStatus(), row.getConsultationType()),
+                Function.identity()));
+    }
+
+    private static boolean sameAggregates(Map<AggregateKey, DailyAppointmentAggregate> expected,
+                                          Map<AggregateKey, DailyAppointmentAggregate> stored) {
+        if (!expected.keySet().equals(stored.keySet())) {
+            return false;
+        }
+        for (Map.Entry<AggregateKey, DailyAppointmentAggregate> entry : expected.entrySet()) {
+            DailyAppointmentAggregate actual = stored.get(entry.getKey());
+            if (actual.getAppointmentCount() != entry.getValue().getAppointmentCount()
+                    || actual.getRevenue().compareTo(entry.getValue().getRevenue()) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record AggregateKey(LocalDate appointmentDate, String branchId, String doctorId, String status,
+                                String consultationType) {
+    }
+}
@@ -0,0 +1,192 @@
+package com.tinysteps.reportservice.service.enrichment;
+
+import com.tinysteps.reportservice.cache.ReferenceDataLookup;
+import com.tinysteps.reportservice.client.FetchCompleteness;
+import com.tinysteps.reportservice.model.AppointmentDto;
+import com.tinysteps.reportservice.model.DoctorDto;
+import com.tinysteps.reportservice.model.SessionOfferingDto;
+import com.tinysteps.reportservice.model.SessionTypeDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Enriches appointment rows with patient, doctor and session details.
+ * The ID columns are dictionary-encoded first so each distinct ID is resolved once
+ * through the reference data caches and bulk client APIs. The four columns are resolved
+ * concurrently as non-blocking lookups, so no thread waits on a downstream response;
+ * patient names go through the pipelined {@link PatientNameResolver}.
+ * Resolved values are joined back onto the rows in place, so the output keeps the
+ * order of the input list. A report enriched page by page shares one {@link ReportEnrichment}
+ * across its pages.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AppointmentEnricher {
+
+    private final PatientNameResolver patientNameResolver;
+    private final ReferenceDataLookup referenceDataLookup;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Starts the enrichment of a report whose pages are enriched one at a time
+     */
+    public ReportEnrichment forReport() {
+        return new ReportEnrichment(this, meterRegistry);
+    }
+
+    /**
+     * Enriches a report that fits in one list
+     */
+    public Mono<List<AppointmentDto>> enrich(List<AppointmentDto> appointments) {
+        ReportEnrichment enrichment = forReport();
+        return enrich(appointments, enrichment).doOnSuccess(enriched -> enrichment.recordDeduplication());
+    }
+
+    Mono<List<AppointmentDto>> enrich(List<AppointmentDto> appointments, ReportEnrichment enrichment) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+
+            // Dictionary-encode the ID columns so every distinct ID is resolved only once
+            IdDictionary patients = IdDictionary.encode(appointments, AppointmentDto::getPatientId);
+            IdDictionary doctors = IdDictionary.encode(appointments, AppointmentDto::getDoctorId);
+            IdDictionary sessionTypes = IdDictionary.encode(appointments, AppointmentDto::getSessionTypeId);
+            IdDictionary sessionOfferings = IdDictionary.encode(appointments, AppointmentDto::getSessionId);
+            enrichment.count("patient", patients);
+            enrichment.count("doctor", doctors);
+            enrichment.count("session-type", sessionTypes);
+            enrichment.count("session-offering", sessionOfferings);
+
+            // Resolve the distinct IDs of each column through the bulk client APIs, all columns at once
+            return Mono.zip(
+                    patientNameResolver.resolve(patients, enrichment.patientsById()),
+                    resolveDoctorNames(doctors),
+                    resolveSessionTypeNames(sessionTypes),
+                    resolveSessionOfferingPrices(sessionOfferings)
+            ).map(tables -> {
+                String[] patientNames = tables.getT1();
+                String[] doctorNames = tables.getT2();
+                String[] sessionTypeNames = tables.getT3();
+                String[] sessionOfferingPrices = tables.getT4();
+
+                // Join the resolved values back onto the rows through the int-indexed tables
+                for (int row = 0; row < appointments.size(); row++) {
+                    AppointmentDto appointment = appointments.get(row);
+                    int code = patients.codeForRow(row);
+                    if (code >= 0) {
+                        appointment.setPatientName(patientNames[code]);
+                    }
+                    code = doctors.codeForRow(row);
+                    if (code >= 0) {
+                        appointment.setDoctorName(doctorNames[code]);
+                    }
+                    code = sessionTypes.codeForRow(row);
+                    if (code >= 0) {
+                        appointment.setSessionTypeName(sessionTypeNames[code]);
+                    }
+                    code = sessionOfferings.codeForRow(row);
+                    if (code >= 0) {
+                        appointment.setSessionOfferingPrice(sessionOfferingPrices[code]);
+                    }
+                    formatDuration(appointment);
+                }
+
+                log.info("Enriched {} appointments with {} unique lookups in {} ms", appointments.size(),
+                        patients.size() + doctors.size() + sessionTypes.size() + sessionOfferings.size(),
+                        (System.nanoTime() - startNanos) / 1_000_000);
+                return appointments;
+            });
+        });
+    }
+
+    private Mono<String[]> resolveDoctorNames(IdDictionary doctors) {
+        return fetchAll(doctors, "doctors", referenceDataLookup::getDoctorsByIds).map(doctorsById -> {
+            String[] names = new String[doctors.size()];
+            for (int code = 0; code < doctors.size(); code++) {
+                String doctorId = doctors.idAt(code);
+                DoctorDto doctor = doctorsById.get(doctorId);
+                if (doctor != null && doctor.getFullName() != null) {
+                    names[code] = doctor.getFullName();
+                } else {
+                    log.warn("Doctor not found for doctorId: {}", doctorId);
+                    names[code] = "Doctor ID: " + doctorId;
+                }
+            }
+            return names;
+        });
+    }
+
+    private Mono<String[]> resolveSessionTypeNames(IdDictionary sessionTypes) {
+        return fetchAll(sessionTypes, "session types", referenceDataLookup::getSessionTypesByIds).map(sessionTypesById -> {
+            String[] names = new String[sessionTypes.size()];
+            for (int code = 0; code < sessionTypes.size(); code++) {
+                String sessionTypeId = sessionTypes.idAt(code);
+                SessionTypeDto sessionType = sessionTypesById.get(sessionTypeId);
+                if (sessionType != null && sessionType.getName() != null) {
+                    names[code] = sessionType.getName();
+                } else {
+                    log.warn("Session type not found for sessionTypeId: {}", sessionTypeId);
+                    names[code] = "Session Type ID: " + sessionTypeId;
+                }
+            }
+            return names;
+        });
+    }
+
+    private Mono<String[]> resolveSessionOfferingPrices(IdDictionary sessionOfferings) {
+        return fetchAll(sessionOfferings, "session offerings", referenceDataLookup::getSessionOfferingsByIds).map(sessionOfferingsById -> {
+            String[] prices = new String[sessionOfferings.size()];
+            for (int code = 0; code < sessionOfferings.size(); code++) {
+                String sessionId = sessionOfferings.idAt(code);
+                SessionOfferingDto sessionOffering = sessionOfferingsById.get(sessionId);
+                if (sessionOffering == null) {
+                    log.warn("Session offering not found for sessionId: {}", sessionId);
+                }
+                prices[code] = sessionOffering != null && sessionOffering.getPrice() != null ?
+                    "$" + sessionOffering.getPrice().toString() : "N/A";
+            }
+            return prices;
+        });
+    }
+
+    /**
+     * Runs the bulk lookup for the distinct IDs; never errors, a failed lookup yields an empty map
+     * so every row falls back to its placeholder value
+     */
+    private <T> Mono<Map<String, T>> fetchAll(IdDictionary dictionary, String entity,
+                                              Function<Collection<String>, Mono<Map<String, T>>> bulkLookup) {
+        if (dictionary.size() == 0) {
+            return Mono.just(Collections.emptyMap());
+        }
+        return bulkLookup.apply(dictionary.ids())
+                .defaultIfEmpty(Collections.emptyMap())
+                .onErrorResume(e -> {
+                    log.warn("Timeout or error fetching {} {}. Using fallback.", dictionary.size(), entity, e);
+                    return FetchCompleteness.degraded().then(Mono.just(Collections.emptyMap()));
+                });
+    }
+
+    private void formatDuration(AppointmentDto appointment) {
+        if (appointment.getStartTime() != null && appointment.getEndTime() != null) {
+            long minutes = ChronoUnit.MINUTES.between(appointment.getStartTime(), appointment.getEndTime());
+            String durationFormatted = minutes + " minutes";
+            log.debug("Calculated duration: {}", durationFormatted);
+            appointment.setDurationFormatted(durationFormatted);
+        } else if (appointment.getSessionDurationMinutes() != null) {
+            // Fallback to session duration if start/end times are not available
+            String durationFormatted = appointment.getSessionDurationMinutes() + " minutes";
+            log.debug("Using session duration: {}", durationFormatted);
+            appointment.setDurationFormatted(durationFormatted);
+        }
+    }
+}
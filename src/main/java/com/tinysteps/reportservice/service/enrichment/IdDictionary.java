@@ -0,0 +1,72 @@
+package com.tinysteps.reportservice.service.enrichment;
+
+import com.tinysteps.reportservice.model.AppointmentDto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Dictionary encoding of one ID column of a report.
+ * Every distinct ID gets a dense int code, and each row stores only the code of its ID
+ * (or -1 when the row has none), so resolved values can be joined back by array index.
+ */
+final class IdDictionary {
+
+    private final Map<String, Integer> codesById = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final int[] rowCodes;
+    private int encodedRows;
+
+    private IdDictionary(int rowCount) {
+        this.rowCodes = new int[rowCount];
+    }
+
+    static IdDictionary encode(List<AppointmentDto> rows, Function<AppointmentDto, String> idExtractor) {
+        IdDictionary dictionary = new IdDictionary(rows.size());
+        for (int row = 0; row < rows.size(); row++) {
+            String id = idExtractor.apply(rows.get(row));
+            dictionary.rowCodes[row] = id != null ? dictionary.codeFor(id) : -1;
+        }
+        return dictionary;
+    }
+
+    private int codeFor(String id) {
+        encodedRows++;
+        Integer code = codesById.get(id);
+        if (code == null) {
+            code = ids.size();
+            codesById.put(id, code);
+            ids.add(id);
+        }
+        return code;
+    }
+
+    /**
+     * Number of distinct IDs
+     */
+    int size() {
+        return ids.size();
+    }
+
+    String idAt(int code) {
+        return ids.get(code);
+    }
+
+    List<String> ids() {
+        return ids;
+    }
+
+    int codeForRow(int row) {
+        return rowCodes[row];
+    }
+
+    /**
+     * Number of rows that carry an ID in this column
+     */
+    int encodedRows() {
+        return encodedRows;
+    }
+}
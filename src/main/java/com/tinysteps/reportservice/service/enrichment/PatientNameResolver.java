@@ -0,0 +1,112 @@
+package com.tinysteps.reportservice.service.enrichment;
+
+import com.tinysteps.reportservice.cache.ReferenceDataLookup;
+import com.tinysteps.reportservice.client.FetchCompleteness;
+import com.tinysteps.reportservice.client.PatientServiceClient;
+import com.tinysteps.reportservice.model.PatientDto;
+import com.tinysteps.reportservice.model.UserDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves patient names, which takes two dependent lookups: patient to user ID, then user to name.
+ * User lookups are pipelined behind the patient lookups. Each user ID is queued as soon as the
+ * patient response carrying it arrives, and queued IDs are sent in small batches, so the two hops
+ * overlap instead of adding up. A user shared by several patients is looked up once, and patients
+ * already resolved for an earlier page of the report are not fetched again.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PatientNameResolver {
+
+    private final PatientServiceClient patientServiceClient;
+    private final ReferenceDataLookup referenceDataLookup;
+
+    @Value("${integration.user-service.batch-size:100}")
+    private int userBatchSize;
+
+    @Value("${integration.user-service.batch-window:20ms}")
+    private Duration userBatchWindow;
+
+    @Value("${integration.user-service.max-in-flight:32}")
+    private int userMaxInFlight;
+
+    /**
+     * Returns the patient names in dictionary code order, falling back to "Patient ID: ..."
+     * for patients or users that could not be resolved. Never errors.
+     *
+     * @param patientsById patients resolved for earlier pages of the report; newly fetched ones are added
+     */
+    Mono<String[]> resolve(IdDictionary patients, Map<String, PatientDto> patientsById) {
+        if (patients.size() == 0) {
+            return Mono.just(new String[0]);
+        }
+        List<PatientDto> known = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (String patientId : patients.ids()) {
+            PatientDto patient = patientsById.get(patientId);
+            if (patient != null) {
+                known.add(patient);
+            } else {
+                missing.add(patientId);
+            }
+        }
+        Map<String, UserDto> usersById = new ConcurrentHashMap<>();
+        Set<String> requestedUserIds = ConcurrentHashMap.newKeySet();
+
+        Flux<PatientDto> fetched = missing.isEmpty() ? Flux.empty() : patientServiceClient.streamPatientsByIds(missing)
+                .onErrorResume(e -> {
+                    log.warn("Timeout or error fetching {} patients. Using fallback.", missing.size(), e);
+                    return FetchCompleteness.degraded();
+                })
+                .doOnNext(entry -> patientsById.put(entry.getKey(), entry.getValue()))
+                .map(Map.Entry::getValue);
+        return Flux.concat(Flux.fromIterable(known), fetched)
+                .map(patient -> patient.getUserId() != null ? patient.getUserId() : "")
+                // Only the first patient of each user triggers a lookup
+                .filter(userId -> !userId.isEmpty() && requestedUserIds.add(userId))
+                .bufferTimeout(Math.max(1, userBatchSize), userBatchWindow)
+                .flatMap(userIds -> referenceDataLookup.getUsersByIds(userIds)
+                        .onErrorResume(e -> {
+                            log.warn("Timeout or error fetching {} users. Using fallback.", userIds.size(), e);
+                            return FetchCompleteness.degraded().then(Mono.just(Collections.emptyMap()));
+                        }), Math.max(1, userMaxInFlight))
+                .doOnNext(usersById::putAll)
+                .then(Mono.fromSupplier(() -> toNames(patients, patientsById, usersById)));
+    }
+
+    private String[] toNames(IdDictionary patients, Map<String, PatientDto> patientsById, Map<String, UserDto> usersById) {
+        String[] names = new String[patients.size()];
+        for (int code = 0; code < patients.size(); code++) {
+            String patientId = patients.idAt(code);
+            names[code] = "Patient ID: " + patientId;
+            PatientDto patient = patientsById.get(patientId);
+            if (patient == null) {
+                log.warn("Patient not found for patientId: {}", patientId);
+            } else if (patient.getUserId() == null) {
+                log.warn("Patient {} has no userId", patient.getId());
+            } else {
+                UserDto user = usersById.get(patient.getUserId());
+                if (user != null && user.getFullName() != null) {
+                    names[code] = user.getFullName();
+                } else {
+                    log.warn("User not found for userId: {}", patient.getUserId());
+                }
+            }
+        }
+        return names;
+    }
+}
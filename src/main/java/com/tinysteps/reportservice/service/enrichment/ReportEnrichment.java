@@ -0,0 +1,85 @@
+package com.tinysteps.reportservice.service.enrichment;
+
+import com.tinysteps.reportservice.model.AppointmentDto;
+import com.tinysteps.reportservice.model.PatientDto;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Enrichment state of one report, shared by all of its pages. Patients resolved for an earlier page are
+ * reused, since patient lookups are not cached; doctors and sessions already come from the reference data
+ * caches. The deduplication metrics count distinct IDs across the whole report and are recorded once,
+ * by {@link #recordDeduplication()} after the last page.
+ */
+@Slf4j
+public final class ReportEnrichment {
+
+    private final AppointmentEnricher enricher;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, PatientDto> patientsById = new ConcurrentHashMap<>();
+    private final Map<String, Column> columns = new ConcurrentHashMap<>();
+    private final AtomicBoolean recorded = new AtomicBoolean();
+
+    ReportEnrichment(AppointmentEnricher enricher, MeterRegistry meterRegistry) {
+        this.enricher = enricher;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Enriches one page of the report in place
+     */
+    public Mono<List<AppointmentDto>> enrich(List<AppointmentDto> appointments) {
+        return enricher.enrich(appointments, this);
+    }
+
+    /**
+     * Records the report's rows per unique lookup for each entity; only the first call records anything
+     */
+    public void recordDeduplication() {
+        if (!recorded.compareAndSet(false, true)) {
+            return;
+        }
+        columns.forEach((entity, column) -> {
+            long rows = column.rows().sum();
+            int lookups = column.ids().size();
+            if (lookups == 0) {
+                return;
+            }
+            double ratio = (double) rows / lookups;
+            meterRegistry.counter("report.enrichment.rows", "entity", entity).increment(rows);
+            meterRegistry.counter("report.enrichment.lookups", "entity", entity).increment(lookups);
+            DistributionSummary.builder("report.enrichment.dedup.ratio")
+                    .description("Rows per unique remote lookup within one report")
+                    .tag("entity", entity)
+                    .register(meterRegistry)
+                    .record(ratio);
+            log.info("Resolved {} {} rows with {} unique lookups (dedup ratio {})",
+                    rows, entity, lookups, String.format("%.2f", ratio));
+        });
+    }
+
+    /**
+     * Patients resolved so far, by ID
+     */
+    Map<String, PatientDto> patientsById() {
+        return patientsById;
+    }
+
+    void count(String entity, IdDictionary dictionary) {
+        Column column = columns.computeIfAbsent(entity, key -> new Column(new LongAdder(), ConcurrentHashMap.newKeySet()));
+        column.rows().add(dictionary.encodedRows());
+        column.ids().addAll(dictionary.ids());
+    }
+
+    private record Column(LongAdder rows, Set<String> ids) {
+    }
+}
@@ -0,0 +1,262 @@
+package com.tinysteps.reportservice.service.fetch;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.tinysteps.reportservice.client.FetchCompleteness;
+import com.tinysteps.reportservice.model.AppointmentDto;
+import com.tinysteps.reportservice.model.AppointmentPage;
+import com.tinysteps.reportservice.model.ReportRequestDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Enriched appointment rows cached per day, so overlapping reports (last 7 days, last 30 days, this month)
+ * only fetch and enrich the days no earlier report has loaded.
+ * Entries are keyed by (branch, doctor filter, patient filter, day). Days older than
+ * {@code immutable-after-days} rarely change and are kept for {@code immutable-ttl}; recent days only for
+ * {@code recent-ttl}. A day is only cached when its whole fetch and enrichment completed without falling
+ * back to partial data, so a timeout never leaves a truncated day behind.
+ * The cache is bounded by the number of rows it holds.
+ */
+@Slf4j
+@Component
+public class EnrichedDayCache {
+
+    private static final String ALL_BRANCHES = "all";
+
+    private final Cache<DayKey, List<AppointmentDto>> days;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Value("${report.day-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${report.day-cache.max-range-days:93}")
+    private int maxRangeDays;
+
+    private final long maxRows;
+    private final int immutableAfterDays;
+
+    public EnrichedDayCache(MeterRegistry meterRegistry,
+                            @Value("${report.day-cache.max-rows:20000}") long maxRows,
+                            @Value("${report.day-cache.immutable-after-days:7}") int immutableAfterDays,
+                            @Value("${report.day-cache.immutable-ttl:PT12H}") Duration immutableTtl,
+                            @Value("${report.day-cache.recent-ttl:PT5M}") Duration recentTtl) {
+        this.maxRows = maxRows;
+        this.immutableAfterDays = immutableAfterDays;
+        this.days = Caffeine.newBuilder()
+                .maximumWeight(maxRows)
+                // Empty days still take an entry
+                .weigher((DayKey key, List<AppointmentDto> rows) -> rows.size() + 1)
+                .expireAfter(new DayExpiry(immutableTtl.toNanos(), recentTtl.toNanos()))
+                .build();
+        this.hits = meterRegistry.counter("report.day-cache.days", "result", "hit");
+        this.misses = meterRegistry.counter("report.day-cache.days", "result", "miss");
+        Gauge.builder("report.day-cache.rows", days, cache -> cache.policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0L))
+                        .orElse(0L))
+                .description("Enriched appointment rows held by the day cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Streams the request's enriched appointments, serving cached days from memory and fetching every run
+     * of missing days with {@code fetchEnriched}, called with a copy of the request narrowed to the run.
+     * Pages are emitted day by day in date order. When the range mixes cached and fetched days the pages
+     * carry {@link PartitionedAppointmentFetcher#UNKNOWN_TOTAL} as their total.
+     */
+    public Flux<AppointmentPage> enrichedPages(ReportRequestDto request,
+                                               Function<ReportRequestDto, Flux<AppointmentPage>> fetchEnriched) {
+        LocalDate startDate = request.getStartDate();
+        LocalDate endDate = request.getEndDate();
+        if (!enabled || startDate == null || endDate == null || endDate.isBefore(startDate)
+                || ChronoUnit.DAYS.between(startDate, endDate) + 1 > maxRangeDays) {
+            return fetchEnriched.apply(request);
+        }
+        return Flux.defer(() -> {
+            List<Run> runs = plan(request, startDate, endDate);
+            if (runs.size() == 1 && !runs.get(0).cached()) {
+                return fetchAndStore(request, runs.get(0), fetchEnriched);
+            }
+            log.debug("Serving {} to {} from {} cached and fetched run(s)", startDate, endDate, runs.size());
+            return Flux.fromIterable(runs)
+                    .concatMap(run -> run.cached() ? cachedPages(request, run, fetchEnriched) : fetchAndStore(request, run, fetchEnriched), 1)
+                    .doOnNext(page -> page.setTotalElements(PartitionedAppointmentFetcher.UNKNOWN_TOTAL));
+        });
+    }
+
+    /**
+     * Drops every cached day
+     */
+    public void invalidateAll() {
+        days.invalidateAll();
+    }
+
+    /**
+     * Drops every cached day holding a matching row; used when reference data shown in enriched rows changes
+     */
+    public void invalidateRows(Predicate<AppointmentDto> affected) {
+        days.asMap().values().removeIf(rows -> rows.stream().anyMatch(affected));
+    }
+
+    /**
+     * Drops the appointment's new day and every cached day still holding the appointment, which covers
+     * its old day after a reschedule and deletions that carry no date
+     */
+    public void invalidateAppointment(String appointmentId, LocalDate appointmentDate) {
+        days.asMap().entrySet().removeIf(entry -> entry.getKey().day().equals(appointmentDate)
+                || appointmentId != null && entry.getValue().stream().anyMatch(row -> appointmentId.equals(row.getId())));
+    }
+
+    // Splits the range into consecutive runs of days that are all cached or all missing
+    private List<Run> plan(ReportRequestDto request, LocalDate startDate, LocalDate endDate) {
+        List<Run> runs = new ArrayList<>();
+        LocalDate runStart = startDate;
+        boolean runCached = false;
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            boolean cached = days.getIfPresent(keyOf(request, day)) != null;
+            (cached ? hits : misses).increment();
+            if (day.equals(startDate)) {
+                runCached = cached;
+            } else if (cached != runCached) {
+                runs.add(new Run(runStart, day.minusDays(1), runCached));
+                runStart = day;
+                runCached = cached;
+            }
+        }
+        runs.add(new Run(runStart, endDate, runCached));
+        return runs;
+    }
+
+    private Flux<AppointmentPage> cachedPages(ReportRequestDto request, Run run,
+                                              Function<ReportRequestDto, Flux<AppointmentPage>> fetchEnriched) {
+        List<AppointmentPage> pages = new ArrayList<>();
+        for (LocalDate day = run.startDate(); !day.isAfter(run.endDate()); day = day.plusDays(1)) {
+            List<AppointmentDto> rows = days.getIfPresent(keyOf(request, day));
+            if (rows == null) {
+                // Evicted since planning: fetch the rest of the run
+                return Flux.fromIterable(pages)
+                        .concatWith(fetchAndStore(request, new Run(day, run.endDate(), false), fetchEnriched));
+            }
+            if (!rows.isEmpty()) {
+                pages.add(AppointmentPage.builder()
+                        .content(rows)
+                        .number(pages.size())
+                        .totalPages(1)
+                        .totalElements(rows.size())
+                        .last(true)
+                        .build());
+            }
+        }
+        return Flux.fromIterable(pages);
+    }
+
+    private Flux<AppointmentPage> fetchAndStore(ReportRequestDto request, Run run,
+                                                Function<ReportRequestDto, Flux<AppointmentPage>> fetchEnriched) {
+        ReportRequestDto runRequest = narrow(request, run);
+        FetchCompleteness completeness = new FetchCompleteness();
+        // Rows are only kept while the run stays small enough to be worth caching
+        long collectLimit = Math.max(maxRows / 4, 1);
+        Map<LocalDate, List<AppointmentDto>> byDay = new HashMap<>();
+        long[] collected = new long[1];
+        return fetchEnriched.apply(runRequest)
+                .doOnNext(page -> {
+                    if (collected[0] < 0) {
+                        return;
+                    }
+                    collected[0] += page.getContent().size();
+                    if (collected[0] > collectLimit) {
+                        byDay.clear();
+                        collected[0] = -1;
+                        return;
+                    }
+                    for (AppointmentDto appointment : page.getContent()) {
+                        if (appointment.getAppointmentDate() != null) {
+                            byDay.computeIfAbsent(appointment.getAppointmentDate(), day -> new ArrayList<>()).add(appointment);
+                        }
+                    }
+                })
+                .doOnComplete(() -> {
+                    if (collected[0] < 0 || !completeness.isComplete()) {
+                        log.debug("Not caching {} to {}: {}", run.startDate(), run.endDate(),
+                                collected[0] < 0 ? "too many rows" : "incomplete fetch");
+                        return;
+                    }
+                    for (LocalDate day = run.startDate(); !day.isAfter(run.endDate()); day = day.plusDays(1)) {
+                        days.put(keyOf(request, day), List.copyOf(byDay.getOrDefault(day, List.of())));
+                    }
+                })
+                // Still reports to the caller's tracker, which must learn about dropped pages too
+                .contextWrite(FetchCompleteness.trackNested(completeness));
+    }
+
+    private static ReportRequestDto narrow(ReportRequestDto request, Run run) {
+        return ReportRequestDto.builder()
+                .reportType(request.getReportType())
+                .format(request.getFormat())
+                .userId(request.getUserId())
+                .doctorId(request.getDoctorId())
+                .patientId(request.getPatientId())
+                .branchId(request.getBranchId())
+                .startDate(run.startDate())
+                .endDate(run.endDate())
+                .build();
+    }
+
+    private static DayKey keyOf(ReportRequestDto request, LocalDate day) {
+        String branchId = request.getBranchId() == null || ALL_BRANCHES.equalsIgnoreCase(request.getBranchId())
+                ? ALL_BRANCHES : request.getBranchId();
+        return new DayKey(branchId, request.getDoctorId(), request.getPatientId(), day);
+    }
+
+    private record DayKey(String branchId, String doctorId, String patientId, LocalDate day) {
+    }
+
+    private record Run(LocalDate startDate, LocalDate endDate, boolean cached) {
+    }
+
+    /**
+     * Gives days past the immutable horizon the long TTL, and re-evaluates it when a day is stored again
+     */
+    private class DayExpiry implements Expiry<DayKey, List<AppointmentDto>> {
+
+        private final long immutableNanos;
+        private final long recentNanos;
+
+        DayExpiry(long immutableNanos, long recentNanos) {
+            this.immutableNanos = immutableNanos;
+            this.recentNanos = recentNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(DayKey key, List<AppointmentDto> rows, long currentTime) {
+            return key.day().isBefore(LocalDate.now().minusDays(immutableAfterDays)) ? immutableNanos : recentNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(DayKey key, List<AppointmentDto> rows, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, rows, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(DayKey key, List<AppointmentDto> rows, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.tinysteps.reportservice.service.fetch;
+
+import com.tinysteps.reportservice.client.ScheduleServiceClient;
+import com.tinysteps.reportservice.model.AppointmentPage;
+import com.tinysteps.reportservice.model.ReportRequestDto;
+import com.tinysteps.reportservice.service.replica.AppointmentReplica;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fetches the appointments of a report as several smaller schedule-service queries instead of one.
+ * Long date ranges are cut into calendar day, week or month shards and, for reports across all branches,
+ * optionally into one shard per configured branch. Up to {@code max-concurrent-shards} shards are fetched
+ * at a time and their pages are emitted date first, then branch, so the output order does not depend on
+ * which shard answers first.
+ * Shards are planned lazily: each new shard is sized from the rows per day seen in earlier shards, so that
+ * it holds about {@code target-rows-per-shard} appointments. The estimate is kept per kind of query and
+ * carried over to later reports.
+ * Each range is read from the local appointment replica as far as it covers it, and from schedule-service otherwise.
+ */
+@Slf4j
+@Component
+public class PartitionedAppointmentFetcher {
+
+    /** Total used on pages of a partitioned fetch, where the report-wide count is not known up front */
+    public static final long UNKNOWN_TOTAL = -1;
+
+    private static final String ALL_BRANCHES = "all";
+
+    // Weight of the newest observation in the rows-per-day estimate
+    private static final double SMOOTHING = 0.5;
+
+    private final ScheduleServiceClient scheduleServiceClient;
+    private final AppointmentReplica appointmentReplica;
+    private final Map<String, Double> rowsPerDay = new ConcurrentHashMap<>();
+    private final DistributionSummary shardRows;
+
+    @Value("${report.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${report.partitioning.min-range-days:32}")
+    private int minRangeDays;
+
+    @Value("${report.partitioning.initial-granularity:WEEK}")
+    private Granularity initialGranularity;
+
+    @Value("${report.partitioning.target-rows-per-shard:2000}")
+    private int targetRowsPerShard;
+
+    @Value("${report.partitioning.max-concurrent-shards:3}")
+    private int maxConcurrentShards;
+
+    @Value("${report.partitioning.branches:}")
+    private List<String> branches;
+
+    public PartitionedAppointmentFetcher(ScheduleServiceClient scheduleServiceClient,
+                                         AppointmentReplica appointmentReplica,
+                                         MeterRegistry meterRegistry) {
+        this.scheduleServiceClient = scheduleServiceClient;
+        this.appointmentReplica = appointmentReplica;
+        this.shardRows = DistributionSummary.builder("report.fetch.shard.rows")
+                .description("Appointments returned per schedule-service shard of a partitioned fetch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Streams the report's appointments page by page, partitioned when the request is large enough.
+     * Pages of a partitioned fetch carry {@link #UNKNOWN_TOTAL} as their total.
+     */
+    public Flux<AppointmentPage> fetchAppointmentPages(ReportRequestDto request) {
+        LocalDate startDate = request.getStartDate();
+        LocalDate endDate = request.getEndDate();
+        List<String> shardBranches = shardBranches(request.getBranchId());
+        boolean splitDates = startDate != null && endDate != null
+                && ChronoUnit.DAYS.between(startDate, endDate) + 1 >= minRangeDays;
+
+        if (!enabled || (!splitDates && shardBranches.size() <= 1)) {
+            return fetchRange(request, request.getBranchId(), startDate, endDate);
+        }
+
+        ShardPlanner planner = new ShardPlanner(scopeOf(request, shardBranches.size() > 1), startDate, endDate, splitDates);
+        log.info("Partitioning appointment fetch from {} to {} across {} branch shard(s), starting with {} shards",
+                startDate, endDate, shardBranches.size(), planner.granularity());
+        return Flux.<Shard>generate(sink -> {
+                    Shard window = planner.next();
+                    if (window == null) {
+                        sink.complete();
+                    } else {
+                        sink.next(window);
+                    }
+                })
+                // Only plan the next window when a shard slot frees up, so it uses the latest estimate
+                .flatMapIterable(window -> window.forBranches(shardBranches), 1)
+                .flatMapSequential(shard -> fetchShard(request, shard, planner), maxConcurrentShards, 1);
+    }
+
+    private Flux<AppointmentPage> fetchShard(ReportRequestDto request, Shard shard, ShardPlanner planner) {
+        AtomicBoolean observed = new AtomicBoolean();
+        AtomicLong rows = new AtomicLong();
+        return fetchRange(request, shard.branchId(), shard.startDate(), shard.endDate())
+                .doOnSubscribe(subscription -> log.debug("Fetching shard {}", shard))
+                .doOnNext(page -> {
+                    rows.addAndGet(page.getContent().size());
+                    // The first page usually tells how many rows the whole shard holds
+                    if (page.getTotalElements() >= 0 && observed.compareAndSet(false, true)) {
+                        planner.observe(page.getTotalElements(), shard.days());
+                    }
+                    page.setTotalElements(UNKNOWN_TOTAL);
+                })
+                .doOnComplete(() -> {
+                    if (observed.compareAndSet(false, true)) {
+                        planner.observe(rows.get(), shard.days());
+                    }
+                });
+    }
+
+    /**
+     * Reads the part of the range the appointment replica covers locally and fetches the rest,
+     * typically the most recent days, from schedule-service
+     */
+    private Flux<AppointmentPage> fetchRange(ReportRequestDto request, String branchId,
+                                             LocalDate startDate, LocalDate endDate) {
+        if (!appointmentReplica.isEnabled()) {
+            return fetchRemote(request, branchId, startDate, endDate);
+        }
+        return Mono.fromCallable(() -> appointmentReplica.coveredUntil(branchId, startDate, endDate))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(coveredUntil -> {
+                    if (coveredUntil.isEmpty()) {
+                        return fetchRemote(request, branchId, startDate, endDate);
+                    }
+                    LocalDate localEnd = coveredUntil.get();
+                    Flux<AppointmentPage> local = appointmentReplica.fetchAppointmentPages(request.getDoctorId(),
+                            request.getPatientId(), branchId, startDate, localEnd);
+                    if (!localEnd.isBefore(endDate)) {
+                        log.debug("Serving appointments from {} to {} from the local replica", startDate, endDate);
+                        return local;
+                    }
+                    log.debug("Serving appointments from {} to {} from the local replica and the rest from schedule-service",
+                            startDate, localEnd);
+                    // Neither part knows the total of the combined range
+                    return local.concatWith(fetchRemote(request, branchId, localEnd.plusDays(1), endDate))
+                            .doOnNext(page -> page.setTotalElements(UNKNOWN_TOTAL));
+                });
+    }
+
+    private Flux<AppointmentPage> fetchRemote(ReportRequestDto request, String branchId,
+                                              LocalDate startDate, LocalDate endDate) {
+        return scheduleServiceClient.fetchAppointmentPages(request.getDoctorId(), request.getPatientId(),
+                branchId, startDate, endDate);
+    }
+
+    private List<String> shardBranches(String branchId) {
+        boolean allBranches = branchId == null || ALL_BRANCHES.equalsIgnoreCase(branchId);
+        List<String> configured = branches == null ? List.of() : branches.stream()
+                .map(String::trim)
+                .filter(branch -> !branch.isEmpty())
+                .toList();
+        if (!allBranches || configured.isEmpty()) {
+            return Collections.singletonList(branchId);
+        }
+        return configured;
+    }
+
+    private static String scopeOf(ReportRequestDto request, boolean perBranch) {
+        // One shard per branch, one query across all branches, or one named branch learn different row rates
+        String branchId = request.getBranchId();
+        StringBuilder scope = new StringBuilder(perBranch ? "branch"
+                : branchId == null || ALL_BRANCHES.equalsIgnoreCase(branchId) ? "all" : branchId);
+        if (request.getDoctorId() != null) {
+            scope.append("/doctor");
+        }
+        if (request.getPatientId() != null) {
+            scope.append("/patient");
+        }
+        return scope.toString();
+    }
+
+    /**
+     * Calendar-aligned shard lengths, finest first
+     */
+    public enum Granularity {
+        DAY(1) {
+            @Override
+            LocalDate lastDay(LocalDate start) {
+                return start;
+            }
+        },
+        WEEK(7) {
+            @Override
+            LocalDate lastDay(LocalDate start) {
+                return start.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+            }
+        },
+        MONTH(30) {
+            @Override
+            LocalDate lastDay(LocalDate start) {
+                return start.with(TemporalAdjusters.lastDayOfMonth());
+            }
+        };
+
+        private final int typicalDays;
+
+        Granularity(int typicalDays) {
+            this.typicalDays = typicalDays;
+        }
+
+        abstract LocalDate lastDay(LocalDate start);
+    }
+
+    /**
+     * One schedule-service query: an inclusive date range, for one branch or for the report's branch filter
+     */
+    private record Shard(LocalDate startDate, LocalDate endDate, String branchId) {
+
+        long days() {
+            return startDate == null || endDate == null ? 1 : ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        }
+
+        List<Shard> forBranches(List<String> branchIds) {
+            List<Shard> shards = new ArrayList<>(branchIds.size());
+            for (String branch : branchIds) {
+                shards.add(new Shard(startDate, endDate, branch));
+            }
+            return shards;
+        }
+    }
+
+    /**
+     * Hands out consecutive date windows for one fetch, sizing each from the current rows-per-day estimate
+     */
+    private class ShardPlanner {
+
+        private final String scope;
+        private final LocalDate endDate;
+        private final boolean splitDates;
+        private LocalDate nextStart;
+        private boolean done;
+        private Granularity granularity;
+
+        ShardPlanner(String scope, LocalDate startDate, LocalDate endDate, boolean splitDates) {
+            this.scope = scope;
+            this.endDate = endDate;
+            this.splitDates = splitDates;
+            this.nextStart = startDate;
+            this.granularity = pickGranularity();
+        }
+
+        synchronized Granularity granularity() {
+            return granularity;
+        }
+
+        synchronized Shard next() {
+            if (done) {
+                return null;
+            }
+            if (!splitDates) {
+                done = true;
+                return new Shard(nextStart, endDate, null);
+            }
+            granularity = pickGranularity();
+            LocalDate lastDay = granularity.lastDay(nextStart);
+            if (!lastDay.isBefore(endDate)) {
+                lastDay = endDate;
+                done = true;
+            }
+            Shard window = new Shard(nextStart, lastDay, null);
+            nextStart = lastDay.plusDays(1);
+            return window;
+        }
+
+        void observe(long rows, long days) {
+            shardRows.record(rows);
+            double observed = (double) rows / Math.max(days, 1);
+            rowsPerDay.merge(scope, observed, (previous, latest) -> previous + SMOOTHING * (latest - previous));
+        }
+
+        // Coarsest granularity whose expected row count still fits the target
+        private Granularity pickGranularity() {
+            Double estimate = rowsPerDay.get(scope);
+            if (estimate == null) {
+                return initialGranularity;
+            }
+            Granularity[] candidates = Granularity.values();
+            for (int i = candidates.length - 1; i > 0; i--) {
+                if (estimate * candidates[i].typicalDays <= targetRowsPerShard) {
+                    return candidates[i];
+                }
+            }
+            return Granularity.DAY;
+        }
+    }
+}
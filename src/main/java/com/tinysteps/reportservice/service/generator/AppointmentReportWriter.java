@@ -0,0 +1,36 @@
+package com.tinysteps.reportservice.service.generator;
+
+import com.tinysteps.reportservice.model.AppointmentDto;
+import com.tinysteps.reportservice.model.AppointmentStatsDto;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * Incremental writer for an appointment report, fed one page of appointments at a time
+ * so only the current page has to be held in memory
+ */
+public interface AppointmentReportWriter extends Closeable {
+
+    /**
+     * Appends appointments to the report
+     *
+     * @param appointments the next appointments, in report order
+     * @param totalAppointments expected number of appointments in the whole report, shown in headings;
+     *                          negative when not known up front
+     */
+    void write(List<AppointmentDto> appointments, long totalAppointments);
+
+    /**
+     * Adds a summary of the whole report by status, written out when the report is finished
+     *
+     * @param summary appointment counts and revenue grouped by status
+     */
+    void writeSummary(AppointmentStatsDto summary);
+
+    /**
+     * Finishes the report and writes it to its output path
+     */
+    @Override
+    void close();
+}
@@ -1,10 +1,12 @@
 package com.tinysteps.reportservice.service.generator;
 
 import com.tinysteps.reportservice.model.AppointmentDto;
+import com.tinysteps.reportservice.model.AppointmentStatsDto;
 import com.tinysteps.reportservice.model.ReportRequestDto;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.stereotype.Component;
 
 import java.io.FileOutputStream;
@@ -17,46 +19,23 @@ import java.util.List;
 public class ExcelReportGenerator implements ReportGenerator {
 
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    // Rows kept in memory per sheet before SXSSF flushes them to disk
+    private static final int ROW_ACCESS_WINDOW = 200;
 
     @Override
     public void generateAppointmentReport(List<AppointmentDto> appointments, String outputPath, ReportRequestDto requestDto) {
         log.info("Generating Excel appointment report with {} appointments", appointments.size());
 
-        try (Workbook workbook = new XSSFWorkbook()) {
-            // Create sheet for report parameters
-            Sheet paramSheet = workbook.createSheet("Report Info");
-            createParametersSheet(paramSheet, requestDto);
-
-            // Create sheet for appointments
-            Sheet appointmentSheet = workbook.createSheet("Appointments");
-            createAppointmentsSheet(appointmentSheet, appointments);
-
-            // Auto-size columns
-            for (int i = 0; i < 10; i++) {
-                appointmentSheet.autoSizeColumn(i);
-            }
-
-            // Ensure directory exists before writing file
-            java.io.File outputFile = new java.io.File(outputPath);
-            java.io.File parentDir = outputFile.getParentFile();
-            if (parentDir != null && !parentDir.exists()) {
-                boolean created = parentDir.mkdirs();
-                log.info("Created directory {}: {}", parentDir.getAbsolutePath(), created);
-            }
-
-            // Write to file
-            try (FileOutputStream outputStream = new FileOutputStream(outputPath)) {
-                workbook.write(outputStream);
-            }
-
-            log.info("Excel report successfully generated at: {}", outputPath);
-
-        } catch (IOException e) {
-            log.error("Failed to create Excel file", e);
-            throw new RuntimeException("Failed to create Excel file: " + e.getMessage(), e);
+        try (AppointmentReportWriter writer = openAppointmentReport(outputPath, requestDto)) {
+            writer.write(appointments, appointments.size());
         }
     }
 
+    @Override
+    public AppointmentReportWriter openAppointmentReport(String outputPath, ReportRequestDto requestDto) {
+        return new ExcelAppointmentReportWriter(outputPath, requestDto);
+    }
+
     private void createParametersSheet(Sheet sheet, ReportRequestDto requestDto) {
         // Create header style
         CellStyle headerStyle = sheet.getWorkbook().createCellStyle();
@@ -117,7 +96,127 @@ public class ExcelReportGenerator implements ReportGenerator {
         sheet.autoSizeColumn(1);
     }
 
-    private void createAppointmentsSheet(Sheet sheet, List<AppointmentDto> appointments) {
+    /**
+     * Streams rows through an {@link SXSSFWorkbook}, which keeps only a window of rows in memory
+     * and flushes the rest to a temporary file until the workbook is written
+     */
+    private class ExcelAppointmentReportWriter implements AppointmentReportWriter {
+
+        private final String outputPath;
+        private final SXSSFWorkbook workbook;
+        private final SXSSFSheet appointmentSheet;
+        private final CellStyle headerStyle;
+        private int rowNum = 1;
+        private AppointmentStatsDto summary;
+
+        ExcelAppointmentReportWriter(String outputPath, ReportRequestDto requestDto) {
+            this.outputPath = outputPath;
+            this.workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+
+            // Create sheet for report parameters
+            SXSSFSheet paramSheet = workbook.createSheet("Report Info");
+            paramSheet.trackAllColumnsForAutoSizing();
+            createParametersSheet(paramSheet, requestDto);
+
+            // Create sheet for appointments
+            this.appointmentSheet = workbook.createSheet("Appointments");
+            appointmentSheet.trackAllColumnsForAutoSizing();
+            this.headerStyle = createAppointmentsHeader(appointmentSheet);
+        }
+
+        @Override
+        public void write(List<AppointmentDto> appointments, long totalAppointments) {
+            for (AppointmentDto appointment : appointments) {
+                writeAppointmentRow(appointmentSheet.createRow(rowNum++), appointment);
+            }
+        }
+
+        @Override
+        public void writeSummary(AppointmentStatsDto summary) {
+            this.summary = summary;
+        }
+
+        @Override
+        public void close() {
+            try {
+                // Create summary row
+                Row summaryRow = appointmentSheet.createRow(rowNum + 1);
+                Cell summaryLabelCell = summaryRow.createCell(0);
+                summaryLabelCell.setCellValue("Total Appointments:");
+                summaryLabelCell.setCellStyle(headerStyle);
+
+                Cell summaryValueCell = summaryRow.createCell(1);
+                summaryValueCell.setCellValue(rowNum - 1);
+
+                // Auto-size columns
+                for (int i = 0; i < 10; i++) {
+                    appointmentSheet.autoSizeColumn(i);
+                }
+
+                if (summary != null) {
+                    createSummarySheet(workbook.createSheet("Summary"), summary, headerStyle);
+                }
+
+                // Ensure directory exists before writing file
+                java.io.File outputFile = new java.io.File(outputPath);
+                java.io.File parentDir = outputFile.getParentFile();
+                if (parentDir != null && !parentDir.exists()) {
+                    boolean created = parentDir.mkdirs();
+                    log.info("Created directory {}: {}", parentDir.getAbsolutePath(), created);
+                }
+
+                // Write to file
+                try (FileOutputStream outputStream = new FileOutputStream(outputPath)) {
+                    workbook.write(outputStream);
+                }
+
+                log.info("Excel report successfully generated at: {}", outputPath);
+
+            } catch (IOException e) {
+                log.error("Failed to create Excel file", e);
+                throw new RuntimeException("Failed to create Excel file: " + e.getMessage(), e);
+            } finally {
+                workbook.dispose();
+                try {
+                    workbook.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close Excel workbook: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void createSummarySheet(SXSSFSheet sheet, AppointmentStatsDto summary, CellStyle headerStyle) {
+        sheet.trackAllColumnsForAutoSizing();
+        Row headerRow = sheet.createRow(0);
+        String[] headers = {"Status", "Appointments", "Revenue"};
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(headerStyle);
+        }
+
+        int rowNum = 1;
+        for (AppointmentStatsDto.Group group : summary.getGroups()) {
+            Row row = sheet.createRow(rowNum++);
+            row.createCell(0).setCellValue(group.getKey());
+            row.createCell(1).setCellValue(group.getAppointmentCount());
+            row.createCell(2).setCellValue(group.getRevenue().doubleValue());
+        }
+
+        Row totalRow = sheet.createRow(rowNum + 1);
+        Cell totalLabelCell = totalRow.createCell(0);
+        totalLabelCell.setCellValue("Total:");
+        totalLabelCell.setCellStyle(headerStyle);
+        totalRow.createCell(1).setCellValue(summary.getTotalAppointments());
+        totalRow.createCell(2).setCellValue(summary.getTotalRevenue().doubleValue());
+
+        for (int i = 0; i < headers.length; i++) {
+            sheet.autoSizeColumn(i);
+        }
+    }
+
+    private CellStyle createAppointmentsHeader(Sheet sheet) {
         // Create header style
         CellStyle headerStyle = sheet.getWorkbook().createCellStyle();
         Font headerFont = sheet.getWorkbook().createFont();
@@ -135,31 +234,19 @@ public class ExcelReportGenerator implements ReportGenerator {
             cell.setCellValue(headers[i]);
             cell.setCellStyle(headerStyle);
         }
+        return headerStyle;
+    }
 
-        // Create data rows
-        int rowNum = 1;
-        for (AppointmentDto appointment : appointments) {
-            Row row = sheet.createRow(rowNum++);
-
-            row.createCell(0).setCellValue(appointment.getAppointmentNumber() != null ? appointment.getAppointmentNumber() : appointment.getId() != null ? appointment.getId() : "");
-            row.createCell(1).setCellValue(appointment.getPatientName() != null ? appointment.getPatientName() : appointment.getPatientId() != null ? appointment.getPatientId() : "");
-            row.createCell(2).setCellValue(appointment.getDoctorName() != null ? appointment.getDoctorName() : appointment.getDoctorId() != null ? appointment.getDoctorId() : "");
-            row.createCell(3).setCellValue(appointment.getSessionTypeName() != null ? appointment.getSessionTypeName() : "N/A");
-            row.createCell(4).setCellValue(appointment.getSessionOfferingPrice() != null ? appointment.getSessionOfferingPrice() : "N/A");
-            row.createCell(5).setCellValue(appointment.getDurationFormatted() != null ? appointment.getDurationFormatted() : "N/A");
-            row.createCell(6).setCellValue(appointment.getConsultationType() != null ? appointment.getConsultationType() : "");
-            row.createCell(7).setCellValue(appointment.getFormattedAppointmentTime());
-            row.createCell(8).setCellValue(appointment.getStatus() != null ? appointment.getStatus() : "");
-            row.createCell(9).setCellValue(appointment.getNotes() != null ? appointment.getNotes() : "");
-        }
-
-        // Create summary row
-        Row summaryRow = sheet.createRow(rowNum + 1);
-        Cell summaryLabelCell = summaryRow.createCell(0);
-        summaryLabelCell.setCellValue("Total Appointments:");
-        summaryLabelCell.setCellStyle(headerStyle);
-
-        Cell summaryValueCell = summaryRow.createCell(1);
-        summaryValueCell.setCellValue(appointments.size());
+    private void writeAppointmentRow(Row row, AppointmentDto appointment) {
+        row.createCell(0).setCellValue(appointment.getAppointmentNumber() != null ? appointment.getAppointmentNumber() : appointment.getId() != null ? appointment.getId() : "");
+        row.createCell(1).setCellValue(appointment.getPatientName() != null ? appointment.getPatientName() : appointment.getPatientId() != null ? appointment.getPatientId() : "");
+        row.createCell(2).setCellValue(appointment.getDoctorName() != null ? appointment.getDoctorName() : appointment.getDoctorId() != null ? appointment.getDoctorId() : "");
+        row.createCell(3).setCellValue(appointment.getSessionTypeName() != null ? appointment.getSessionTypeName() : "N/A");
+        row.createCell(4).setCellValue(appointment.getSessionOfferingPrice() != null ? appointment.getSessionOfferingPrice() : "N/A");
+        row.createCell(5).setCellValue(appointment.getDurationFormatted() != null ? appointment.getDurationFormatted() : "N/A");
+        row.createCell(6).setCellValue(appointment.getConsultationType() != null ? appointment.getConsultationType() : "");
+        row.createCell(7).setCellValue(appointment.getFormattedAppointmentTime());
+        row.createCell(8).setCellValue(appointment.getStatus() != null ? appointment.getStatus() : "");
+        row.createCell(9).setCellValue(appointment.getNotes() != null ? appointment.getNotes() : "");
     }
 }
@@ -12,6 +12,7 @@ import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
 import com.tinysteps.reportservice.model.AppointmentDto;
+import com.tinysteps.reportservice.model.AppointmentStatsDto;
 import com.tinysteps.reportservice.model.ReportRequestDto;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -31,6 +32,13 @@ public class PdfReportGenerator implements ReportGenerator {
 
     @Override
     public void generateAppointmentReport(List<AppointmentDto> appointments, String outputPath, ReportRequestDto requestDto) {
+        try (AppointmentReportWriter writer = openAppointmentReport(outputPath, requestDto)) {
+            writer.write(appointments, appointments.size());
+        }
+    }
+
+    @Override
+    public AppointmentReportWriter openAppointmentReport(String outputPath, ReportRequestDto requestDto) {
         try {
             Document document = new Document(PageSize.A4);
             PdfWriter.getInstance(document, new FileOutputStream(outputPath));
@@ -45,13 +53,8 @@ public class PdfReportGenerator implements ReportGenerator {
             
             // Add report parameters
             addReportParameters(document, requestDto);
-            
-            // Add appointments table
-            addAppointmentsTable(document, appointments);
-            
-            document.close();
-            
-            log.info("PDF report successfully generated at: {}", outputPath);
+
+            return new PdfAppointmentReportWriter(document, outputPath);
             
         } catch (Exception e) {
             log.error("Failed to create PDF file", e);
@@ -59,6 +62,74 @@ public class PdfReportGenerator implements ReportGenerator {
         }
     }
 
+    /**
+     * Writes the appointments table as an iText large table: rows added so far are flushed to
+     * the document after each page, so they do not accumulate in memory
+     */
+    private class PdfAppointmentReportWriter implements AppointmentReportWriter {
+
+        private final Document document;
+        private final String outputPath;
+        private PdfPTable table;
+        private long written;
+        private boolean totalKnown;
+        private AppointmentStatsDto summary;
+
+        PdfAppointmentReportWriter(Document document, String outputPath) {
+            this.document = document;
+            this.outputPath = outputPath;
+        }
+
+        @Override
+        public void write(List<AppointmentDto> appointments, long totalAppointments) {
+            try {
+                if (table == null) {
+                    totalKnown = totalAppointments >= 0;
+                    table = startAppointmentsTable(document, totalAppointments);
+                }
+                addAppointmentRows(table, appointments);
+                written += appointments.size();
+                document.add(table);
+            } catch (DocumentException e) {
+                log.error("Failed to create PDF file", e);
+                throw new RuntimeException("Failed to create PDF file: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void writeSummary(AppointmentStatsDto summary) {
+            this.summary = summary;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (table == null) {
+                    totalKnown = true;
+                    table = startAppointmentsTable(document, 0);
+                }
+                table.setComplete(true);
+                document.add(table);
+                if (!totalKnown) {
+                    // The heading could not show the count, so close the table with it
+                    Paragraph total = new Paragraph("Total Appointments: " + written, HEADER_FONT);
+                    total.setSpacingBefore(10);
+                    document.add(total);
+                }
+                if (summary != null) {
+                    addSummary(document, summary);
+                }
+                document.close();
+                
+                log.info("PDF report successfully generated at: {}", outputPath);
+                
+            } catch (Exception e) {
+                log.error("Failed to create PDF file", e);
+                throw new RuntimeException("Failed to create PDF file: " + e.getMessage(), e);
+            }
+        }
+    }
+
     private void addReportParameters(Document document, ReportRequestDto requestDto) throws DocumentException {
         Paragraph params = new Paragraph("Report Parameters:", HEADER_FONT);
         params.setSpacingAfter(10);
@@ -90,14 +161,42 @@ public class PdfReportGenerator implements ReportGenerator {
         document.add(generatedAt);
     }
 
-    private void addAppointmentsTable(Document document, List<AppointmentDto> appointments) throws DocumentException {
-        Paragraph tableTitle = new Paragraph("Appointments (" + appointments.size() + " total):", HEADER_FONT);
+    private void addSummary(Document document, AppointmentStatsDto summary) throws DocumentException {
+        Paragraph title = new Paragraph("Summary by Status:", HEADER_FONT);
+        title.setSpacingBefore(20);
+        title.setSpacingAfter(10);
+        document.add(title);
+
+        PdfPTable table = new PdfPTable(3);
+        table.setWidthPercentage(60);
+        table.setHorizontalAlignment(Element.ALIGN_LEFT);
+        table.addCell(createHeaderCell("Status"));
+        table.addCell(createHeaderCell("Appointments"));
+        table.addCell(createHeaderCell("Revenue"));
+        for (AppointmentStatsDto.Group group : summary.getGroups()) {
+            table.addCell(createCell(group.getKey(), false));
+            table.addCell(createCell(String.valueOf(group.getAppointmentCount()), false));
+            table.addCell(createCell("$" + group.getRevenue().toPlainString(), false));
+        }
+        table.addCell(createCell("Total", false));
+        table.addCell(createCell(String.valueOf(summary.getTotalAppointments()), false));
+        table.addCell(createCell("$" + summary.getTotalRevenue().toPlainString(), false));
+        document.add(table);
+    }
+
+    private PdfPTable startAppointmentsTable(Document document, long totalAppointments) throws DocumentException {
+        // A negative total means the count is not known until all appointments are written
+        Paragraph tableTitle = new Paragraph(totalAppointments >= 0
+                ? "Appointments (" + totalAppointments + " total):" : "Appointments:", HEADER_FONT);
         tableTitle.setSpacingAfter(10);
         document.add(tableTitle);
         
         PdfPTable table = new PdfPTable(6); // 6 columns
         table.setWidthPercentage(100);
         table.setSpacingBefore(10);
+        // Large table: rows are written out every time the incomplete table is added to the document
+        table.setComplete(false);
+        table.setHeaderRows(1);
         
         // Add headers
         table.addCell(createHeaderCell("Appointment Number"));
@@ -106,7 +205,10 @@ public class PdfReportGenerator implements ReportGenerator {
         table.addCell(createHeaderCell("Date & Time"));
         table.addCell(createHeaderCell("Status"));
         table.addCell(createHeaderCell("Notes"));
-        
+        return table;
+    }
+
+    private void addAppointmentRows(PdfPTable table, List<AppointmentDto> appointments) {
         // Add data rows
         for (AppointmentDto appointment : appointments) {
             table.addCell(createCell(appointment.getAppointmentNumber() != null ? appointment.getAppointmentNumber() : appointment.getId() != null ? appointment.getId() : "", false));
@@ -116,8 +218,6 @@ public class PdfReportGenerator implements ReportGenerator {
             table.addCell(createCell(appointment.getStatus() != null ? appointment.getStatus() : "N/A", false));
             table.addCell(createCell(appointment.getNotes() != null ? appointment.getNotes() : "", false));
         }
-        
-        document.add(table);
     }
 
     private PdfPCell createHeaderCell(String text) {
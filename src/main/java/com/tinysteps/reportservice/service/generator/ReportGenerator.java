@@ -18,4 +18,13 @@ public interface ReportGenerator {
      * @param requestDto the original report request with parameters
      */
     void generateAppointmentReport(List<AppointmentDto> appointments, String outputPath, ReportRequestDto requestDto);
+
+    /**
+     * Starts an appointment report that is written page by page
+     *
+     * @param outputPath path where the report file should be saved
+     * @param requestDto the original report request with parameters
+     * @return writer that must be closed to finish the report
+     */
+    AppointmentReportWriter openAppointmentReport(String outputPath, ReportRequestDto requestDto);
 }
\ No newline at end of file
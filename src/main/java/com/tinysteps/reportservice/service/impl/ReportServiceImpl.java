@@ -1,36 +1,71 @@
 package com.tinysteps.reportservice.service.impl;
 
-import com.tinysteps.reportservice.client.DoctorServiceClient;
-import com.tinysteps.reportservice.client.PatientServiceClient;
-import com.tinysteps.reportservice.client.ScheduleServiceClient;
-import com.tinysteps.reportservice.client.SessionServiceClient;
-import com.tinysteps.reportservice.client.UserServiceClient;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinysteps.reportservice.client.FetchCompleteness;
+import com.tinysteps.reportservice.config.WebClientConfig;
 import com.tinysteps.reportservice.entity.Report;
 import com.tinysteps.reportservice.model.*;
 import com.tinysteps.reportservice.repository.ReportRepository;
 import com.tinysteps.reportservice.service.ReportService;
+import com.tinysteps.reportservice.service.admission.AdmissionRejectedException;
+import com.tinysteps.reportservice.service.admission.ReportAdmissionController;
+import com.tinysteps.reportservice.service.aggregate.DailyAppointmentAggregates;
+import com.tinysteps.reportservice.service.enrichment.AppointmentEnricher;
+import com.tinysteps.reportservice.service.enrichment.ReportEnrichment;
+import com.tinysteps.reportservice.service.fetch.EnrichedDayCache;
+import com.tinysteps.reportservice.service.fetch.PartitionedAppointmentFetcher;
+import com.tinysteps.reportservice.service.jobs.ReportJobQueue;
+import com.tinysteps.reportservice.service.jobs.ReportLane;
+import com.tinysteps.reportservice.service.jobs.ReportLaneClassifier;
+import com.tinysteps.reportservice.service.jobs.ReportLeases;
+import com.tinysteps.reportservice.service.plan.AppointmentSpillFile;
+import com.tinysteps.reportservice.service.plan.ReportExecutionPlanner;
+import com.tinysteps.reportservice.service.plan.ReportPlan;
+import com.tinysteps.reportservice.service.generator.AppointmentReportWriter;
 import com.tinysteps.reportservice.service.generator.PdfReportGenerator;
 import com.tinysteps.reportservice.service.generator.ExcelReportGenerator;
+import com.tinysteps.reportservice.service.generator.ReportGenerator;
+import com.tinysteps.reportservice.service.replica.AppointmentReplica;
+import com.tinysteps.reportservice.service.reuse.ReportParameters;
 import com.tinysteps.reportservice.specification.ReportSpecification;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
@@ -38,14 +73,25 @@ import java.util.UUID;
 public class ReportServiceImpl implements ReportService {
 
     private final ReportRepository reportRepository;
-    private final ScheduleServiceClient scheduleServiceClient;
-    private final PatientServiceClient patientServiceClient;
-    private final DoctorServiceClient doctorServiceClient;
-    private final UserServiceClient userServiceClient;
-    private final SessionServiceClient sessionServiceClient;
+    private final PartitionedAppointmentFetcher partitionedAppointmentFetcher;
+    private final AppointmentEnricher appointmentEnricher;
+    private final EnrichedDayCache enrichedDayCache;
+    private final AppointmentReplica appointmentReplica;
+    private final DailyAppointmentAggregates dailyAggregates;
     private final PdfReportGenerator pdfReportGenerator;
     private final ExcelReportGenerator excelReportGenerator;
     private final KafkaTemplate<String, Map<String, Object>> kafkaTemplate;
+    private final ReportParameters reportParameters;
+    private final ObjectMapper objectMapper;
+    private final ReportJobQueue reportJobQueue;
+    private final ReportLaneClassifier laneClassifier;
+    private final ReportLeases reportLeases;
+    private final ReportExecutionPlanner executionPlanner;
+    private final ReportAdmissionController admissionController;
+    private final MeterRegistry meterRegistry;
+
+    // Generations running in this instance, by parameters hash, so identical requests can wait for them
+    private final Map<String, CompletableFuture<ReportResponseDto>> reportsInProgress = new ConcurrentHashMap<>();
 
     @Value("${report.storage.path}")
     private String reportStoragePath;
@@ -59,24 +105,267 @@ public class ReportServiceImpl implements ReportService {
     @Value("${kafka.topics.report-events}")
     private String reportEventsTopic;
 
+    @Value("${report.planner.spill-chunk-rows:500}")
+    private int spillChunkRows;
+
+    @Value("${kafka.topics.report-requests}")
+    private String reportRequestsTopic;
+
+    @Value("${report.async.dispatch:database}")
+    private String asyncDispatch;
+
+    @Value("${report.async.publish-timeout:10s}")
+    private Duration publishTimeout;
+
+    @Value("${report.admission.max-outstanding-per-user:5}")
+    private long maxOutstandingPerUser;
+
+    @Value("${report.admission.max-outstanding-per-branch:20}")
+    private long maxOutstandingPerBranch;
+
+    @Value("${report.admission.retry-after:PT30S}")
+    private Duration admissionRetryAfter;
+
+    @Value("${report.reuse.enabled:true}")
+    private boolean reuseEnabled;
+
+    @Value("${report.reuse.max-age:PT15M}")
+    private Duration reuseMaxAge;
+
+    @Value("${report.reuse.max-wait:PT5M}")
+    private Duration reuseMaxWait;
+
+    /**
+     * Generates a report, or returns an identical one: a completed report generated within the reuse
+     * window, or the result of an identical generation already running in this instance.
+     * Only reports whose lookups all succeeded are shared. A caller waits up to {@code max-wait} for the
+     * identical generation and generates its own report after that.
+     * Each save commits on its own, so waiting callers hold no database connection.
+     */
     @Override
-    @Transactional
     public ReportResponseDto generateReport(ReportRequestDto reportRequest) {
         log.info("Generating report of type: {}", reportRequest.getReportType());
 
-        // Create report entity
-        Report report = Report.builder()
+        String parametersHash = reportParameters.hash(reportParameters.canonicalize(reportRequest, authenticatedUserId()));
+        if (!reuseEnabled) {
+            return generate(reportRequest, parametersHash);
+        }
+
+        Optional<Report> reusable = findReusableReport(parametersHash, List.of("COMPLETED"));
+        if (reusable.isPresent()) {
+            log.info("Reusing report {} generated at {} for an identical request",
+                    reusable.get().getId(), reusable.get().getGeneratedAt());
+            meterRegistry.counter("report.reuse", "outcome", "completed").increment();
+            return mapToResponseDto(reusable.get());
+        }
+
+        CompletableFuture<ReportResponseDto> generation = new CompletableFuture<>();
+        CompletableFuture<ReportResponseDto> inProgress = reportsInProgress.putIfAbsent(parametersHash, generation);
+        if (inProgress != null) {
+            log.info("Waiting for the generation of an identical report already in progress");
+            meterRegistry.counter("report.reuse", "outcome", "in-progress").increment();
+            try {
+                ReportResponseDto shared = inProgress.get(reuseMaxWait.toMillis(), TimeUnit.MILLISECONDS);
+                if (Boolean.TRUE.equals(shared.getComplete())) {
+                    return shared;
+                }
+                log.info("Identical report {} is incomplete, generating this one separately", shared.getId());
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+            } catch (TimeoutException e) {
+                log.warn("Identical report still generating after {}, generating this one separately", reuseMaxWait);
+                meterRegistry.counter("report.reuse", "outcome", "wait-timeout").increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for an identical report", e);
+            }
+            return generate(reportRequest, parametersHash);
+        }
+
+        meterRegistry.counter("report.reuse", "outcome", "generated").increment();
+        try {
+            ReportResponseDto response = generate(reportRequest, parametersHash);
+            generation.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            generation.completeExceptionally(e);
+            throw e;
+        } finally {
+            reportsInProgress.remove(parametersHash, generation);
+        }
+    }
+
+    /**
+     * Saves the report as PENDING and queues it, in the report_jobs table or on the report-requests
+     * topic, for a worker on any instance. Identical reports that are completed,
+     * or pending or processing in any instance, are returned instead.
+     */
+    @Override
+    public ReportResponseDto submitReport(ReportRequestDto reportRequest) {
+        String parametersHash = reportParameters.hash(reportParameters.canonicalize(reportRequest, authenticatedUserId()));
+        if (reuseEnabled) {
+            Optional<Report> reusable = findReusableReport(parametersHash, List.of("COMPLETED", "PENDING", "PROCESSING"));
+            if (reusable.isPresent()) {
+                log.info("Returning {} report {} for an identical request", reusable.get().getStatus(), reusable.get().getId());
+                meterRegistry.counter("report.reuse", "outcome",
+                        "COMPLETED".equals(reusable.get().getStatus()) ? "completed" : "in-progress").increment();
+                return mapToResponseDto(reusable.get());
+            }
+        }
+
+        checkOutstandingReports(reportRequest);
+        ReportLaneClassifier.Classification classification = laneClassifier.classify(reportRequest);
+        Report report = newReport(reportRequest, parametersHash, "PENDING");
+        // Kept for the planner, so the worker does not probe schedule-service a second time
+        report.setEstimatedRows(classification.estimatedRows());
+        report = reportRepository.save(report);
+        Long reportId = report.getId();
+        try {
+            if ("kafka".equals(asyncDispatch)) {
+                publishReportRequest(report, reportRequest, classification.lane());
+            } else {
+                reportJobQueue.enqueue(reportId, reportRequest, classification.lane(),
+                        report.getSubmittedBy(), admissionCost(reportRequest));
+            }
+        } catch (RejectedExecutionException e) {
+            log.warn("Report job queue is full, rejecting report {}", reportId);
+            report.setStatus("FAILED");
+            reportRepository.save(report);
+            throw e;
+        } catch (RuntimeException e) {
+            log.error("Failed to queue report {}", reportId, e);
+            report.setStatus("FAILED");
+            reportRepository.save(report);
+            throw e;
+        }
+        log.info("Queued report {} of type {}", reportId, reportRequest.getReportType());
+        return mapToResponseDto(report);
+    }
+
+    /**
+     * Publishes the report to report-requests, keyed by branch, and waits for the broker to accept it
+     */
+    private void publishReportRequest(Report report, ReportRequestDto reportRequest, ReportLane lane) {
+        ReportRequestMessage message = ReportRequestMessage.builder()
+                .reportId(report.getId())
+                .request(reportRequest)
+                .lane(lane.name())
+                .queuedAt(Instant.now())
+                .build();
+        reportJobQueue.rememberContext(report.getId());
+        Map<String, Object> payload = objectMapper.convertValue(message, new TypeReference<>() {
+        });
+        try {
+            kafkaTemplate.send(reportRequestsTopic, report.getBranchId(), payload)
+                    .get(publishTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queuing report " + report.getId(), e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new RuntimeException("Failed to publish report " + report.getId() + " to " + reportRequestsTopic, e);
+        }
+    }
+
+    @Override
+    public boolean runReport(Long reportId, ReportRequestDto reportRequest, Duration timeout) {
+        Report report = reportRepository.findById(reportId)
+                .orElseThrow(() -> new RuntimeException("Report not found with id: " + reportId));
+        if ("COMPLETED".equals(report.getStatus())) {
+            // A worker finished it but died before removing the job
+            log.info("Report {} already completed, skipping", reportId);
+            return true;
+        }
+        if (!reportLeases.acquire(reportId)) {
+            log.info("Report {} is being generated by another worker, skipping", reportId);
+            meterRegistry.counter("report.leases.skipped").increment();
+            return false;
+        }
+        try {
+            report = reportRepository.findById(reportId).orElseThrow();
+            render(report, reportRequest, timeout);
+        } finally {
+            reportLeases.release(reportId);
+        }
+        return true;
+    }
+
+    /**
+     * Rejects a submission when its user or branch already has too many reports pending or processing
+     */
+    private void checkOutstandingReports(ReportRequestDto reportRequest) {
+        List<String> outstanding = List.of("PENDING", "PROCESSING");
+        String caller = authenticatedUserId();
+        if (caller != null) {
+            long byUser = reportRepository.count(Specification.where(ReportSpecification.byStatusIn(outstanding))
+                    .and(ReportSpecification.bySubmittedBy(caller)));
+            if (byUser >= maxOutstandingPerUser) {
+                meterRegistry.counter("report.admission.rejected", "reason", "user-outstanding").increment();
+                throw new AdmissionRejectedException("You already have " + byUser
+                        + " reports in progress, try again later", admissionRetryAfter);
+            }
+        }
+        String branchId = reportRequest.getBranchId() != null ? reportRequest.getBranchId() : "all";
+        long byBranch = reportRepository.count(Specification.where(ReportSpecification.byStatusIn(outstanding))
+                .and(ReportSpecification.byBranchId(branchId)));
+        if (byBranch >= maxOutstandingPerBranch) {
+            meterRegistry.counter("report.admission.rejected", "reason", "branch-outstanding").increment();
+            throw new AdmissionRejectedException("Branch " + branchId + " already has " + byBranch
+                    + " reports in progress, try again later", admissionRetryAfter);
+        }
+    }
+
+    private ReportResponseDto generate(ReportRequestDto reportRequest, String parametersHash) {
+        // Wait for a fair share of the generation slots before touching the database or downstream services
+        try (ReportAdmissionController.Permit permit = admissionController.admit(
+                authenticatedUserId(), reportRequest.getBranchId(), admissionCost(reportRequest))) {
+            Report report = reportRepository.save(newReport(reportRequest, parametersHash, "PROCESSING"));
+            return render(report, reportRequest, null);
+        }
+    }
+
+    /**
+     * Relative cost of a report for fair queuing, synchronous or queued: the days it covers, a year when unbounded
+     */
+    private static double admissionCost(ReportRequestDto reportRequest) {
+        if (reportRequest.getStartDate() == null || reportRequest.getEndDate() == null) {
+            return 366;
+        }
+        long days = ChronoUnit.DAYS.between(reportRequest.getStartDate(), reportRequest.getEndDate()) + 1;
+        return Math.min(Math.max(days, 1), 366);
+    }
+
+    /**
+     * The caller per-user limits apply to: the JWT's "id" claim, or its subject without one. The user ID in
+     * the request body is chosen by the client and would let it pick whose quota it uses.
+     */
+    private static String authenticatedUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof JwtAuthenticationToken jwtAuth) {
+            String id = jwtAuth.getToken().getClaimAsString("id");
+            return id != null ? id : jwtAuth.getName();
+        }
+        return authentication != null ? authentication.getName() : null;
+    }
+
+    private Report newReport(ReportRequestDto reportRequest, String parametersHash, String status) {
+        return Report.builder()
                 .title(generateReportTitle(reportRequest))
                 .reportType(reportRequest.getReportType())
                 .format(reportRequest.getFormat())
                 .userId(reportRequest.getUserId())
+                .submittedBy(authenticatedUserId())
                 .branchId(reportRequest.getBranchId() != null ? reportRequest.getBranchId() : "all")
-                .status("PROCESSING")
+                .status(status)
                 .generatedAt(LocalDateTime.now())
+                .parametersHash(parametersHash)
                 .build();
+    }
 
-        report = reportRepository.save(report);
-
+    /**
+     * Fetches, renders and stores the report's file, then marks it COMPLETED, or FAILED on any error,
+     * when it takes longer than the timeout or when schedule pages were lost along the way
+     */
+    private ReportResponseDto render(Report report, ReportRequestDto reportRequest, Duration timeout) {
         // Generate unique filename
         String filename = generateFilename(report);
         Path reportPath = Paths.get(reportStoragePath, filename);
@@ -96,18 +385,32 @@ public class ReportServiceImpl implements ReportService {
         try {
             // Fetch data based on report type
             if (reportRequest.getReportType() == ReportType.APPOINTMENT_SUMMARY) {
-                List<AppointmentDto> appointments = fetchAppointments(reportRequest);
-
-                // Generate report based on format
-                if (reportRequest.getFormat() == ReportFormat.PDF) {
-                    pdfReportGenerator.generateAppointmentReport(appointments, reportPath.toString(), reportRequest);
-                } else {
-                    excelReportGenerator.generateAppointmentReport(appointments, reportPath.toString(), reportRequest);
+                ReportGenerator generator = reportRequest.getFormat() == ReportFormat.PDF
+                        ? pdfReportGenerator : excelReportGenerator;
+
+                FetchCompleteness completeness = new FetchCompleteness();
+                ReportPlan plan = executionPlanner.plan(reportRequest, report.getEstimatedRows());
+                report.setExecutionPlan(plan.strategy().name());
+                report.setEstimatedRows(plan.estimatedRows() >= 0 ? plan.estimatedRows() : null);
+                report.setEstimatedBytes(plan.estimatedBytes() >= 0 ? plan.estimatedBytes() : null);
+
+                long rows = switch (plan.strategy()) {
+                    // Pages are enriched and rendered as they arrive, holding only a few pages at a time
+                    case PAGE_STREAMING -> renderAppointmentPages(reportRequest, generator, reportPath, timeout, completeness);
+                    case SPILL_TO_DISK -> renderSpilledAppointments(reportRequest, generator, reportPath, timeout, completeness);
+                    case IN_MEMORY -> renderAppointments(reportRequest, generator, reportPath, timeout, completeness);
+                };
+                if (completeness.isTruncated()) {
+                    throw new IllegalStateException("Appointments could not be fetched completely from schedule-service");
                 }
+                executionPlanner.recordActual(plan, rows);
 
                 // Update report status
                 report.setStatus("COMPLETED");
+                report.setComplete(completeness.isComplete());
                 report.setFilePath(reportPath.toString());
+                report.setActualRows(rows);
+                report.setFileSize(Files.size(reportPath));
                 reportRepository.save(report);
 
                 // Send notification via Kafka
@@ -119,6 +422,7 @@ public class ReportServiceImpl implements ReportService {
             }
         } catch (Exception e) {
             log.error("Failed to generate report", e);
+            deleteQuietly(reportPath);
             report.setStatus("FAILED");
             reportRepository.save(report);
 
@@ -126,6 +430,14 @@ public class ReportServiceImpl implements ReportService {
         }
     }
 
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", path, e.getMessage());
+        }
+    }
+
     @Override
     public ReportResponseDto getReportById(Long reportId) {
         Report report = reportRepository.findById(reportId)
@@ -134,135 +446,148 @@ public class ReportServiceImpl implements ReportService {
         return mapToResponseDto(report);
     }
 
-    private List<AppointmentDto> fetchAppointments(ReportRequestDto reportRequest) {
-        List<AppointmentDto> appointments = scheduleServiceClient.getAppointments(
-                reportRequest.getDoctorId(),
-                reportRequest.getPatientId(),
-                reportRequest.getBranchId(),
-                reportRequest.getStartDate(),
-                reportRequest.getEndDate()
-        );
-
-        // Enhance appointments with patient and doctor names
-        return appointments.stream()
-                .map(this::enhanceAppointmentWithNames)
-                .toList();
+    /**
+     * Newest report with the same parameters and one of the given statuses inside the reuse window.
+     * A completed report only counts while its file still exists.
+     */
+    private Optional<Report> findReusableReport(String parametersHash, List<String> statuses) {
+        LocalDateTime since = LocalDateTime.now().minus(reuseMaxAge);
+        return reportRepository.findAll(ReportSpecification.reusable(parametersHash, statuses, since),
+                        PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "generatedAt")))
+                .stream()
+                .filter(report -> !"COMPLETED".equals(report.getStatus())
+                        || (report.getFilePath() != null && Files.exists(Paths.get(report.getFilePath()))))
+                .findFirst();
     }
 
-    private AppointmentDto enhanceAppointmentWithNames(AppointmentDto appointment) {
-        try {
-            // Fetch patient name with timeout handling
-            if (appointment.getPatientId() != null) {
-                log.debug("Fetching patient details for patientId: {}", appointment.getPatientId());
-                try {
-                    patientServiceClient.getPatientById(appointment.getPatientId())
-                        .ifPresentOrElse(patient -> {
-                            log.debug("Found patient: {}, userId: {}", patient.getId(), patient.getUserId());
-                            if (patient.getUserId() != null) {
-                                try {
-                                    userServiceClient.getUserById(patient.getUserId())
-                                        .ifPresentOrElse(user -> {
-                                            String patientName = user.getFullName();
-                                            log.debug("Setting patient name: {}", patientName);
-                                            appointment.setPatientName(patientName);
-                                        }, () -> {
-                                            log.warn("User not found for userId: {}", patient.getUserId());
-                                            appointment.setPatientName("Patient ID: " + appointment.getPatientId());
-                                        });
-                                } catch (Exception e) {
-                                    log.warn("Timeout or error fetching user for userId: {}. Using fallback.", patient.getUserId(), e);
-                                    appointment.setPatientName("Patient ID: " + appointment.getPatientId());
-                                }
-                            } else {
-                                log.warn("Patient {} has no userId", patient.getId());
-                                appointment.setPatientName("Patient ID: " + appointment.getPatientId());
-                            }
-                        }, () -> {
-                            log.warn("Patient not found for patientId: {}", appointment.getPatientId());
-                            appointment.setPatientName("Patient ID: " + appointment.getPatientId());
-                        });
-                } catch (Exception e) {
-                    log.warn("Timeout or error fetching patient for patientId: {}. Using fallback.", appointment.getPatientId(), e);
-                    appointment.setPatientName("Patient ID: " + appointment.getPatientId());
-                }
-            }
+    private Mono<List<AppointmentDto>> fetchAppointments(ReportRequestDto reportRequest) {
+        return enrichedPages(reportRequest)
+                .concatMapIterable(AppointmentPage::getContent)
+                .collectList();
+    }
 
-            // Fetch doctor name with timeout handling
-            if (appointment.getDoctorId() != null) {
-                log.debug("Fetching doctor details for doctorId: {}", appointment.getDoctorId());
-                try {
-                    doctorServiceClient.getDoctorById(appointment.getDoctorId())
-                        .ifPresentOrElse(doctor -> {
-                            String doctorName = doctor.getFullName();
-                            log.debug("Setting doctor name: {}", doctorName);
-                            appointment.setDoctorName(doctorName);
-                        }, () -> {
-                            log.warn("Doctor not found for doctorId: {}", appointment.getDoctorId());
-                            appointment.setDoctorName("Doctor ID: " + appointment.getDoctorId());
-                        });
-                } catch (Exception e) {
-                    log.warn("Timeout or error fetching doctor for doctorId: {}. Using fallback.", appointment.getDoctorId(), e);
-                    appointment.setDoctorName("Doctor ID: " + appointment.getDoctorId());
-                }
-            }
+    /**
+     * The request's enriched pages, days already enriched by an earlier report from the day cache.
+     * The pages fetched share one enrichment, so each patient is resolved once per report, and its
+     * deduplication metrics are recorded once the last page is through.
+     */
+    private Flux<AppointmentPage> enrichedPages(ReportRequestDto reportRequest) {
+        return Flux.defer(() -> {
+            ReportEnrichment enrichment = appointmentEnricher.forReport();
+            return enrichedDayCache.enrichedPages(reportRequest, request -> fetchEnrichedPages(request, enrichment))
+                    .doOnComplete(enrichment::recordDeduplication);
+        });
+    }
 
-            // Fetch session type name with timeout handling
-            if (appointment.getSessionTypeId() != null) {
-                log.debug("Fetching session type details for sessionTypeId: {}", appointment.getSessionTypeId());
-                try {
-                    sessionServiceClient.getSessionTypeById(appointment.getSessionTypeId())
-                        .ifPresentOrElse(sessionType -> {
-                            String sessionTypeName = sessionType.getName();
-                            log.debug("Setting session type name: {}", sessionTypeName);
-                            appointment.setSessionTypeName(sessionTypeName);
-                        }, () -> {
-                            log.warn("Session type not found for sessionTypeId: {}", appointment.getSessionTypeId());
-                            appointment.setSessionTypeName("Session Type ID: " + appointment.getSessionTypeId());
-                        });
-                } catch (Exception e) {
-                    log.warn("Timeout or error fetching session type for sessionTypeId: {}. Using fallback.", appointment.getSessionTypeId(), e);
-                    appointment.setSessionTypeName("Session Type ID: " + appointment.getSessionTypeId());
-                }
-            }
+    /**
+     * Fetches the request's appointments and enhances each page with patient, doctor and session details
+     */
+    private Flux<AppointmentPage> fetchEnrichedPages(ReportRequestDto reportRequest, ReportEnrichment enrichment) {
+        return partitionedAppointmentFetcher.fetchAppointmentPages(reportRequest)
+                .concatMap(page -> enrichment.enrich(page.getContent())
+                        .map(enriched -> {
+                            page.setContent(enriched);
+                            return page;
+                        }), 1);
+    }
 
-            // Fetch session offering price with timeout handling
-            if (appointment.getSessionId() != null) {
-                log.debug("Fetching session offering details for sessionId: {}", appointment.getSessionId());
-                try {
-                    sessionServiceClient.getSessionOfferingById(appointment.getSessionId())
-                        .ifPresentOrElse(sessionOffering -> {
-                            String price = sessionOffering.getPrice() != null ?
-                                "$" + sessionOffering.getPrice().toString() : "N/A";
-                            log.debug("Setting session offering price: {}", price);
-                            appointment.setSessionOfferingPrice(price);
-                        }, () -> {
-                            log.warn("Session offering not found for sessionId: {}", appointment.getSessionId());
-                            appointment.setSessionOfferingPrice("N/A");
-                        });
-                } catch (Exception e) {
-                    log.warn("Timeout or error fetching session offering for sessionId: {}. Using fallback.", appointment.getSessionId(), e);
-                    appointment.setSessionOfferingPrice("N/A");
-                }
+    /**
+     * Fetches and enriches every appointment, then renders them in one pass
+     *
+     * @return the number of appointments rendered
+     */
+    private long renderAppointments(ReportRequestDto reportRequest, ReportGenerator generator, Path reportPath,
+                                    Duration timeout, FetchCompleteness completeness) {
+        // Fetch and enrichment run without blocking; only the calling thread waits for the result
+        Mono<List<AppointmentDto>> fetch = fetchAppointments(reportRequest)
+                .contextWrite(FetchCompleteness.track(completeness))
+                .contextWrite(WebClientConfig.authenticationContext());
+        List<AppointmentDto> appointments = timeout != null ? fetch.block(timeout) : fetch.block();
+
+        try (AppointmentReportWriter writer = generator.openAppointmentReport(reportPath.toString(), reportRequest)) {
+            writer.write(appointments, appointments.size());
+            statusSummary(reportRequest).ifPresent(writer::writeSummary);
+        }
+        return appointments.size();
+    }
+
+    /**
+     * Spills the enriched appointments to a temporary file while they are fetched, then renders them
+     * from it with the exact total known, one page-size chunk at a time
+     *
+     * @return the number of appointments rendered
+     */
+    private long renderSpilledAppointments(ReportRequestDto reportRequest, ReportGenerator generator, Path reportPath,
+                                           Duration timeout, FetchCompleteness completeness) throws IOException {
+        try (AppointmentSpillFile spill = new AppointmentSpillFile(objectMapper, executionPlanner.spillDirectory())) {
+            Flux<AppointmentPage> spilling = enrichedPages(reportRequest)
+                    // Write off the event loop; a prefetch of 1 stops fetching when the disk falls behind
+                    .publishOn(Schedulers.boundedElastic(), 1)
+                    .doOnNext(page -> spill.append(page.getContent()))
+                    .contextWrite(FetchCompleteness.track(completeness))
+                    .contextWrite(WebClientConfig.authenticationContext());
+            if (timeout != null) {
+                spilling.blockLast(timeout);
+            } else {
+                spilling.blockLast();
             }
 
-            // Calculate and format duration
-            if (appointment.getStartTime() != null && appointment.getEndTime() != null) {
-                long minutes = ChronoUnit.MINUTES.between(appointment.getStartTime(), appointment.getEndTime());
-                String durationFormatted = minutes + " minutes";
-                log.debug("Calculated duration: {}", durationFormatted);
-                appointment.setDurationFormatted(durationFormatted);
-            } else if (appointment.getSessionDurationMinutes() != null) {
-                // Fallback to session duration if start/end times are not available
-                String durationFormatted = appointment.getSessionDurationMinutes() + " minutes";
-                log.debug("Using session duration: {}", durationFormatted);
-                appointment.setDurationFormatted(durationFormatted);
+            long total = spill.rows();
+            log.debug("Rendering {} spilled appointments", total);
+            try (AppointmentReportWriter writer = generator.openAppointmentReport(reportPath.toString(), reportRequest)) {
+                spill.readChunks(spillChunkRows, chunk -> writer.write(chunk, total));
+                statusSummary(reportRequest).ifPresent(writer::writeSummary);
             }
+            return total;
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to enhance appointment {} with names: {}", appointment.getId(), e.getMessage(), e);
+    /**
+     * @return the number of appointments rendered
+     */
+    private long renderAppointmentPages(ReportRequestDto reportRequest, ReportGenerator generator, Path reportPath,
+                                        Duration timeout, FetchCompleteness completeness) {
+        Optional<AppointmentStatsDto> summary = statusSummary(reportRequest);
+        AtomicLong rows = new AtomicLong();
+        Flux<AppointmentPage> rendering = Flux.using(
+                        () -> generator.openAppointmentReport(reportPath.toString(), reportRequest),
+                        // Days already enriched by an earlier report come from the day cache
+                        writer -> enrichedPages(reportRequest)
+                                // Render off the event loop; a prefetch of 1 stops fetching when rendering falls behind
+                                .publishOn(Schedulers.boundedElastic(), 1)
+                                .doOnNext(page -> {
+                                    log.debug("Rendering page {} of {} with {} appointments",
+                                            page.getNumber() + 1, page.getTotalPages(), page.getContent().size());
+                                    writer.write(page.getContent(), page.getTotalElements());
+                                    rows.addAndGet(page.getContent().size());
+                                })
+                                .doOnComplete(() -> summary.ifPresent(writer::writeSummary)),
+                        AppointmentReportWriter::close)
+                .contextWrite(FetchCompleteness.track(completeness))
+                .contextWrite(WebClientConfig.authenticationContext());
+        // A timed-out wait cancels the pipeline, which closes the writer
+        if (timeout != null) {
+            rendering.blockLast(timeout);
+        } else {
+            rendering.blockLast();
         }
+        return rows.get();
+    }
 
-        return appointment;
+    /**
+     * Status summary read from the daily aggregates, when they are complete for the report's range.
+     * The aggregates have no patient dimension, so patient reports get no summary.
+     */
+    private Optional<AppointmentStatsDto> statusSummary(ReportRequestDto reportRequest) {
+        if (!appointmentReplica.isEnabled() || reportRequest.getPatientId() != null
+                || reportRequest.getStartDate() == null || reportRequest.getEndDate() == null) {
+            return Optional.empty();
+        }
+        boolean replicaCovers = appointmentReplica.covers(
+                reportRequest.getBranchId(), reportRequest.getStartDate(), reportRequest.getEndDate());
+        AppointmentStatsDto stats = dailyAggregates.stats(reportRequest.getStartDate(), reportRequest.getEndDate(),
+                reportRequest.getBranchId(), reportRequest.getDoctorId(), "status", replicaCovers);
+        return stats.isComplete() ? Optional.of(stats) : Optional.empty();
     }
 
     private String generateReportTitle(ReportRequestDto reportRequest) {
@@ -323,6 +648,7 @@ public class ReportServiceImpl implements ReportService {
                 .downloadUrl(downloadUrl)
                 .generatedAt(report.getGeneratedAt())
                 .status(report.getStatus())
+                .complete(report.getComplete())
                 .build();
     }
 
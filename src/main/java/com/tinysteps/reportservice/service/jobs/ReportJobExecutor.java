@@ -0,0 +1,141 @@
+package com.tinysteps.reportservice.service.jobs;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded worker pools for asynchronous report generation, one per {@link ReportLane}.
+ * Jobs are claimed from the durable queue only while a lane has free workers, so the pools' own queues
+ * stay short. Jobs run with the security context of the submitting request when it is known, so
+ * downstream calls still carry the caller's JWT.
+ * Per lane, exposes the local queue depth, how long jobs waited since they were enqueued, how long they
+ * ran, and the end-to-end latency from enqueue to finish with its median and 99th percentile.
+ */
+@Slf4j
+@Component
+public class ReportJobExecutor {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<ReportLane, Lane> lanes = new EnumMap<>(ReportLane.class);
+
+    public ReportJobExecutor(MeterRegistry meterRegistry,
+                             @Value("${report.async.lanes.interactive.workers:2}") int interactiveWorkers,
+                             @Value("${report.async.lanes.interactive.priority:5}") int interactivePriority,
+                             @Value("${report.async.lanes.interactive.timeout:PT2M}") Duration interactiveTimeout,
+                             @Value("${report.async.lanes.bulk.workers:1}") int bulkWorkers,
+                             @Value("${report.async.lanes.bulk.priority:3}") int bulkPriority,
+                             @Value("${report.async.lanes.bulk.timeout:PT30M}") Duration bulkTimeout) {
+        this.meterRegistry = meterRegistry;
+        lanes.put(ReportLane.INTERACTIVE, new Lane(ReportLane.INTERACTIVE, interactiveWorkers, interactivePriority, interactiveTimeout));
+        lanes.put(ReportLane.BULK, new Lane(ReportLane.BULK, bulkWorkers, bulkPriority, bulkTimeout));
+    }
+
+    /**
+     * Workers of the lane neither busy nor already promised a queued job
+     */
+    public int availableWorkers(ReportLane lane) {
+        Lane pool = lanes.get(lane);
+        return Math.max(pool.workers - pool.executor.getActiveCount() - pool.executor.getQueue().size(), 0);
+    }
+
+    /**
+     * Longest a report of the lane may take to generate
+     */
+    public Duration timeout(ReportLane lane) {
+        return lanes.get(lane).timeout;
+    }
+
+    /**
+     * Hands a job to a worker of its lane
+     *
+     * @param queuedAt when the job entered the durable queue
+     * @param securityContext context to run the job with, or null to run it without one
+     * @throws RejectedExecutionException when all workers are taken or the pool is shutting down
+     */
+    public void submit(ReportLane lane, Long reportId, Instant queuedAt, SecurityContext securityContext, Runnable job) {
+        Lane pool = lanes.get(lane);
+        Runnable task = () -> {
+            long startedAt = System.nanoTime();
+            pool.waitTimer.record(Duration.between(queuedAt, Instant.now()));
+            String outcome = "completed";
+            try {
+                job.run();
+            } catch (RuntimeException e) {
+                outcome = "failed";
+                log.error("Report job {} failed: {}", reportId, e.getMessage());
+            } finally {
+                meterRegistry.timer("report.jobs.run", "lane", pool.tag, "outcome", outcome)
+                        .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                pool.latency.record(Duration.between(queuedAt, Instant.now()));
+            }
+        };
+        pool.executor.execute(securityContext != null ? new DelegatingSecurityContextRunnable(task, securityContext) : task);
+        log.debug("Queued report job {} in the {} lane ({} waiting)", reportId, pool.tag, pool.executor.getQueue().size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Jobs not started yet are dropped; their leases expire and another worker claims them
+        for (Lane lane : lanes.values()) {
+            int abandoned = lane.executor.shutdownNow().size();
+            if (abandoned > 0) {
+                log.warn("Shutting down with {} {} report job(s) still queued", abandoned, lane.tag);
+            }
+        }
+    }
+
+    private class Lane {
+
+        private final String tag;
+        private final int workers;
+        private final Duration timeout;
+        private final ThreadPoolExecutor executor;
+        private final Timer waitTimer;
+        private final Timer latency;
+
+        Lane(ReportLane lane, int workers, int priority, Duration timeout) {
+            this.tag = lane.name().toLowerCase(Locale.ROOT);
+            this.workers = workers;
+            this.timeout = timeout;
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("report-" + tag + "-");
+            threadFactory.setThreadPriority(priority);
+            this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(workers), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+            this.waitTimer = Timer.builder("report.jobs.wait")
+                    .description("Time report jobs spent queued, on any instance, before a worker picked them up")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+            this.latency = Timer.builder("report.lane.latency")
+                    .description("Time from enqueueing a report to finishing it")
+                    .tag("lane", tag)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            Gauge.builder("report.jobs.queue.depth", executor, pool -> pool.getQueue().size())
+                    .description("Report jobs handed to the lane and waiting for a worker")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+            Gauge.builder("report.jobs.active", executor, ThreadPoolExecutor::getActiveCount)
+                    .description("Report jobs being generated")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.tinysteps.reportservice.service.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tinysteps.reportservice.entity.ReportJob;
+import com.tinysteps.reportservice.model.ReportRequestDto;
+import com.tinysteps.reportservice.repository.ReportJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Durable report job queue in the {@code report_jobs} table, shared by every instance.
+ * Claims lock rows with {@code FOR UPDATE SKIP LOCKED}, so concurrent workers never take the same job,
+ * and give each claimed job a lease its worker keeps renewing. Jobs of a crashed worker become
+ * claimable again once their lease expires.
+ * Like synchronous admission, each lane is a weighted fair queue. A job is stamped on enqueue with the
+ * virtual finish {@code max(lane's virtual time, user's last finish) + cost / weight}, with the same
+ * {@code report.admission.user-weights}, and claims take the earliest finish first, so a user queuing many
+ * long reports only delays their own. Reports dispatched over Kafka keep the order of their partition.
+ * Reports queued by this instance, here or on the report-requests topic, remember the submitting security
+ * context, so that a local worker can still call downstream services with the caller's JWT; reports
+ * generated elsewhere run without it.
+ */
+@Slf4j
+@Service
+public class ReportJobQueue {
+
+    static final String QUEUED = "QUEUED";
+    static final String RUNNING = "RUNNING";
+    private static final String ANONYMOUS = "anonymous";
+    // First key of the advisory locks on lanes; the second is the lane's ordinal
+    private static final int LANE_LOCK_ID = 0x6c616e65;
+
+    private final ReportJobRepository jobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final String owner = UUID.randomUUID().toString();
+    private final Cache<Long, SecurityContext> localContexts;
+
+    @Value("${report.async.queue-capacity:50}")
+    private long queueCapacity;
+
+    @Value("${report.async.lease:PT2M}")
+    private Duration lease;
+
+    @Value("#{${report.admission.user-weights:{:}}}")
+    private Map<String, Double> userWeights = Map.of();
+
+    public ReportJobQueue(ReportJobRepository jobRepository, TransactionTemplate transactionTemplate,
+                          ObjectMapper objectMapper,
+                          @Value("${report.async.local-context-ttl:PT1H}") Duration localContextTtl) {
+        this.jobRepository = jobRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.localContexts = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(localContextTtl)
+                .build();
+    }
+
+    /**
+     * Queues a report for the next free worker on any instance, behind the user's earlier jobs of the lane
+     *
+     * @param userId authenticated caller, or null when anonymous
+     * @param cost relative size of the report, as for admission
+     * @throws RejectedExecutionException when {@code queue-capacity} jobs are already waiting
+     */
+    public void enqueue(Long reportId, ReportRequestDto request, ReportLane lane, String userId, double cost) {
+        if (jobRepository.countByStatus(QUEUED) >= queueCapacity) {
+            throw new RejectedExecutionException("Report job queue is full");
+        }
+        String user = userId != null ? userId : ANONYMOUS;
+        ReportJob job = transactionTemplate.execute(status -> {
+            // Tags of concurrent enqueues into the lane would otherwise be computed from the same state
+            jobRepository.lockLane(LANE_LOCK_ID, lane.ordinal());
+            Double lastFinish = jobRepository.lastVirtualFinish(lane.name(), user);
+            double start = Math.max(jobRepository.virtualTime(lane.name()), lastFinish != null ? lastFinish : 0);
+            return jobRepository.save(ReportJob.builder()
+                    .reportId(reportId)
+                    .request(toJson(request))
+                    .status(QUEUED)
+                    .lane(lane.name())
+                    .submittedBy(user)
+                    .virtualStart(start)
+                    .virtualFinish(start + Math.max(cost, 1) / userWeights.getOrDefault(user, 1.0))
+                    .createdAt(Instant.now())
+                    .build());
+        });
+        rememberContext(job.getReportId());
+    }
+
+    /**
+     * Keeps the current security context for a local worker that generates the report
+     */
+    public void rememberContext(Long reportId) {
+        localContexts.put(reportId, SecurityContextHolder.getContext());
+    }
+
+    public void forgetContext(Long reportId) {
+        localContexts.invalidate(reportId);
+    }
+
+    /**
+     * Claims up to {@code limit} jobs of a lane for this instance, earliest virtual finish first,
+     * incrementing their attempts
+     */
+    public List<ReportJob> claim(ReportLane lane, int limit) {
+        Instant now = Instant.now();
+        List<ReportJob> claimed = transactionTemplate.execute(status -> {
+            List<ReportJob> jobs = jobRepository.lockClaimable(lane.name(), now, limit);
+            for (ReportJob job : jobs) {
+                if (RUNNING.equals(job.getStatus())) {
+                    log.warn("Reclaiming report job {} from {} after its lease expired at {}",
+                            job.getId(), job.getLeaseOwner(), job.getLeaseExpiresAt());
+                }
+                job.setStatus(RUNNING);
+                job.setAttempts(job.getAttempts() + 1);
+                job.setLeaseOwner(owner);
+                job.setLeaseExpiresAt(now.plus(lease));
+                job.setHeartbeatAt(now);
+            }
+            return jobRepository.saveAll(jobs);
+        });
+        return claimed != null ? claimed : List.of();
+    }
+
+    /**
+     * Extends the lease of a job this instance holds
+     *
+     * @return false when the lease was lost to another worker
+     */
+    public boolean renew(Long jobId) {
+        Instant now = Instant.now();
+        return jobRepository.renewLease(jobId, owner, now, now.plus(lease)) > 0;
+    }
+
+    /**
+     * Puts a claimed job back in the queue without counting the attempt
+     */
+    public void release(Long jobId) {
+        jobRepository.release(jobId, owner);
+    }
+
+    /**
+     * Keeps a claimed job whose report another worker is still generating, without counting the attempt.
+     * It becomes claimable again when its lease runs out, and is then finished or run if that worker died.
+     */
+    public void postpone(Long jobId) {
+        jobRepository.postpone(jobId, owner, Instant.now().plus(lease));
+    }
+
+    /**
+     * Removes a job whose report finished, if this instance still holds it
+     */
+    public void finish(ReportJob job) {
+        forgetContext(job.getReportId());
+        if (jobRepository.deleteClaimed(job.getId(), owner) == 0) {
+            log.warn("Report job {} finished after its lease was taken over by another worker", job.getId());
+        }
+    }
+
+    public long pendingCount(ReportLane lane) {
+        return jobRepository.countByStatusAndLane(QUEUED, lane.name());
+    }
+
+    /**
+     * Security context of the request that queued the report, when that was this instance
+     */
+    public SecurityContext localContext(Long reportId) {
+        return localContexts.getIfPresent(reportId);
+    }
+
+    public ReportRequestDto requestOf(ReportJob job) {
+        try {
+            return objectMapper.readValue(job.getRequest(), ReportRequestDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable request of report job " + job.getId(), e);
+        }
+    }
+
+    private String toJson(ReportRequestDto request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize report request", e);
+        }
+    }
+}
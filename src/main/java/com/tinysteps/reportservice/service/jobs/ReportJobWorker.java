@@ -0,0 +1,129 @@
+package com.tinysteps.reportservice.service.jobs;
+
+import com.tinysteps.reportservice.entity.ReportJob;
+import com.tinysteps.reportservice.repository.ReportRepository;
+import com.tinysteps.reportservice.service.ReportService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pulls report jobs from the durable queue whenever local workers of their lane are free and keeps the
+ * leases of running jobs alive from the lease thread of {@link ReportLeases}. The interactive lane is polled
+ * first. Every instance runs one, so adding instances adds workers.
+ * A job that has already been claimed {@code max-attempts} times, each time by a worker that died
+ * before finishing it, fails its report instead of being retried again.
+ */
+@Slf4j
+@Component
+public class ReportJobWorker {
+
+    private final ReportJobQueue jobQueue;
+    private final ReportJobExecutor jobExecutor;
+    private final ReportService reportService;
+    private final ReportRepository reportRepository;
+    private final MeterRegistry meterRegistry;
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+    private final Map<ReportLane, AtomicLong> pendingJobs = new EnumMap<>(ReportLane.class);
+
+    @Value("${report.async.enabled:true}")
+    private boolean enabled;
+
+    @Value("${report.async.dispatch:database}")
+    private String dispatch;
+
+    @Value("${report.async.max-attempts:3}")
+    private int maxAttempts;
+
+    public ReportJobWorker(ReportJobQueue jobQueue, ReportJobExecutor jobExecutor, ReportService reportService,
+                           ReportRepository reportRepository, ReportLeases reportLeases, MeterRegistry meterRegistry) {
+        this.jobQueue = jobQueue;
+        this.jobExecutor = jobExecutor;
+        this.reportService = reportService;
+        this.reportRepository = reportRepository;
+        this.meterRegistry = meterRegistry;
+        for (ReportLane lane : ReportLane.values()) {
+            AtomicLong pending = new AtomicLong();
+            pendingJobs.put(lane, pending);
+            Gauge.builder("report.jobs.pending", pending, AtomicLong::get)
+                    .description("Report jobs waiting in the durable queue across all instances, as of the last poll")
+                    .tag("lane", lane.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+        reportLeases.addHeartbeat(this::heartbeat);
+    }
+
+    @Scheduled(fixedDelayString = "${report.async.poll-interval:PT2S}")
+    public void poll() {
+        if (!enabled || !"database".equals(dispatch)) {
+            return;
+        }
+        for (ReportLane lane : ReportLane.values()) {
+            int available = jobExecutor.availableWorkers(lane);
+            if (available > 0) {
+                List<ReportJob> claimed = jobQueue.claim(lane, available);
+                claimed.forEach(job -> start(lane, job));
+            }
+            pendingJobs.get(lane).set(jobQueue.pendingCount(lane));
+        }
+    }
+
+    private void heartbeat() {
+        for (Long jobId : runningJobs) {
+            if (!jobQueue.renew(jobId)) {
+                log.warn("Lost the lease of report job {}; another worker may generate it again", jobId);
+                meterRegistry.counter("report.jobs.leases.lost").increment();
+            }
+        }
+    }
+
+    private void start(ReportLane lane, ReportJob job) {
+        if (job.getAttempts() > maxAttempts) {
+            log.error("Report job {} for report {} was abandoned {} times, failing it", job.getId(),
+                    job.getReportId(), job.getAttempts() - 1);
+            reportRepository.findById(job.getReportId()).ifPresent(report -> {
+                report.setStatus("FAILED");
+                reportRepository.save(report);
+            });
+            jobQueue.finish(job);
+            return;
+        }
+        if (job.getAttempts() > 1) {
+            meterRegistry.counter("report.jobs.reclaimed").increment();
+        }
+
+        runningJobs.add(job.getId());
+        Duration timeout = jobExecutor.timeout(lane);
+        try {
+            jobExecutor.submit(lane, job.getReportId(), job.getCreatedAt(), jobQueue.localContext(job.getReportId()), () -> {
+                boolean handled = true;
+                try {
+                    handled = reportService.runReport(job.getReportId(), jobQueue.requestOf(job), timeout);
+                } finally {
+                    runningJobs.remove(job.getId());
+                    if (handled) {
+                        jobQueue.finish(job);
+                    } else {
+                        jobQueue.postpone(job.getId());
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            runningJobs.remove(job.getId());
+            jobQueue.release(job.getId());
+        }
+    }
+}
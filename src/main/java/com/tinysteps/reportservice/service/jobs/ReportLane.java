@@ -0,0 +1,10 @@
+package com.tinysteps.reportservice.service.jobs;
+
+/**
+ * Worker lane of an asynchronous report. Small reports run in the interactive lane so they never
+ * queue behind bulk exports; each lane has its own workers, thread priority and time limit.
+ */
+public enum ReportLane {
+    INTERACTIVE,
+    BULK
+}
@@ -0,0 +1,74 @@
+package com.tinysteps.reportservice.service.jobs;
+
+import com.tinysteps.reportservice.client.ScheduleServiceClient;
+import com.tinysteps.reportservice.config.WebClientConfig;
+import com.tinysteps.reportservice.model.ReportRequestDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Picks the lane of a report up front from a cheap size estimate. Reports without a date range or
+ * spanning more than {@code interactive-max-days} go to the bulk lane straight away; for the rest a
+ * one-appointment schedule-service page is fetched and its total compared with
+ * {@code interactive-max-rows}. When the probe fails or reports no total, the date span decides alone.
+ * The probed total is handed back with the lane so the execution planner does not probe again.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReportLaneClassifier {
+
+    private final ScheduleServiceClient scheduleServiceClient;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${report.async.lanes.interactive-max-days:31}")
+    private long interactiveMaxDays;
+
+    @Value("${report.async.lanes.interactive-max-rows:2000}")
+    private long interactiveMaxRows;
+
+    @Value("${report.async.lanes.probe-timeout:3s}")
+    private Duration probeTimeout;
+
+    public Classification classify(ReportRequestDto request) {
+        Classification classification = estimate(request);
+        meterRegistry.counter("report.lanes.classified", "lane",
+                classification.lane().name().toLowerCase(Locale.ROOT)).increment();
+        return classification;
+    }
+
+    private Classification estimate(ReportRequestDto request) {
+        if (request.getStartDate() == null || request.getEndDate() == null
+                || ChronoUnit.DAYS.between(request.getStartDate(), request.getEndDate()) + 1 > interactiveMaxDays) {
+            return new Classification(ReportLane.BULK, null);
+        }
+        Long rows;
+        try {
+            rows = scheduleServiceClient.countAppointments(request.getDoctorId(), request.getPatientId(),
+                            request.getBranchId(), request.getStartDate(), request.getEndDate())
+                    .contextWrite(WebClientConfig.authenticationContext())
+                    .block(probeTimeout);
+        } catch (RuntimeException e) {
+            log.debug("Size probe failed, classifying by date span only: {}", e.getMessage());
+            return new Classification(ReportLane.INTERACTIVE, null);
+        }
+        if (rows != null && rows > interactiveMaxRows) {
+            log.debug("Report of {} appointments goes to the bulk lane", rows);
+            return new Classification(ReportLane.BULK, rows);
+        }
+        return new Classification(ReportLane.INTERACTIVE, rows);
+    }
+
+    /**
+     * @param estimatedRows the probed appointment total, null when there was no probe or it failed
+     */
+    public record Classification(ReportLane lane, Long estimatedRows) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.tinysteps.reportservice.service.jobs;
+
+import com.tinysteps.reportservice.repository.ReportRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leases on the reports this instance is generating. A report can only be moved to PROCESSING when it is
+ * not already PROCESSING under another worker's live lease, so a reclaimed job or a redelivered request
+ * does not generate it a second time.
+ * Leases are renewed on a dedicated thread rather than the shared scheduler, where long tasks such as
+ * replica seeding or aggregate refreshes would delay the renewals until the leases ran out.
+ */
+@Slf4j
+@Component
+public class ReportLeases {
+
+    private final ReportRepository reportRepository;
+    private final MeterRegistry meterRegistry;
+    private final Duration lease;
+    private final String owner = UUID.randomUUID().toString();
+    private final Set<Long> heldReports = ConcurrentHashMap.newKeySet();
+    private final List<Runnable> heartbeats = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService heartbeatScheduler =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("report-lease-"));
+
+    public ReportLeases(ReportRepository reportRepository, MeterRegistry meterRegistry,
+                        @Value("${report.async.lease:PT2M}") Duration lease,
+                        @Value("${report.async.heartbeat-interval:PT30S}") Duration heartbeatInterval) {
+        this.reportRepository = reportRepository;
+        this.meterRegistry = meterRegistry;
+        this.lease = lease;
+        heartbeats.add(this::renewReports);
+        long interval = heartbeatInterval.toMillis();
+        heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Marks the report PROCESSING under a lease held by this instance
+     *
+     * @return false when the report already completed or another worker holds a live lease on it
+     */
+    public boolean acquire(Long reportId) {
+        Instant now = Instant.now();
+        if (reportRepository.startProcessing(reportId, owner, now, now.plus(lease)) == 0) {
+            return false;
+        }
+        heldReports.add(reportId);
+        return true;
+    }
+
+    /**
+     * Stops renewing the lease once the report is COMPLETED or FAILED
+     */
+    public void release(Long reportId) {
+        heldReports.remove(reportId);
+    }
+
+    /**
+     * Runs another renewal, such as the job queue's, on every heartbeat of the lease thread
+     */
+    public void addHeartbeat(Runnable renewal) {
+        heartbeats.add(renewal);
+    }
+
+    private void heartbeat() {
+        for (Runnable renewal : heartbeats) {
+            try {
+                renewal.run();
+            } catch (RuntimeException e) {
+                // An exception would cancel every later heartbeat
+                log.warn("Lease renewal failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void renewReports() {
+        Instant now = Instant.now();
+        for (Long reportId : heldReports) {
+            if (reportRepository.renewLease(reportId, owner, now.plus(lease)) == 0) {
+                log.warn("Lost the lease of report {}; another worker may generate it again", reportId);
+                meterRegistry.counter("report.leases.lost").increment();
+                heldReports.remove(reportId);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatScheduler.shutdownNow();
+    }
+}
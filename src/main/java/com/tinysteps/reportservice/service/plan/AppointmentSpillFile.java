@@ -0,0 +1,85 @@
+package com.tinysteps.reportservice.service.plan;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.tinysteps.reportservice.model.AppointmentDto;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Temporary file of enriched appointments, one JSON document per line. Rows are appended while they are
+ * fetched and read back in chunks once the fetch is done, so the renderer knows the exact total up front
+ * while the heap only ever holds one chunk. The file is deleted on close.
+ */
+public class AppointmentSpillFile implements Closeable {
+
+    static final String GLOB = "appointments-*.jsonl";
+
+    private final ObjectMapper objectMapper;
+    private final Path path;
+    private final SequenceWriter out;
+    private long rows;
+
+    public AppointmentSpillFile(ObjectMapper objectMapper, Path directory) throws IOException {
+        this.objectMapper = objectMapper;
+        Files.createDirectories(directory);
+        this.path = Files.createTempFile(directory, "appointments-", ".jsonl");
+        this.out = objectMapper.writerFor(AppointmentDto.class)
+                .withRootValueSeparator("\n")
+                .writeValues(new BufferedOutputStream(Files.newOutputStream(path)));
+    }
+
+    public void append(List<AppointmentDto> appointments) {
+        try {
+            out.writeAll(appointments);
+            rows += appointments.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill appointments to " + path, e);
+        }
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * Finishes writing and hands the spilled rows back in order, {@code chunkSize} at a time
+     */
+    public void readChunks(int chunkSize, Consumer<List<AppointmentDto>> consumer) throws IOException {
+        out.close();
+        try (MappingIterator<AppointmentDto> in = objectMapper.readerFor(AppointmentDto.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValues(path.toFile())) {
+            List<AppointmentDto> chunk = new ArrayList<>(chunkSize);
+            while (in.hasNextValue()) {
+                chunk.add(in.nextValue());
+                if (chunk.size() == chunkSize) {
+                    consumer.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
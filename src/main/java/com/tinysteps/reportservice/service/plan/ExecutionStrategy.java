@@ -0,0 +1,13 @@
+package com.tinysteps.reportservice.service.plan;
+
+/**
+ * How a report's appointments are held between fetching and rendering
+ */
+public enum ExecutionStrategy {
+    /** Fetch and enrich everything, then render it in one pass */
+    IN_MEMORY,
+    /** Enrich and render page by page while fetching, holding a few pages at a time */
+    PAGE_STREAMING,
+    /** Write enriched rows to a temporary file while fetching, then render from it with the exact total known */
+    SPILL_TO_DISK
+}
@@ -0,0 +1,156 @@
+package com.tinysteps.reportservice.service.plan;
+
+import com.tinysteps.reportservice.client.ScheduleServiceClient;
+import com.tinysteps.reportservice.config.WebClientConfig;
+import com.tinysteps.reportservice.model.ReportRequestDto;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Chooses how to generate a report from an estimate of its size. The row count is the one the lane
+ * classifier already probed at submission when there is one, else the total of a one-appointment
+ * schedule-service page, or the date span times {@code default-rows-per-day} when the probe fails;
+ * the memory footprint is rows times {@code bytes-per-row}.
+ * Reports that fit in {@code in-memory-max-bytes}, and in a small share of the heap, are built in memory;
+ * reports above {@code spill-min-rows} are spilled to disk; everything else, including reports whose size
+ * cannot be estimated, is page-streamed.
+ * Estimates are compared with the actual row counts through {@link #recordActual}, for tuning.
+ * Spill files live in {@code spill-path}, local to the instance, and leftovers of a crashed run are
+ * deleted at startup.
+ */
+@Slf4j
+@Component
+public class ReportExecutionPlanner {
+
+    private final ScheduleServiceClient scheduleServiceClient;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary estimateRatio;
+
+    @Value("${report.planner.enabled:true}")
+    private boolean enabled;
+
+    @Value("${report.page-streaming.enabled:true}")
+    private boolean pageStreamingEnabled;
+
+    @Value("${report.planner.probe-timeout:3s}")
+    private Duration probeTimeout;
+
+    @Value("${report.planner.default-rows-per-day:50}")
+    private long defaultRowsPerDay;
+
+    @Value("${report.planner.bytes-per-row:1024}")
+    private long bytesPerRow;
+
+    @Value("${report.planner.in-memory-max-bytes:4MB}")
+    private DataSize inMemoryMaxBytes;
+
+    @Value("${report.planner.in-memory-max-heap-fraction:0.05}")
+    private double inMemoryMaxHeapFraction;
+
+    @Value("${report.planner.spill-min-rows:50000}")
+    private long spillMinRows;
+
+    @Value("${report.planner.spill-path:${java.io.tmpdir}/report-spill}")
+    private String spillPath;
+
+    public ReportExecutionPlanner(ScheduleServiceClient scheduleServiceClient, MeterRegistry meterRegistry) {
+        this.scheduleServiceClient = scheduleServiceClient;
+        this.meterRegistry = meterRegistry;
+        this.estimateRatio = DistributionSummary.builder("report.plan.estimate.ratio")
+                .description("Actual rows of a report divided by the planner's estimate")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Deletes spill files left behind by a run that died mid-report
+     */
+    @PostConstruct
+    public void deleteSpillLeftovers() {
+        Path directory = spillDirectory();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        int deleted = 0;
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, AppointmentSpillFile.GLOB)) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+                deleted++;
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete spill leftovers in {}: {}", directory, e.getMessage());
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} leftover spill file(s) in {}", deleted, directory);
+        }
+    }
+
+    public Path spillDirectory() {
+        return Paths.get(spillPath);
+    }
+
+    /**
+     * @param knownRows the row count already probed for this report, or null to probe it here
+     */
+    public ReportPlan plan(ReportRequestDto request, Long knownRows) {
+        if (!enabled) {
+            return new ReportPlan(pageStreamingEnabled ? ExecutionStrategy.PAGE_STREAMING : ExecutionStrategy.IN_MEMORY, -1, -1);
+        }
+        long rows = knownRows != null ? knownRows : estimateRows(request);
+        long bytes = rows >= 0 ? rows * bytesPerRow : -1;
+        ExecutionStrategy strategy;
+        if (rows < 0) {
+            strategy = ExecutionStrategy.PAGE_STREAMING;
+        } else if (bytes <= inMemoryMaxBytes.toBytes()
+                && bytes <= Runtime.getRuntime().maxMemory() * inMemoryMaxHeapFraction) {
+            strategy = ExecutionStrategy.IN_MEMORY;
+        } else if (rows >= spillMinRows) {
+            strategy = ExecutionStrategy.SPILL_TO_DISK;
+        } else {
+            strategy = ExecutionStrategy.PAGE_STREAMING;
+        }
+        meterRegistry.counter("report.plans", "strategy", strategy.name().toLowerCase(Locale.ROOT)).increment();
+        log.info("Planned {} for about {} appointments ({} bytes)", strategy, rows, bytes);
+        return new ReportPlan(strategy, rows, bytes);
+    }
+
+    /**
+     * Records how many rows a planned report actually had
+     */
+    public void recordActual(ReportPlan plan, long actualRows) {
+        if (plan.estimatedRows() > 0) {
+            estimateRatio.record((double) actualRows / plan.estimatedRows());
+        }
+    }
+
+    private long estimateRows(ReportRequestDto request) {
+        try {
+            Long total = scheduleServiceClient.countAppointments(request.getDoctorId(), request.getPatientId(),
+                            request.getBranchId(), request.getStartDate(), request.getEndDate())
+                    .contextWrite(WebClientConfig.authenticationContext())
+                    .block(probeTimeout);
+            if (total != null) {
+                return total;
+            }
+        } catch (RuntimeException e) {
+            log.debug("Size probe failed, estimating from the date span: {}", e.getMessage());
+        }
+        if (request.getStartDate() == null || request.getEndDate() == null) {
+            return -1;
+        }
+        return (ChronoUnit.DAYS.between(request.getStartDate(), request.getEndDate()) + 1) * defaultRowsPerDay;
+    }
+}
@@ -0,0 +1,8 @@
+package com.tinysteps.reportservice.service.plan;
+
+/**
+ * The strategy chosen for one report and the size estimate it was chosen on.
+ * Estimates are negative when the size could not be estimated.
+ */
+public record ReportPlan(ExecutionStrategy strategy, long estimatedRows, long estimatedBytes) {
+}
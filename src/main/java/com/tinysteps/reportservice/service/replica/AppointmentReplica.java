@@ -0,0 +1,397 @@
+package com.tinysteps.reportservice.service.replica;
+
+import com.tinysteps.reportservice.client.ScheduleServiceClient;
+import com.tinysteps.reportservice.entity.AppointmentReplicaWatermark;
+import com.tinysteps.reportservice.entity.ReplicatedAppointment;
+import com.tinysteps.reportservice.model.AppointmentChangeEvent;
+import com.tinysteps.reportservice.model.AppointmentDto;
+import com.tinysteps.reportservice.model.AppointmentPage;
+import com.tinysteps.reportservice.repository.AppointmentReplicaWatermarkRepository;
+import com.tinysteps.reportservice.repository.ReplicatedAppointmentRepository;
+import com.tinysteps.reportservice.service.aggregate.DailyAppointmentAggregates;
+import com.tinysteps.reportservice.specification.ReplicatedAppointmentSpecification;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Optional local copy of schedule-service appointments in the reports database.
+ * Each configured branch (or "all") is seeded once from schedule-service over a window around today and
+ * recorded in a watermark; from then on appointment events keep the rows current, and the window's end is
+ * seeded forward as days pass. Date ranges inside a
+ * watermark that end before the last {@code recent-days} days are read locally with indexed range scans;
+ * everything else still goes to schedule-service.
+ * An event that carries no appointment state cannot be applied, so it drops the affected watermarks and
+ * the next seed run reloads those branches. Every change marks its days for the daily aggregates; the
+ * enriched day caches of all instances are invalidated by {@code AppointmentDayCacheListener}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AppointmentReplica {
+
+    private static final String ALL_BRANCHES = "all";
+    private static final Sort REPORT_ORDER = Sort.by("appointmentDate", "startTime", "id");
+    // Tombstones of appointments deleted before they were ever replicated have no known date
+    private static final LocalDate UNKNOWN_DATE = LocalDate.EPOCH;
+
+    private final ReplicatedAppointmentRepository appointmentRepository;
+    private final AppointmentReplicaWatermarkRepository watermarkRepository;
+    private final ScheduleServiceClient scheduleServiceClient;
+    private final DailyAppointmentAggregates dailyAggregates;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${report.replica.enabled:false}")
+    private boolean enabled;
+
+    @Value("${report.replica.recent-days:2}")
+    private int recentDays;
+
+    @Value("${report.replica.page-size:500}")
+    private int pageSize;
+
+    @Value("${report.replica.seed.branches:all}")
+    private List<String> seedBranches;
+
+    @Value("${report.replica.seed.days-back:400}")
+    private int seedDaysBack;
+
+    @Value("${report.replica.seed.days-ahead:90}")
+    private int seedDaysAhead;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the last date up to which appointments from {@code startDate} on can be read locally,
+     * or empty when not even {@code startDate} is covered. Blocks on the database.
+     */
+    public Optional<LocalDate> coveredUntil(String branchId, LocalDate startDate, LocalDate endDate) {
+        // Recent days still change without the events having necessarily arrived yet
+        return coveredUntil(branchId, startDate, endDate, LocalDate.now().minusDays(recentDays));
+    }
+
+    /**
+     * Whether the replica holds every appointment of the range, recent days included. Blocks on the database.
+     */
+    public boolean covers(String branchId, LocalDate startDate, LocalDate endDate) {
+        return coveredUntil(branchId, startDate, endDate, endDate)
+                .filter(until -> !until.isBefore(endDate))
+                .isPresent();
+    }
+
+    private Optional<LocalDate> coveredUntil(String branchId, LocalDate startDate, LocalDate endDate,
+                                             LocalDate servableUntil) {
+        if (!enabled || startDate == null || endDate == null) {
+            return Optional.empty();
+        }
+        LocalDate until = null;
+        for (String key : watermarkKeys(branchId)) {
+            Optional<AppointmentReplicaWatermark> watermark = watermarkRepository.findById(key);
+            if (watermark.isEmpty() || startDate.isBefore(watermark.get().getCoveredFrom())) {
+                continue;
+            }
+            LocalDate candidate = min(min(watermark.get().getCoveredTo(), servableUntil), endDate);
+            if (until == null || candidate.isAfter(until)) {
+                until = candidate;
+            }
+        }
+        return until != null && !until.isBefore(startDate) ? Optional.of(until) : Optional.empty();
+    }
+
+    /**
+     * Streams the locally held appointments in the range page by page, in report order.
+     * The queries run on the bounded elastic scheduler.
+     */
+    public Flux<AppointmentPage> fetchAppointmentPages(String doctorId, String patientId, String branchId,
+                                                       LocalDate startDate, LocalDate endDate) {
+        Specification<ReplicatedAppointment> spec = ReplicatedAppointmentSpecification.forReport(
+                doctorId, patientId, branchId, startDate, endDate);
+        return readPage(spec, PageRequest.of(0, pageSize, REPORT_ORDER))
+                .expand(page -> page.hasNext() ? readPage(spec, page.nextPageable()) : Mono.empty())
+                .map(page -> AppointmentPage.builder()
+                        .content(page.getContent().stream().map(AppointmentReplica::toAppointmentDto).collect(Collectors.toList()))
+                        .number(page.getNumber())
+                        .totalPages(page.getTotalPages())
+                        .totalElements(page.getTotalElements())
+                        .last(page.isLast())
+                        .build())
+                .doOnComplete(() -> meterRegistry.counter("report.replica.reads").increment());
+    }
+
+    private Mono<Page<ReplicatedAppointment>> readPage(Specification<ReplicatedAppointment> spec, Pageable pageable) {
+        return Mono.fromCallable(() -> appointmentRepository.findAll(spec, pageable))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Applies one appointment event. Deletions leave a tombstone; events without the appointment's
+     * state invalidate the watermarks the appointment may fall under.
+     */
+    public void apply(AppointmentChangeEvent event) {
+        AppointmentDto state = event.getAppointment() != null
+                ? AppointmentDto.fromScheduleAppointment(event.getAppointment()) : null;
+        String appointmentId = event.getAppointmentId() != null ? event.getAppointmentId()
+                : state != null ? state.getId() : null;
+        if (appointmentId == null) {
+            log.debug("Ignoring appointment event without an appointment ID: {}", event.getEventType());
+            return;
+        }
+        boolean deleted = event.getEventType() != null
+                && event.getEventType().toUpperCase(Locale.ROOT).endsWith("DELETED");
+        Instant now = Instant.now();
+
+        String outcome = transactionTemplate.execute(status -> {
+            Optional<ReplicatedAppointment> existing = appointmentRepository.findById(appointmentId);
+            existing.ifPresent(row -> dailyAggregates.markChanged(row.getAppointmentDate()));
+            if (deleted) {
+                // A seed still running must not bring back an appointment it has not written yet
+                ReplicatedAppointment row = existing.orElseGet(() -> tombstone(appointmentId, state));
+                row.setDeleted(true);
+                row.setChangedAt(now);
+                appointmentRepository.save(row);
+                touchWatermarks(row.getBranchId(), now);
+                return "deleted";
+            }
+            if (state == null || state.getAppointmentDate() == null) {
+                String branchId = existing.map(ReplicatedAppointment::getBranchId).orElse(null);
+                dropWatermarks(branchId);
+                return "unresolved";
+            }
+            state.setId(appointmentId);
+            appointmentRepository.save(keepPrice(toReplicatedAppointment(state, now), existing.orElse(null)));
+            dailyAggregates.markChanged(state.getAppointmentDate());
+            if (existing.isPresent() && existing.get().getBranchId() != null
+                    && !existing.get().getBranchId().equals(state.getBranchId())) {
+                touchWatermarks(existing.get().getBranchId(), now);
+            }
+            touchWatermarks(state.getBranchId(), now);
+            return "applied";
+        });
+        meterRegistry.counter("report.replica.events", "outcome", outcome).increment();
+        log.debug("Appointment {} {} in replica after {} event", appointmentId, outcome, event.getEventType());
+    }
+
+    /**
+     * Seeds every configured branch that has no watermark yet, including ones dropped by unresolved events,
+     * and extends the covered window of the others up to {@code days-ahead} from today
+     */
+    @Scheduled(fixedDelayString = "${report.replica.seed.interval:PT1H}",
+            initialDelayString = "${report.replica.seed.initial-delay:PT30S}")
+    public void seedMissing() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate horizon = LocalDate.now().plusDays(seedDaysAhead);
+        for (String branch : seedBranches) {
+            String key = branch.trim();
+            if (key.isEmpty()) {
+                continue;
+            }
+            Optional<AppointmentReplicaWatermark> watermark = watermarkRepository.findById(key);
+            if (watermark.isEmpty()) {
+                seed(key);
+            } else if (watermark.get().getCoveredTo().isBefore(horizon)) {
+                extend(watermark.get(), horizon);
+            }
+        }
+    }
+
+    private void seed(String branchKey) {
+        Instant seedStartedAt = Instant.now();
+        LocalDate from = LocalDate.now().minusDays(seedDaysBack);
+        LocalDate to = LocalDate.now().plusDays(seedDaysAhead);
+        if (!seedRange(branchKey, from, to, seedStartedAt)) {
+            return;
+        }
+        watermarkRepository.save(AppointmentReplicaWatermark.builder()
+                .branchId(branchKey)
+                .coveredFrom(from)
+                .coveredTo(to)
+                .seededAt(seedStartedAt)
+                .build());
+    }
+
+    // Events keep the covered days current; only the days past the old end have to be loaded
+    private void extend(AppointmentReplicaWatermark watermark, LocalDate to) {
+        LocalDate from = watermark.getCoveredTo().plusDays(1);
+        if (!seedRange(watermark.getBranchId(), from, to, Instant.now())) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> watermarkRepository.findById(watermark.getBranchId())
+                // Dropped by an unresolved event meanwhile; the next run seeds it again
+                .filter(current -> current.getCoveredTo().equals(watermark.getCoveredTo()))
+                .ifPresent(current -> {
+                    current.setCoveredTo(to);
+                    watermarkRepository.save(current);
+                }));
+    }
+
+    private boolean seedRange(String branchKey, LocalDate from, LocalDate to, Instant seedStartedAt) {
+        AtomicLong expected = new AtomicLong(-1);
+        AtomicLong written = new AtomicLong();
+        log.info("Seeding appointment replica for branch {} from {} to {}", branchKey, from, to);
+        try {
+            scheduleServiceClient.fetchAppointmentPages(null, null,
+                            ALL_BRANCHES.equals(branchKey) ? null : branchKey, from, to)
+                    .publishOn(Schedulers.boundedElastic(), 1)
+                    .doOnNext(page -> {
+                        expected.compareAndSet(-1, page.getTotalElements());
+                        written.addAndGet(page.getContent().size());
+                        transactionTemplate.executeWithoutResult(status -> seedPage(page.getContent(), seedStartedAt));
+                    })
+                    .blockLast();
+        } catch (Exception e) {
+            log.warn("Seeding appointment replica for branch {} failed: {}", branchKey, e.getMessage());
+            return false;
+        }
+        // The client stops early on timeouts; only a complete seed may claim coverage
+        if (expected.get() > 0 && written.get() < expected.get()) {
+            log.warn("Seeding appointment replica for branch {} received {} of {} appointments, not marking it covered",
+                    branchKey, written.get(), expected.get());
+            return false;
+        }
+        dailyAggregates.markChanged(from, to);
+        log.info("Seeded appointment replica for branch {} with {} appointments", branchKey, written.get());
+        return true;
+    }
+
+    private void seedPage(List<AppointmentDto> appointments, Instant seedStartedAt) {
+        Map<String, ReplicatedAppointment> existing = appointmentRepository
+                .findAllById(appointments.stream().map(AppointmentDto::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(ReplicatedAppointment::getId, Function.identity()));
+        List<ReplicatedAppointment> rows = appointments.stream()
+                .filter(appointment -> appointment.getId() != null && appointment.getAppointmentDate() != null)
+                // Rows written by events during the seed are newer than the page being seeded
+                .filter(appointment -> {
+                    ReplicatedAppointment row = existing.get(appointment.getId());
+                    return row == null || !row.getChangedAt().isAfter(seedStartedAt);
+                })
+                .map(appointment -> keepPrice(toReplicatedAppointment(appointment, seedStartedAt),
+                        existing.get(appointment.getId())))
+                .toList();
+        appointmentRepository.saveAll(rows);
+    }
+
+    private void touchWatermarks(String branchId, Instant eventAt) {
+        for (String key : watermarkKeys(branchId)) {
+            watermarkRepository.findById(key).ifPresent(watermark -> {
+                watermark.setLastEventAt(eventAt);
+                watermarkRepository.save(watermark);
+            });
+        }
+    }
+
+    private void dropWatermarks(String branchId) {
+        if (branchId == null) {
+            // Any branch may hold the appointment
+            log.warn("Appointment event without state for an unknown appointment, dropping all replica watermarks");
+            watermarkRepository.deleteAll();
+        } else {
+            log.warn("Appointment event without state in branch {}, dropping its replica watermarks", branchId);
+            watermarkRepository.deleteAllById(watermarkKeys(branchId));
+        }
+    }
+
+    // A branch's appointments are covered by its own watermark and by the "all" watermark
+    private static List<String> watermarkKeys(String branchId) {
+        if (branchId == null || ALL_BRANCHES.equalsIgnoreCase(branchId)) {
+            return List.of(ALL_BRANCHES);
+        }
+        return List.of(branchId, ALL_BRANCHES);
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static ReplicatedAppointment toReplicatedAppointment(AppointmentDto appointment, Instant changedAt) {
+        return ReplicatedAppointment.builder()
+                .id(appointment.getId())
+                .appointmentNumber(appointment.getAppointmentNumber())
+                .branchId(appointment.getBranchId())
+                .doctorId(appointment.getDoctorId())
+                .patientId(appointment.getPatientId())
+                .sessionTypeId(appointment.getSessionTypeId())
+                .sessionOfferingId(appointment.getSessionId())
+                .appointmentDate(appointment.getAppointmentDate())
+                .startTime(appointment.getStartTime())
+                .endTime(appointment.getEndTime())
+                .status(appointment.getStatus())
+                .consultationType(appointment.getConsultationType())
+                .notes(appointment.getNotes())
+                .cancellationReason(appointment.getCancellationReason())
+                .checkedInAt(appointment.getCheckedInAt())
+                .sessionDurationMinutes(appointment.getSessionDurationMinutes())
+                .deleted(false)
+                .changedAt(changedAt)
+                .build();
+    }
+
+    // The snapshotted price stays with the appointment until it moves to another session offering
+    private static ReplicatedAppointment keepPrice(ReplicatedAppointment row, ReplicatedAppointment previous) {
+        if (previous != null && Objects.equals(previous.getSessionOfferingId(), row.getSessionOfferingId())) {
+            row.setSessionOfferingPrice(previous.getSessionOfferingPrice());
+        }
+        return row;
+    }
+
+    private static ReplicatedAppointment tombstone(String appointmentId, AppointmentDto state) {
+        if (state != null && state.getAppointmentDate() != null) {
+            state.setId(appointmentId);
+            return toReplicatedAppointment(state, Instant.now());
+        }
+        return ReplicatedAppointment.builder()
+                .id(appointmentId)
+                .appointmentDate(UNKNOWN_DATE)
+                .build();
+    }
+
+    private static AppointmentDto toAppointmentDto(ReplicatedAppointment row) {
+        AppointmentDto appointment = new AppointmentDto();
+        appointment.setId(row.getId());
+        appointment.setAppointmentNumber(row.getAppointmentNumber());
+        appointment.setBranchId(row.getBranchId());
+        appointment.setPatientId(row.getPatientId());
+        appointment.setDoctorId(row.getDoctorId());
+        appointment.setSessionTypeId(row.getSessionTypeId());
+        appointment.setSessionId(row.getSessionOfferingId());
+        appointment.setAppointmentType(row.getConsultationType());
+        appointment.setAppointmentDate(row.getAppointmentDate());
+        appointment.setStartTime(row.getStartTime());
+        appointment.setEndTime(row.getEndTime());
+        appointment.setStatus(row.getStatus());
+        appointment.setConsultationType(row.getConsultationType());
+        appointment.setNotes(row.getNotes());
+        appointment.setCancellationReason(row.getCancellationReason());
+        appointment.setCheckedInAt(row.getCheckedInAt());
+        appointment.setSessionDurationMinutes(row.getSessionDurationMinutes());
+        return appointment;
+    }
+}
@@ -0,0 +1,77 @@
+package com.tinysteps.reportservice.service.reuse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinysteps.reportservice.model.ReportRequestDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Canonical form of a report request and its SHA-256 hash, which is all {@code Report} keeps of it.
+ * Requests that would produce the same file canonicalize to the same JSON: fields are written in a
+ * fixed order, IDs are trimmed, blank filters are dropped and a missing branch means "all".
+ * Unless reports may be shared across users, the authenticated caller is part of the canonical form;
+ * the user ID in the request body is chosen by the client and would let it pick up someone else's report.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReportParameters {
+
+    private static final String ALL_BRANCHES = "all";
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${report.reuse.across-users:false}")
+    private boolean acrossUsers;
+
+    public String canonicalize(ReportRequestDto request, String caller) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("reportType", request.getReportType());
+        fields.put("format", request.getFormat());
+        String branchId = trimToNull(request.getBranchId());
+        fields.put("branchId", branchId == null || ALL_BRANCHES.equalsIgnoreCase(branchId) ? ALL_BRANCHES : branchId);
+        putIfPresent(fields, "doctorId", trimToNull(request.getDoctorId()));
+        putIfPresent(fields, "patientId", trimToNull(request.getPatientId()));
+        putIfPresent(fields, "startDate", request.getStartDate() != null ? request.getStartDate().toString() : null);
+        putIfPresent(fields, "endDate", request.getEndDate() != null ? request.getEndDate().toString() : null);
+        if (!acrossUsers) {
+            putIfPresent(fields, "caller", trimToNull(caller));
+        }
+        try {
+            return objectMapper.writeValueAsString(fields);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize report parameters", e);
+        }
+    }
+
+    public String hash(String canonicalParameters) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonicalParameters.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void putIfPresent(Map<String, Object> fields, String name, Object value) {
+        if (value != null) {
+            fields.put(name, value);
+        }
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -0,0 +1,31 @@
+package com.tinysteps.reportservice.specification;
+
+import com.tinysteps.reportservice.entity.DailyAppointmentAggregate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+public class DailyAppointmentAggregateSpecification {
+
+    public static Specification<DailyAppointmentAggregate> byBranchId(String branchId) {
+        return (root, query, cb) ->
+                branchId == null || branchId.trim().isEmpty() || "all".equalsIgnoreCase(branchId)
+                        ? null : cb.equal(root.get("branchId"), branchId);
+    }
+
+    public static Specification<DailyAppointmentAggregate> byDoctorId(String doctorId) {
+        return (root, query, cb) ->
+                doctorId == null || doctorId.trim().isEmpty() ? null : cb.equal(root.get("doctorId"), doctorId);
+    }
+
+    public static Specification<DailyAppointmentAggregate> byAppointmentDateBetween(LocalDate startDate, LocalDate endDate) {
+        return (root, query, cb) -> cb.between(root.get("appointmentDate"), startDate, endDate);
+    }
+
+    public static Specification<DailyAppointmentAggregate> forStats(LocalDate startDate, LocalDate endDate,
+                                                                    String branchId, String doctorId) {
+        return Specification.where(byAppointmentDateBetween(startDate, endDate))
+                .and(byBranchId(branchId))
+                .and(byDoctorId(doctorId));
+    }
+}
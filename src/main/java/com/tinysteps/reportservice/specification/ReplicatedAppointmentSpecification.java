@@ -0,0 +1,42 @@
+package com.tinysteps.reportservice.specification;
+
+import com.tinysteps.reportservice.entity.ReplicatedAppointment;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+public class ReplicatedAppointmentSpecification {
+
+    public static Specification<ReplicatedAppointment> byBranchId(String branchId) {
+        return (root, query, cb) ->
+                branchId == null || branchId.trim().isEmpty() || "all".equalsIgnoreCase(branchId)
+                        ? null : cb.equal(root.get("branchId"), branchId);
+    }
+
+    public static Specification<ReplicatedAppointment> byDoctorId(String doctorId) {
+        return (root, query, cb) ->
+                doctorId == null || doctorId.trim().isEmpty() ? null : cb.equal(root.get("doctorId"), doctorId);
+    }
+
+    public static Specification<ReplicatedAppointment> byPatientId(String patientId) {
+        return (root, query, cb) ->
+                patientId == null || patientId.trim().isEmpty() ? null : cb.equal(root.get("patientId"), patientId);
+    }
+
+    public static Specification<ReplicatedAppointment> byAppointmentDateBetween(LocalDate startDate, LocalDate endDate) {
+        return (root, query, cb) -> cb.between(root.get("appointmentDate"), startDate, endDate);
+    }
+
+    public static Specification<ReplicatedAppointment> notDeleted() {
+        return (root, query, cb) -> cb.isFalse(root.get("deleted"));
+    }
+
+    public static Specification<ReplicatedAppointment> forReport(String doctorId, String patientId, String branchId,
+                                                                 LocalDate startDate, LocalDate endDate) {
+        return Specification.where(byAppointmentDateBetween(startDate, endDate))
+                .and(notDeleted())
+                .and(byBranchId(branchId))
+                .and(byDoctorId(doctorId))
+                .and(byPatientId(patientId));
+    }
+}
@@ -6,9 +6,14 @@ import org.springframework.data.jpa.domain.Specification;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 
 public class ReportSpecification {
 
+    public static Specification<Report> bySubmittedBy(String submittedBy) {
+        return (root, query, cb) -> cb.equal(root.get("submittedBy"), submittedBy);
+    }
+
     public static Specification<Report> byUserId(String userId) {
         return (root, query, cb) ->
                 userId == null || userId.trim().isEmpty() ? null : cb.equal(root.get("userId"), userId);
@@ -47,6 +52,14 @@ public class ReportSpecification {
                 status == null || status.trim().isEmpty() ? null : cb.equal(root.get("status"), status);
     }
 
+    public static Specification<Report> byParametersHash(String parametersHash) {
+        return (root, query, cb) -> cb.equal(root.get("parametersHash"), parametersHash);
+    }
+
+    public static Specification<Report> generatedAfter(LocalDateTime since) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("generatedAt"), since);
+    }
+
     // Composite specifications for common combinations
     public static Specification<Report> byBranchIdAndUserId(String branchId, String userId) {
         return Specification.where(byBranchId(branchId)).and(byUserId(userId));
@@ -68,6 +81,20 @@ public class ReportSpecification {
         return Specification.where(byGeneratedAtBetween(startDate, endDate)).and(byUserId(userId));
     }
 
+    public static Specification<Report> byStatusIn(Collection<String> statuses) {
+        return (root, query, cb) -> root.get("status").in(statuses);
+    }
+
+    // Completed reports only count when every lookup succeeded; pending and processing ones are not known yet
+    public static Specification<Report> completeUnlessRunning() {
+        return (root, query, cb) -> cb.or(cb.notEqual(root.get("status"), "COMPLETED"), cb.isTrue(root.get("complete")));
+    }
+
+    public static Specification<Report> reusable(String parametersHash, Collection<String> statuses, LocalDateTime since) {
+        return Specification.where(byParametersHash(parametersHash)).and(byStatusIn(statuses)).and(generatedAfter(since))
+                .and(completeUnlessRunning());
+    }
+
     public static Specification<Report> byDateRangeAndReportType(LocalDate startDate, LocalDate endDate, ReportType reportType) {
         return Specification.where(byGeneratedAtBetween(startDate, endDate)).and(byReportType(reportType));
     }
@@ -0,0 +1,165 @@
+package com.tinysteps.reportservice.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinysteps.reportservice.cache.NegativeLookupCaches;
+import com.tinysteps.reportservice.model.DoctorDto;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Batching, fallback and re-probing of the bulk lookups, through {@link DoctorServiceClient} against a
+ * {@link StubDownstreamServer}
+ */
+class BatchLookupSupportTest {
+
+    private static final String SINGLE = "/api/v1/doctors/";
+    private static final String BATCH = "/api/v1/doctors/batch";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private StubDownstreamServer server;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new StubDownstreamServer();
+        server.on("GET", SINGLE, (id, body) -> id.startsWith("missing")
+                ? StubDownstreamServer.Response.status(404)
+                : StubDownstreamServer.Response.json("{\"success\":true,\"data\":" + doctor(id) + "}"));
+        // Mirrors the ignore-exceptions of the doctor breaker in application.yml
+        circuitBreaker = CircuitBreaker.of("ts-doctor-service", CircuitBreakerConfig.custom()
+                .ignoreExceptions(WebClientResponseException.NotFound.class,
+                        WebClientResponseException.MethodNotAllowed.class,
+                        WebClientResponseException.NotImplemented.class)
+                .build());
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void sendsIdsInChunksOfTheBatchSize() {
+        supportBatches();
+        DoctorServiceClient client = client(Duration.ofMinutes(10));
+        List<String> ids = IntStream.range(0, 250).mapToObj(i -> "doctor-" + i).toList();
+
+        Map<String, DoctorDto> doctors = client.getDoctorsByIds(ids);
+
+        assertThat(doctors).hasSize(250);
+        assertThat(doctors.get("doctor-7").getName()).isEqualTo("Dr doctor-7");
+        assertThat(server.requests("POST", BATCH)).isEqualTo(3);
+        assertThat(server.requests("GET", SINGLE)).isZero();
+    }
+
+    @Test
+    void leavesIdsMissingFromABatchResponseOut() {
+        supportBatches();
+        DoctorServiceClient client = client(Duration.ofMinutes(10));
+
+        Map<String, DoctorDto> doctors = client.getDoctorsByIds(List.of("doctor-1", "missing-1"));
+
+        assertThat(doctors).containsOnlyKeys("doctor-1");
+        assertThat(server.requests("GET", SINGLE)).isZero();
+    }
+
+    @Test
+    void fallsBackToSingleCallsWithoutOpeningTheBreaker() {
+        server.on("POST", BATCH, (rest, body) -> StubDownstreamServer.Response.status(404));
+        DoctorServiceClient client = client(Duration.ofMinutes(10));
+
+        Map<String, DoctorDto> doctors = client.getDoctorsByIds(List.of("doctor-1", "doctor-2", "missing-1"));
+        Map<String, DoctorDto> again = client.getDoctorsByIds(List.of("doctor-3"));
+
+        assertThat(doctors).containsOnlyKeys("doctor-1", "doctor-2");
+        assertThat(again).containsOnlyKeys("doctor-3");
+        // The endpoint is skipped after the first 404 until the re-probe interval passes
+        assertThat(server.requests("POST", BATCH)).isEqualTo(1);
+        assertThat(server.requests("GET", SINGLE)).isEqualTo(4);
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isZero();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void probesTheBatchEndpointAgainAfterTheInterval() {
+        server.on("POST", BATCH, (rest, body) -> StubDownstreamServer.Response.status(501));
+        DoctorServiceClient client = client(Duration.ZERO);
+        client.getDoctorsByIds(List.of("doctor-1"));
+
+        supportBatches();
+        server.resetCounts();
+        Map<String, DoctorDto> doctors = client.getDoctorsByIds(List.of("doctor-2", "doctor-3"));
+
+        assertThat(doctors).containsOnlyKeys("doctor-2", "doctor-3");
+        assertThat(server.requests("POST", BATCH)).isEqualTo(1);
+        assertThat(server.requests("GET", SINGLE)).isZero();
+    }
+
+    @Test
+    void marksTheFetchDegradedWhenABatchFails() {
+        server.on("POST", BATCH, (rest, body) -> StubDownstreamServer.Response.status(500));
+        DoctorServiceClient client = client(Duration.ofMinutes(10));
+        FetchCompleteness completeness = new FetchCompleteness();
+
+        Map<String, DoctorDto> doctors = client.fetchDoctorsByIds(List.of("doctor-1"))
+                .contextWrite(FetchCompleteness.track(completeness))
+                .block();
+
+        assertThat(doctors).isEmpty();
+        assertThat(completeness.isComplete()).isFalse();
+        assertThat(completeness.isTruncated()).isFalse();
+    }
+
+    private void supportBatches() {
+        server.on("POST", BATCH, (rest, body) -> {
+            List<String> ids = objectMapper.readValue(body, new TypeReference<>() {
+            });
+            Set<String> found = ids.stream().filter(id -> !id.startsWith("missing")).collect(Collectors.toSet());
+            String data = found.stream().map(BatchLookupSupportTest::doctor).collect(Collectors.joining(","));
+            return StubDownstreamServer.Response.json("{\"success\":true,\"data\":[" + data + "]}");
+        });
+    }
+
+    private static String doctor(String id) {
+        return "{\"id\":\"" + id + "\",\"name\":\"Dr " + id + "\"}";
+    }
+
+    private DoctorServiceClient client(Duration reprobeAfter) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DoctorServiceClient client = new DoctorServiceClient(WebClient.create(), circuitBreaker,
+                Retry.of("ts-doctor-service", RetryConfig.custom().maxAttempts(1).build()),
+                TimeLimiter.of(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(5)).build()),
+                new NegativeLookupCaches(meterRegistry, Duration.ofMinutes(10), Duration.ofSeconds(30), 1, 1000),
+                meterRegistry);
+        ReflectionTestUtils.setField(client, "doctorServiceUrl", server.url("/api/v1/doctors"));
+        ReflectionTestUtils.setField(client, "doctorBatchUrl", server.url(BATCH));
+        ReflectionTestUtils.setField(client, "timeoutSeconds", 5);
+        ReflectionTestUtils.setField(client, "batchSize", 100);
+        ReflectionTestUtils.setField(client, "maxInFlight", 4);
+        ReflectionTestUtils.setField(client, "batchReprobeAfter", reprobeAfter);
+        client.initBatchLookup();
+        return client;
+    }
+}
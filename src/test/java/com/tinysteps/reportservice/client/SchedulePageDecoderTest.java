@@ -0,0 +1,89 @@
+package com.tinysteps.reportservice.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.tinysteps.reportservice.model.AppointmentDto;
+import com.tinysteps.reportservice.model.ScheduleServiceResponse;
+import com.tinysteps.reportservice.model.ScheduleServiceResponse.ScheduleAppointmentDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SchedulePageDecoderTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    @Test
+    void decodesRowsLikeTheMapperAcrossChunkBoundaries() throws Exception {
+        String page = SchedulePageDecodingBenchmark.schedulePage(300);
+        List<ScheduleAppointmentDto> expected = objectMapper.readValue(page, ScheduleServiceResponse.class)
+                .getData().getContent();
+
+        SchedulePageDecoder decoder = new SchedulePageDecoder(objectMapper);
+        List<ScheduleAppointmentDto> decoded = decode(decoder, page, 97);
+
+        assertThat(decoded).hasSize(300);
+        assertThat(decoded).usingRecursiveFieldByFieldElementComparator().isEqualTo(expected);
+        assertThat(decoder.getTotalElements()).isEqualTo(300);
+        assertThat(decoder.isLast()).isTrue();
+        AppointmentDto first = AppointmentDto.fromScheduleAppointment(decoded.get(0));
+        assertThat(first.getAppointmentDate()).isEqualTo(LocalDate.of(2025, 3, 1));
+        assertThat(first.getStartTime()).isEqualTo(LocalTime.of(8, 0));
+        assertThat(first.getEndTime()).isEqualTo(LocalTime.of(8, 14));
+        assertThat(first.getCheckedInAt()).isEqualTo(LocalDateTime.of(2025, 3, 1, 8, 55, 12));
+    }
+
+    @Test
+    void skipsNestedValuesAndKeepsNullsUnset() throws Exception {
+        String page = "{\"data\":{\"content\":[{\"id\":\"a-1\",\"doctor\":{\"id\":\"ignored\",\"tags\":[1,{}]},"
+                + "\"appointmentDate\":\"2025-03-01\",\"startTime\":null,\"checkedInAt\":null,"
+                + "\"sessionDurationMinutes\":30}],\"last\":true,\"totalPages\":1,\"totalElements\":1}}";
+
+        List<ScheduleAppointmentDto> decoded = decode(new SchedulePageDecoder(objectMapper), page, page.length());
+
+        assertThat(decoded).singleElement().satisfies(row -> {
+            assertThat(row.getId()).isEqualTo("a-1");
+            assertThat(row.getAppointmentDate()).isEqualTo(LocalDate.of(2025, 3, 1));
+            assertThat(row.getStartTime()).isNull();
+            assertThat(row.getCheckedInAt()).isNull();
+            assertThat(row.getSessionDurationMinutes()).isEqualTo(30);
+        });
+    }
+
+    @Test
+    void malformedDatesAreUnreadableResponses() throws Exception {
+        String page = "{\"data\":{\"content\":[{\"id\":\"a-1\",\"appointmentDate\":\"2025-02-30\"}]}}";
+        SchedulePageDecoder decoder = new SchedulePageDecoder(objectMapper);
+
+        assertThatThrownBy(() -> decode(decoder, page, page.length()))
+                .isInstanceOf(JsonProcessingException.class)
+                .hasMessageContaining("2025-02-30");
+    }
+
+    private static List<ScheduleAppointmentDto> decode(SchedulePageDecoder decoder, String page, int chunkBytes)
+            throws Exception {
+        byte[] body = page.getBytes(StandardCharsets.UTF_8);
+        List<ScheduleAppointmentDto> decoded = new ArrayList<>();
+        for (int from = 0; from < body.length; from += chunkBytes) {
+            byte[] chunk = Arrays.copyOfRange(body, from, Math.min(body.length, from + chunkBytes));
+            decoded.addAll(decoder.feed(DefaultDataBufferFactory.sharedInstance.wrap(chunk)));
+        }
+        decoded.addAll(decoder.endOfInput());
+        return decoded;
+    }
+}
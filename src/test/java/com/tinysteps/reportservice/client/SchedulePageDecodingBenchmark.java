@@ -0,0 +1,137 @@
+package com.tinysteps.reportservice.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.tinysteps.reportservice.model.ScheduleServiceResponse;
+import com.tinysteps.reportservice.model.ScheduleServiceResponse.ScheduleAppointmentDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding one schedule-service page: the former path, which buffered the body as a String and parsed it
+ * with a freshly built mapper, against {@link SchedulePageDecoder} fed with the body's 8 KB network chunks
+ * and the shared mapper. Run after {@code mvn test-compile} with
+ * {@code java -cp target/test-classes:target/classes:<test classpath> com.tinysteps.reportservice.client.SchedulePageDecodingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulePageDecodingBenchmark {
+
+    private static final int CHUNK_BYTES = 8192;
+
+    @Param({"200", "1000"})
+    private int rows;
+
+    private final ObjectMapper sharedMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private byte[][] chunks;
+
+    @Setup
+    public void page() {
+        byte[] body = schedulePage(rows).getBytes(StandardCharsets.UTF_8);
+        int count = (body.length + CHUNK_BYTES - 1) / CHUNK_BYTES;
+        chunks = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = Arrays.copyOfRange(body, i * CHUNK_BYTES, Math.min(body.length, (i + 1) * CHUNK_BYTES));
+        }
+    }
+
+    @Benchmark
+    public ScheduleServiceResponse bufferedStringWithNewMapper() throws IOException {
+        // What the client did before: aggregate the body, copy it into a String, build a mapper per call
+        StringBuilder body = new StringBuilder();
+        for (byte[] chunk : chunks) {
+            body.append(new String(chunk, StandardCharsets.UTF_8));
+        }
+        return JsonMapper.builder().findAndAddModules().build()
+                .readValue(body.toString(), ScheduleServiceResponse.class);
+    }
+
+    @Benchmark
+    public void streamedWithSharedMapper(Blackhole blackhole) throws IOException {
+        SchedulePageDecoder decoder = new SchedulePageDecoder(sharedMapper);
+        for (byte[] chunk : chunks) {
+            List<ScheduleAppointmentDto> appointments = decoder.feed(bufferFactory.wrap(chunk));
+            blackhole.consume(appointments);
+        }
+        blackhole.consume(decoder.endOfInput());
+        blackhole.consume(decoder.getTotalElements());
+    }
+
+    static String schedulePage(int rows) {
+        StringBuilder json = new StringBuilder(rows * 480);
+        json.append("{\"statusCode\":200,\"status\":\"OK\",\"message\":\"Appointments retrieved\",")
+                .append("\"timestamp\":\"2025-03-01T10:15:30\",\"data\":{\"content\":");
+        appendRows(json, rows);
+        json.append(",\"pageable\":{\"pageNumber\":0,\"pageSize\":").append(rows)
+                .append(",\"sort\":{\"empty\":true,\"unsorted\":true,\"sorted\":false},\"offset\":0,\"paged\":true,\"unpaged\":false},")
+                .append("\"last\":true,\"totalElements\":").append(rows).append(",\"totalPages\":1,\"first\":true,")
+                .append("\"size\":").append(rows).append(",\"number\":0,")
+                .append("\"sort\":{\"empty\":true,\"unsorted\":true,\"sorted\":false},")
+                .append("\"numberOfElements\":").append(rows).append(",\"empty\":false},\"errors\":null}");
+        return json.toString();
+    }
+
+    /**
+     * Appends a JSON array of schedule-service appointments shaped like the real ones
+     */
+    static void appendRows(StringBuilder json, int rows) {
+        json.append('[');
+        LocalDate day = LocalDate.of(2025, 3, 1);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"7f3c2a10-0000-4000-8000-").append(String.format("%012d", i)).append('"')
+                    .append(",\"appointmentNumber\":\"APT-").append(100000 + i).append('"')
+                    .append(",\"doctorId\":\"doctor-").append(i % 25).append('"')
+                    .append(",\"patientId\":\"patient-").append(i % 400).append('"')
+                    .append(",\"sessionTypeId\":\"session-type-").append(i % 5).append('"')
+                    .append(",\"sessionOfferingId\":\"offering-").append(i % 40).append('"')
+                    .append(",\"practiceId\":\"branch-").append(i % 3).append('"')
+                    .append(",\"appointmentDate\":\"").append(day.plusDays(i % 28)).append('"')
+                    .append(",\"startTime\":\"").append(String.format("%02d:%02d:00", 8 + i % 10, (i * 15) % 60)).append('"')
+                    .append(",\"endTime\":\"").append(String.format("%02d:%02d:00", 8 + i % 10, (i * 15 + 14) % 60)).append('"')
+                    .append(",\"status\":\"").append(i % 7 == 0 ? "CANCELLED" : "COMPLETED").append('"')
+                    .append(",\"consultationType\":\"").append(i % 2 == 0 ? "IN_PERSON" : "VIDEO").append('"')
+                    .append(",\"notes\":\"Follow-up visit, bring previous reports\"")
+                    .append(",\"cancellationReason\":null")
+                    .append(",\"checkedInAt\":\"").append(day.plusDays(i % 28)).append("T08:55:12\"")
+                    .append(",\"sessionDurationMinutes\":15}");
+        }
+        json.append(']');
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SchedulePageDecodingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
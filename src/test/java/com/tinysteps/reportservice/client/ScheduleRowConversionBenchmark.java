@@ -0,0 +1,194 @@
+package com.tinysteps.reportservice.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.tinysteps.reportservice.model.AppointmentDto;
+import com.tinysteps.reportservice.model.ScheduleServiceResponse.ScheduleAppointmentDto;
+import lombok.Data;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per schedule row of decoding it and converting it to an {@link AppointmentDto}.
+ * {@link SchedulePageDecoder} fills rows from the parser's tokens, with dates and times parsed from its
+ * character buffer into primitives, and {@link AppointmentDto#fromScheduleAppointment} turns them back into
+ * cached {@code java.time} values. That path is compared against rows with {@code java.time} fields bound
+ * by the shared mapper and copied over, and against the original path that kept them as Strings and parsed
+ * them in a builder-based converter. The decoder reads the rows wrapped in a page, the mapper the bare rows.
+ * Scores are nanoseconds per row, i.e. milliseconds per million rows; add {@code -prof gc} for the bytes
+ * allocated per row. Run like {@link SchedulePageDecodingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduleRowConversionBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private final ObjectMapper sharedMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    private ObjectReader javaTimeRows;
+    private ObjectReader stringRows;
+    private byte[] rows;
+    private byte[] page;
+
+    @Setup
+    public void rows() {
+        StringBuilder json = new StringBuilder(ROWS * 480);
+        SchedulePageDecodingBenchmark.appendRows(json, ROWS);
+        rows = json.toString().getBytes(StandardCharsets.UTF_8);
+        page = SchedulePageDecodingBenchmark.schedulePage(ROWS).getBytes(StandardCharsets.UTF_8);
+        javaTimeRows = sharedMapper.readerForListOf(JavaTimeAppointment.class);
+        stringRows = sharedMapper.readerForListOf(StringDatesAppointment.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void primitiveFieldsReadFromParserBuffer(Blackhole blackhole) throws IOException {
+        SchedulePageDecoder decoder = new SchedulePageDecoder(sharedMapper);
+        for (ScheduleAppointmentDto appointment : decoder.feed(DefaultDataBufferFactory.sharedInstance.wrap(page))) {
+            blackhole.consume(AppointmentDto.fromScheduleAppointment(appointment));
+        }
+        blackhole.consume(decoder.endOfInput());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void javaTimeFieldsBoundByMapper(Blackhole blackhole) throws IOException {
+        List<JavaTimeAppointment> appointments = javaTimeRows.readValue(rows);
+        for (JavaTimeAppointment appointment : appointments) {
+            blackhole.consume(appointment.toAppointment());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void stringFieldsParsedInConverter(Blackhole blackhole) throws IOException {
+        List<StringDatesAppointment> appointments = stringRows.readValue(rows);
+        for (StringDatesAppointment appointment : appointments) {
+            blackhole.consume(appointment.toAppointment());
+        }
+    }
+
+    /**
+     * The schedule row and its conversion with dates and times bound by the mapper's java.time deserializers
+     */
+    @Data
+    public static class JavaTimeAppointment {
+        private String id;
+        private String appointmentNumber;
+        private String doctorId;
+        private String patientId;
+        private String sessionTypeId;
+        private String sessionOfferingId;
+        private String practiceId;
+        private LocalDate appointmentDate;
+        private LocalTime startTime;
+        private LocalTime endTime;
+        private String status;
+        private String consultationType;
+        private String notes;
+        private String cancellationReason;
+        private String checkedInAt;
+        private Integer sessionDurationMinutes;
+
+        AppointmentDto toAppointment() {
+            AppointmentDto appointment = new AppointmentDto();
+            appointment.setId(id);
+            appointment.setAppointmentNumber(appointmentNumber);
+            appointment.setPatientId(patientId);
+            appointment.setDoctorId(doctorId);
+            appointment.setBranchId(practiceId);
+            appointment.setSessionTypeId(sessionTypeId);
+            appointment.setSessionId(sessionOfferingId);
+            appointment.setAppointmentType(consultationType);
+            appointment.setAppointmentDate(appointmentDate);
+            appointment.setStartTime(startTime);
+            appointment.setEndTime(endTime);
+            appointment.setStatus(status);
+            appointment.setConsultationType(consultationType);
+            appointment.setNotes(notes);
+            appointment.setCancellationReason(cancellationReason);
+            appointment.setCheckedInAt(checkedInAt != null ? LocalDateTime.parse(checkedInAt) : null);
+            appointment.setSessionDurationMinutes(sessionDurationMinutes);
+            return appointment;
+        }
+    }
+
+    /**
+     * The schedule row and its conversion as they were before the dates were bound by the mapper
+     */
+    @Data
+    public static class StringDatesAppointment {
+        private String id;
+        private String appointmentNumber;
+        private String doctorId;
+        private String patientId;
+        private String sessionTypeId;
+        private String sessionOfferingId;
+        private String practiceId;
+        private String appointmentDate;
+        private String startTime;
+        private String endTime;
+        private String status;
+        private String consultationType;
+        private String notes;
+        private String cancellationReason;
+        private String checkedInAt;
+        private Integer sessionDurationMinutes;
+
+        AppointmentDto toAppointment() {
+            return AppointmentDto.builder()
+                    .id(id)
+                    .appointmentNumber(appointmentNumber)
+                    .patientId(patientId)
+                    .doctorId(doctorId)
+                    .sessionTypeId(sessionTypeId)
+                    .sessionId(sessionOfferingId)
+                    .appointmentType(consultationType)
+                    .appointmentDate(appointmentDate != null ? LocalDate.parse(appointmentDate) : null)
+                    .startTime(startTime != null ? LocalTime.parse(startTime) : null)
+                    .endTime(endTime != null ? LocalTime.parse(endTime) : null)
+                    .status(status)
+                    .consultationType(consultationType)
+                    .notes(notes)
+                    .cancellationReason(cancellationReason)
+                    .checkedInAt(checkedInAt != null ? LocalDateTime.parse(checkedInAt) : null)
+                    .sessionDurationMinutes(sessionDurationMinutes)
+                    .build();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ScheduleRowConversionBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,113 @@
+package com.tinysteps.reportservice.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP stand-in for a downstream service, so the clients' batching and fallback can be checked
+ * without the real services. Routes match on method and path prefix, the longest prefix winning, and
+ * every request is counted per route.
+ */
+public class StubDownstreamServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final List<Route> routes = new CopyOnWriteArrayList<>();
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    public StubDownstreamServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    /**
+     * Answers requests of the method under the path prefix; replaces an earlier route for the same pair
+     */
+    public StubDownstreamServer on(String method, String pathPrefix, Handler handler) {
+        routes.removeIf(route -> route.method().equals(method) && route.pathPrefix().equals(pathPrefix));
+        routes.add(new Route(method, pathPrefix, handler));
+        return this;
+    }
+
+    public int requests(String method, String pathPrefix) {
+        AtomicInteger count = requests.get(method + " " + pathPrefix);
+        return count != null ? count.get() : 0;
+    }
+
+    public void resetCounts() {
+        requests.clear();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            Route match = null;
+            for (Route route : routes) {
+                if (route.method().equals(method) && path.startsWith(route.pathPrefix())
+                        && (match == null || route.pathPrefix().length() > match.pathPrefix().length())) {
+                    match = route;
+                }
+            }
+            if (match == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            requests.computeIfAbsent(method + " " + match.pathPrefix(), key -> new AtomicInteger()).incrementAndGet();
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            Response response = match.handler().handle(path.substring(match.pathPrefix().length()), body);
+            if (response.body() == null) {
+                exchange.sendResponseHeaders(response.status(), -1);
+                return;
+            }
+            byte[] bytes = response.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(response.status(), bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    @FunctionalInterface
+    public interface Handler {
+
+        /**
+         * @param pathRest the request path after the route's prefix
+         */
+        Response handle(String pathRest, String body) throws IOException;
+    }
+
+    public record Response(int status, String body) {
+
+        public static Response json(String body) {
+            return new Response(200, body);
+        }
+
+        public static Response status(int status) {
+            return new Response(status, null);
+        }
+    }
+
+    private record Route(String method, String pathPrefix, Handler handler) {
+    }
+}
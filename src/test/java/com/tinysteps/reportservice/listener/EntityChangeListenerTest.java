@@ -0,0 +1,148 @@
+package com.tinysteps.reportservice.listener;
+
+import com.tinysteps.reportservice.cache.ReferenceDataLookup;
+import com.tinysteps.reportservice.model.AppointmentDto;
+import com.tinysteps.reportservice.service.fetch.EnrichedDayCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(classes = {EntityChangeListener.class, EntityChangeListenerTest.MetricsConfig.class}, properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "kafka.topics.entity-changes=doctor-events,user-events"
+})
+@ImportAutoConfiguration({KafkaAutoConfiguration.class, JacksonAutoConfiguration.class})
+@EmbeddedKafka(partitions = 1, topics = {"doctor-events", "user-events"})
+class EntityChangeListenerTest {
+
+    @TestConfiguration
+    static class MetricsConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockitoBean
+    private ReferenceDataLookup referenceDataLookup;
+
+    @MockitoBean
+    private EnrichedDayCache enrichedDayCache;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @BeforeEach
+    void waitForAssignment() {
+        // The listener starts at the latest offset, so events sent before it is assigned would be missed
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            ContainerTestUtils.waitForAssignment(container, 2);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void doctorUpdateReloadsTheDoctorAndDropsOnlyItsDays() {
+        publish("doctor-events", "DOCTOR_UPDATED", "DOCTOR", "doctor-1");
+
+        verify(referenceDataLookup, timeout(10_000)).invalidate("doctors", "doctor-1", true);
+        ArgumentCaptor<Predicate<AppointmentDto>> affected = ArgumentCaptor.forClass(Predicate.class);
+        verify(enrichedDayCache).invalidateRows(affected.capture());
+        assertThat(affected.getValue().test(AppointmentDto.builder().doctorId("doctor-1").build())).isTrue();
+        assertThat(affected.getValue().test(AppointmentDto.builder().doctorId("doctor-2").build())).isFalse();
+        verify(enrichedDayCache, never()).invalidateAll();
+    }
+
+    @Test
+    void createdEntitiesLeaveTheDayCacheAlone() {
+        publish("doctor-events", "DOCTOR_CREATED", "DOCTOR", "doctor-3");
+
+        verify(referenceDataLookup, timeout(10_000)).invalidate("doctors", "doctor-3", true);
+        verify(enrichedDayCache, never()).invalidateRows(any());
+        verify(enrichedDayCache, never()).invalidateAll();
+    }
+
+    @Test
+    void deletedEntitiesAreEvictedWithoutReloading() {
+        publish("doctor-events", "DOCTOR_DELETED", "DOCTOR", "doctor-4");
+
+        verify(referenceDataLookup, timeout(10_000)).invalidate("doctors", "doctor-4", false);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void userUpdateDropsTheDaysShowingItsCachedName() {
+        when(referenceDataLookup.cachedUserName("user-1")).thenReturn(Optional.of("Jane Doe"));
+
+        publish("user-events", "USER_UPDATED", null, "user-1");
+
+        verify(referenceDataLookup, timeout(10_000)).invalidate("users", "user-1", true);
+        ArgumentCaptor<Predicate<AppointmentDto>> affected = ArgumentCaptor.forClass(Predicate.class);
+        verify(enrichedDayCache).invalidateRows(affected.capture());
+        assertThat(affected.getValue().test(AppointmentDto.builder().patientName("Jane Doe").build())).isTrue();
+        verify(enrichedDayCache, never()).invalidateAll();
+    }
+
+    @Test
+    void uncachedUserUpdateDropsEveryDay() {
+        when(referenceDataLookup.cachedUserName("user-2")).thenReturn(Optional.empty());
+
+        publish("user-events", "USER_UPDATED", null, "user-2");
+
+        verify(referenceDataLookup, timeout(10_000)).invalidate("users", "user-2", true);
+        verify(enrichedDayCache).invalidateAll();
+    }
+
+    @Test
+    void unreadableAndUnknownEventsAreIgnored() {
+        kafkaTemplate.send("doctor-events", "not json").join();
+        publish("doctor-events", "INVOICE_UPDATED", "INVOICE", "invoice-1");
+        publish("doctor-events", "DOCTOR_UPDATED", "DOCTOR", "doctor-5");
+
+        // Events are consumed in order, so the last one arriving means the others were skipped
+        verify(referenceDataLookup, timeout(10_000)).invalidate("doctors", "doctor-5", true);
+        verify(referenceDataLookup, after(500).times(1)).invalidate(anyString(), anyString(), any(Boolean.class));
+    }
+
+    // Published the way the upstream services do: a map serialized by the JSON serializer
+    private void publish(String topic, String eventType, String entityType, String entityId) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("eventType", eventType);
+        event.put("entityType", entityType);
+        event.put("entityId", entityId);
+        kafkaTemplate.send(topic, entityId, event).join();
+    }
+}
@@ -0,0 +1,139 @@
+package com.tinysteps.reportservice.listener;
+
+import com.tinysteps.reportservice.model.ReportRequestDto;
+import com.tinysteps.reportservice.service.ReportService;
+import com.tinysteps.reportservice.service.jobs.ReportJobExecutor;
+import com.tinysteps.reportservice.service.jobs.ReportJobQueue;
+import com.tinysteps.reportservice.service.jobs.ReportLane;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(classes = {ReportRequestListener.class, ReportRequestListenerTest.MetricsConfig.class}, properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "report.async.dispatch=kafka",
+        "report.async.workers=1"
+})
+@ImportAutoConfiguration({KafkaAutoConfiguration.class, JacksonAutoConfiguration.class})
+@EmbeddedKafka(partitions = 1, topics = "report-requests")
+class ReportRequestListenerTest {
+
+    private static final Duration INTERACTIVE_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration BULK_TIMEOUT = Duration.ofMinutes(30);
+
+    @TestConfiguration
+    static class MetricsConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockitoBean
+    private ReportService reportService;
+
+    @MockitoBean
+    private ReportJobExecutor jobExecutor;
+
+    @MockitoBean
+    private ReportJobQueue jobQueue;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void lanes() {
+        when(jobExecutor.timeout(ReportLane.INTERACTIVE)).thenReturn(INTERACTIVE_TIMEOUT);
+        when(jobExecutor.timeout(ReportLane.BULK)).thenReturn(BULK_TIMEOUT);
+    }
+
+    @Test
+    void generatesReportWithinItsLaneTimeoutAndWithTheSubmittersJwt() {
+        Authentication submitter = new TestingAuthenticationToken("user-1", "jwt");
+        when(jobQueue.localContext(1L)).thenReturn(new SecurityContextImpl(submitter));
+        AtomicReference<Authentication> runAs = new AtomicReference<>();
+        when(reportService.runReport(eq(1L), any(), any())).thenAnswer(invocation -> {
+            runAs.set(SecurityContextHolder.getContext().getAuthentication());
+            return true;
+        });
+
+        publish(1L, ReportLane.INTERACTIVE.name());
+
+        verify(reportService, timeout(10_000)).runReport(eq(1L), any(ReportRequestDto.class), eq(INTERACTIVE_TIMEOUT));
+        verify(jobQueue, timeout(10_000)).forgetContext(1L);
+        assertThat(runAs.get()).isSameAs(submitter);
+    }
+
+    @Test
+    void messagesWithoutLaneRunInTheBulkLane() {
+        when(reportService.runReport(eq(2L), any(), any())).thenReturn(true);
+
+        publish(2L, null);
+
+        verify(reportService, timeout(10_000)).runReport(eq(2L), any(ReportRequestDto.class), eq(BULK_TIMEOUT));
+    }
+
+    @Test
+    void messagesWithAnUnknownLaneRunInTheBulkLane() {
+        when(reportService.runReport(eq(4L), any(), any())).thenReturn(true);
+
+        publish(4L, "PRIORITY");
+
+        verify(reportService, timeout(10_000)).runReport(eq(4L), any(ReportRequestDto.class), eq(BULK_TIMEOUT));
+        verify(reportService, after(1_000)).runReport(eq(4L), any(ReportRequestDto.class), any());
+    }
+
+    @Test
+    void reportGeneratedByAnotherWorkerIsSkippedWithoutRedelivery() {
+        when(reportService.runReport(eq(3L), any(), any())).thenReturn(false);
+
+        publish(3L, ReportLane.BULK.name());
+
+        verify(reportService, timeout(10_000)).runReport(eq(3L), any(ReportRequestDto.class), eq(BULK_TIMEOUT));
+        verify(reportService, after(1_000)).runReport(eq(3L), any(ReportRequestDto.class), any());
+        assertThat(meterRegistry.timer("report.jobs.run", "lane", "bulk", "outcome", "skipped").count()).isEqualTo(1);
+    }
+
+    // Published the way ReportServiceImpl does: a map serialized by the JSON serializer
+    private void publish(Long reportId, String lane) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("reportId", reportId);
+        message.put("request", Map.of("reportType", "APPOINTMENT_SUMMARY", "format", "PDF"));
+        message.put("lane", lane);
+        message.put("queuedAt", Instant.now().toString());
+        kafkaTemplate.send("report-requests", "branch-1", message).join();
+    }
+}
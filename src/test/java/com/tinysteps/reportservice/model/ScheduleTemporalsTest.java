@@ -0,0 +1,76 @@
+package com.tinysteps.reportservice.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScheduleTemporalsTest {
+
+    @Test
+    void parsesDatesLikeLocalDate() {
+        for (LocalDate date = LocalDate.of(1899, 12, 1); date.getYear() < 2102; date = date.plusDays(1)) {
+            char[] text = (" " + date + " ").toCharArray();
+
+            int epochDay = ScheduleTemporals.parseEpochDay(text, 1, 10);
+
+            assertThat(epochDay).isEqualTo(date.toEpochDay());
+            assertThat(ScheduleTemporals.date(epochDay)).isEqualTo(date);
+        }
+    }
+
+    @Test
+    void parsesTimesToTheMinute() {
+        assertThat(minuteOfDay("00:00")).isEqualTo(LocalTime.MIDNIGHT);
+        assertThat(minuteOfDay("09:15")).isEqualTo(LocalTime.of(9, 15));
+        assertThat(minuteOfDay("23:59:59")).isEqualTo(LocalTime.of(23, 59));
+        assertThat(minuteOfDay("14:30:00.123456789")).isEqualTo(LocalTime.of(14, 30));
+        assertThat(ScheduleTemporals.time(ScheduleTemporals.minuteOfDay(LocalTime.of(8, 45, 30))))
+                .isEqualTo(LocalTime.of(8, 45));
+    }
+
+    @Test
+    void parsesDateTimesToTheMicrosecond() {
+        for (String text : new String[]{"2025-03-01T08:55:12", "2025-03-01T08:55", "1969-12-31T23:59:59.5",
+                "2024-02-29T00:00:00.123456", "2199-12-31T23:59:59.999999999"}) {
+            LocalDateTime expected = LocalDateTime.parse(text).withNano(LocalDateTime.parse(text).getNano() / 1000 * 1000);
+
+            long micros = ScheduleTemporals.parseMicros(text.toCharArray(), 0, text.length());
+
+            assertThat(ScheduleTemporals.dateTime(micros)).isEqualTo(expected);
+            assertThat(ScheduleTemporals.micros(expected)).isEqualTo(micros);
+        }
+    }
+
+    @Test
+    void rejectsMalformedValues() {
+        for (String date : new String[]{"2025-02-29", "2025-13-01", "2025-1-01", "2025/01/01", "25-01-2025"}) {
+            assertThatThrownBy(() -> ScheduleTemporals.parseEpochDay(date.toCharArray(), 0, date.length()))
+                    .isInstanceOf(DateTimeException.class)
+                    .hasMessageContaining(date);
+        }
+        for (String time : new String[]{"24:00", "09:60", "9:15", "09:15:", "09:15:00.", "09-15"}) {
+            assertThatThrownBy(() -> ScheduleTemporals.parseMinuteOfDay(time.toCharArray(), 0, time.length()))
+                    .isInstanceOf(DateTimeException.class);
+        }
+        String dateTime = "2025-03-01 08:55:12";
+        assertThatThrownBy(() -> ScheduleTemporals.parseMicros(dateTime.toCharArray(), 0, dateTime.length()))
+                .isInstanceOf(DateTimeException.class);
+    }
+
+    @Test
+    void missingValuesStayMissing() {
+        assertThat(ScheduleTemporals.date(ScheduleTemporals.epochDay(null))).isNull();
+        assertThat(ScheduleTemporals.time(ScheduleTemporals.minuteOfDay(null))).isNull();
+        assertThat(ScheduleTemporals.dateTime(ScheduleTemporals.micros(null))).isNull();
+    }
+
+    private static LocalTime minuteOfDay(String text) {
+        return ScheduleTemporals.time(ScheduleTemporals.parseMinuteOfDay(text.toCharArray(), 0, text.length()));
+    }
+}
@@ -0,0 +1,131 @@
+package com.tinysteps.reportservice.service.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReportAdmissionControllerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReportAdmissionController controller = new ReportAdmissionController(meterRegistry);
+    private final ExecutorService requests = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void limits() {
+        ReflectionTestUtils.setField(controller, "maxConcurrent", 2);
+        ReflectionTestUtils.setField(controller, "perUser", 1);
+        ReflectionTestUtils.setField(controller, "perBranch", 2);
+        ReflectionTestUtils.setField(controller, "maxQueued", 5);
+        ReflectionTestUtils.setField(controller, "maxQueuedPerUser", 2);
+        ReflectionTestUtils.setField(controller, "maxWait", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(controller, "retryAfter", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(controller, "userWeights", Map.of());
+    }
+
+    @AfterEach
+    void stop() {
+        requests.shutdownNow();
+    }
+
+    @Test
+    void admitsWithinTheLimitsAndReleasesOnClose() {
+        ReportAdmissionController.Permit first = controller.admit("user-1", "branch-1", 1);
+        ReportAdmissionController.Permit second = controller.admit("user-2", "branch-1", 1);
+
+        assertThat(controller.state()).containsEntry("active", 2);
+        first.close();
+        first.close();
+        second.close();
+        assertThat(controller.state()).containsEntry("active", 0);
+    }
+
+    @Test
+    void userOverItsCapWaitsForItsOwnSlot() throws Exception {
+        ReportAdmissionController.Permit held = controller.admit("user-1", "branch-1", 1);
+
+        Future<ReportAdmissionController.Permit> waiting = requests.submit(() -> controller.admit("user-1", "branch-1", 1));
+        awaitQueued(1);
+        // Another user still gets the free slot
+        ReportAdmissionController.Permit other = controller.admit("user-2", "branch-2", 1);
+        assertThat(waiting).isNotDone();
+
+        held.close();
+        waiting.get(5, TimeUnit.SECONDS).close();
+        other.close();
+    }
+
+    @Test
+    void cheaperReportsOfOtherUsersOvertakeABacklog() throws Exception {
+        ReflectionTestUtils.setField(controller, "maxConcurrent", 1);
+        ReportAdmissionController.Permit held = controller.admit("holder", "branch-1", 1);
+        List<String> admitted = new CopyOnWriteArrayList<>();
+
+        Future<?> first = admitAndRecord("bulk-user", 300, admitted, "bulk-1");
+        awaitQueued(1);
+        Future<?> second = admitAndRecord("bulk-user", 300, admitted, "bulk-2");
+        awaitQueued(2);
+        Future<?> small = admitAndRecord("small-user", 1, admitted, "small");
+        awaitQueued(3);
+
+        held.close();
+        for (Future<?> request : List.of(first, second, small)) {
+            request.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(admitted).containsExactly("small", "bulk-1", "bulk-2");
+    }
+
+    @Test
+    void rejectsWhenTheUsersQueueIsFull() {
+        ReportAdmissionController.Permit held = controller.admit("user-1", "branch-1", 1);
+        requests.submit(() -> controller.admit("user-1", "branch-1", 1));
+        requests.submit(() -> controller.admit("user-1", "branch-1", 1));
+        awaitQueued(2);
+
+        assertThatThrownBy(() -> controller.admit("user-1", "branch-1", 1))
+                .isInstanceOf(AdmissionRejectedException.class)
+                .satisfies(e -> assertThat(((AdmissionRejectedException) e).getRetryAfter()).hasSeconds(30));
+        assertThat(meterRegistry.counter("report.admission.rejected", "reason", "user-queue-full").count()).isEqualTo(1);
+        held.close();
+    }
+
+    @Test
+    void rejectsRequestsThatWaitTooLong() {
+        ReflectionTestUtils.setField(controller, "maxWait", Duration.ofMillis(100));
+        ReportAdmissionController.Permit held = controller.admit("user-1", "branch-1", 1);
+
+        assertThatThrownBy(() -> controller.admit("user-1", "branch-1", 1))
+                .isInstanceOf(AdmissionRejectedException.class);
+        assertThat((List<?>) controller.state().get("queued")).isEmpty();
+        held.close();
+    }
+
+    private Future<?> admitAndRecord(String userId, double cost, List<String> admitted, String name) {
+        return requests.submit(() -> {
+            try (ReportAdmissionController.Permit permit = controller.admit(userId, "branch-1", cost)) {
+                admitted.add(name);
+            }
+        });
+    }
+
+    private void awaitQueued(int count) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (((List<?>) controller.state().get("queued")).size() < count) {
+            assertThat(System.nanoTime()).as("requests queued in time").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+}
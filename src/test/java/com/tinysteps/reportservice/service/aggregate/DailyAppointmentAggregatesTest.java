@@ -0,0 +1,174 @@
+package com.tinysteps.reportservice.service.aggregate;
+
+import com.tinysteps.reportservice.EmbeddedPostgresConfig;
+import com.tinysteps.reportservice.cache.ReferenceDataLookup;
+import com.tinysteps.reportservice.entity.AggregateRefreshDay;
+import com.tinysteps.reportservice.entity.DailyAppointmentAggregate;
+import com.tinysteps.reportservice.entity.ReplicatedAppointment;
+import com.tinysteps.reportservice.model.SessionOfferingDto;
+import com.tinysteps.reportservice.repository.AggregateRefreshDayRepository;
+import com.tinysteps.reportservice.repository.DailyAppointmentAggregateRepository;
+import com.tinysteps.reportservice.repository.ReplicatedAppointmentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Aggregate refreshes against a real Postgres, as several instances run them.
+ * initdb refuses to run as root, so the test is skipped there.
+ */
+@DataJpaTest
+@Import(EmbeddedPostgresConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisabledIfSystemProperty(named = "user.name", matches = "root")
+class DailyAppointmentAggregatesTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 10);
+
+    @Autowired
+    private DailyAppointmentAggregateRepository aggregateRepository;
+
+    @Autowired
+    private AggregateRefreshDayRepository refreshDayRepository;
+
+    @Autowired
+    private ReplicatedAppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ReferenceDataLookup referenceDataLookup = mock(ReferenceDataLookup.class);
+
+    @AfterEach
+    void cleanUp() {
+        aggregateRepository.deleteAll();
+        refreshDayRepository.deleteAll();
+        appointmentRepository.deleteAll();
+    }
+
+    @Test
+    void refreshCountsAppointmentsAndSumsTheirPrices() {
+        offeringPrice("1500.00");
+        appointmentRepository.saveAll(List.of(
+                appointment("a1", "SCHEDULED"), appointment("a2", "SCHEDULED"), appointment("a3", "CANCELLED")));
+        refreshDayRepository.save(new AggregateRefreshDay(DAY, Instant.now()));
+
+        aggregates().refreshChangedDays();
+
+        assertThat(aggregateRepository.findByAppointmentDate(DAY))
+                .extracting(DailyAppointmentAggregate::getStatus, DailyAppointmentAggregate::getAppointmentCount,
+                        row -> row.getRevenue().stripTrailingZeros())
+                .containsExactlyInAnyOrder(
+                        tuple("SCHEDULED", 2L, new BigDecimal("3E+3")),
+                        tuple("CANCELLED", 1L, new BigDecimal("1.5E+3")));
+        assertThat(refreshDayRepository.count()).isZero();
+    }
+
+    @Test
+    void laterPriceChangesDoNotRewritePastRevenue() {
+        offeringPrice("1500.00");
+        appointmentRepository.save(appointment("a1", "COMPLETED"));
+        refreshDayRepository.save(new AggregateRefreshDay(DAY, Instant.now()));
+        DailyAppointmentAggregates aggregates = aggregates();
+        aggregates.refreshChangedDays();
+
+        offeringPrice("2000.00");
+        appointmentRepository.save(appointment("a2", "COMPLETED"));
+        refreshDayRepository.save(new AggregateRefreshDay(DAY, Instant.now()));
+        aggregates.refreshChangedDays();
+
+        assertThat(aggregateRepository.findByAppointmentDate(DAY))
+                .singleElement()
+                .satisfies(row -> {
+                    assertThat(row.getAppointmentCount()).isEqualTo(2);
+                    assertThat(row.getRevenue()).isEqualByComparingTo("3500.00");
+                });
+    }
+
+    @Test
+    void instancesRefreshingTheSameDayLeaveOneSetOfRows() throws Exception {
+        offeringPrice("1500.00");
+        List<ReplicatedAppointment> appointments = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            appointments.add(appointment("a" + i, i % 2 == 0 ? "SCHEDULED" : "COMPLETED"));
+        }
+        appointmentRepository.saveAll(appointments);
+        refreshDayRepository.save(new AggregateRefreshDay(DAY, Instant.now()));
+
+        ExecutorService instances = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int instance = 0; instance < 4; instance++) {
+                DailyAppointmentAggregates aggregates = aggregates();
+                runs.add(instances.submit(aggregates::refreshChangedDays));
+            }
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } finally {
+            instances.shutdownNow();
+        }
+
+        assertThat(aggregateRepository.findByAppointmentDate(DAY))
+                .hasSize(2)
+                .allMatch(row -> row.getAppointmentCount() == 10);
+    }
+
+    private void offeringPrice(String price) {
+        SessionOfferingDto offering = SessionOfferingDto.builder().id("offering-1").price(new BigDecimal(price)).build();
+        when(referenceDataLookup.getSessionOfferingsByIds(anyCollection()))
+                .thenReturn(Mono.just(Map.of("offering-1", offering)));
+    }
+
+    private DailyAppointmentAggregates aggregates() {
+        DailyAppointmentAggregates aggregates = new DailyAppointmentAggregates(aggregateRepository,
+                refreshDayRepository, appointmentRepository, referenceDataLookup,
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(aggregates, "enabled", true);
+        ReflectionTestUtils.setField(aggregates, "refreshBatchDays", 50);
+        ReflectionTestUtils.setField(aggregates, "priceLookupTimeout", Duration.ofSeconds(5));
+        return aggregates;
+    }
+
+    private static ReplicatedAppointment appointment(String id, String status) {
+        return ReplicatedAppointment.builder()
+                .id(id)
+                .branchId("branch-1")
+                .doctorId("doctor-1")
+                .sessionOfferingId("offering-1")
+                .appointmentDate(DAY)
+                .status(status)
+                .consultationType("IN_PERSON")
+                .changedAt(Instant.now())
+                .build();
+    }
+}
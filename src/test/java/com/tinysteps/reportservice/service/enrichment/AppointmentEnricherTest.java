@@ -0,0 +1,98 @@
+package com.tinysteps.reportservice.service.enrichment;
+
+import com.tinysteps.reportservice.cache.ReferenceDataLookup;
+import com.tinysteps.reportservice.client.PatientServiceClient;
+import com.tinysteps.reportservice.model.AppointmentDto;
+import com.tinysteps.reportservice.model.PatientDto;
+import com.tinysteps.reportservice.model.UserDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AppointmentEnricherTest {
+
+    private final PatientServiceClient patientServiceClient = mock(PatientServiceClient.class);
+    private final ReferenceDataLookup referenceDataLookup = mock(ReferenceDataLookup.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Collection<String>> patientRequests = new ArrayList<>();
+    private AppointmentEnricher enricher;
+
+    @BeforeEach
+    void stubServices() {
+        when(patientServiceClient.streamPatientsByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> ids = List.copyOf(invocation.<Collection<String>>getArgument(0));
+            patientRequests.add(ids);
+            return Flux.fromIterable(ids).map(id -> Map.entry(id, PatientDto.builder().id(id).userId("user-" + id).build()));
+        });
+        when(referenceDataLookup.getUsersByIds(anyCollection())).thenAnswer(invocation ->
+                Mono.just(byId(invocation.getArgument(0), id -> UserDto.builder().id(id).name("Name " + id).build())));
+        when(referenceDataLookup.getDoctorsByIds(anyCollection())).thenReturn(Mono.just(Map.of()));
+        when(referenceDataLookup.getSessionTypesByIds(anyCollection())).thenReturn(Mono.just(Map.of()));
+        when(referenceDataLookup.getSessionOfferingsByIds(anyCollection())).thenReturn(Mono.just(Map.of()));
+
+        PatientNameResolver patientNameResolver = new PatientNameResolver(patientServiceClient, referenceDataLookup);
+        ReflectionTestUtils.setField(patientNameResolver, "userBatchSize", 100);
+        ReflectionTestUtils.setField(patientNameResolver, "userBatchWindow", Duration.ofMillis(5));
+        ReflectionTestUtils.setField(patientNameResolver, "userMaxInFlight", 4);
+        enricher = new AppointmentEnricher(patientNameResolver, referenceDataLookup, meterRegistry);
+    }
+
+    @Test
+    void patientsResolvedForAnEarlierPageAreNotFetchedAgain() {
+        ReportEnrichment enrichment = enricher.forReport();
+
+        List<AppointmentDto> first = enrichment.enrich(page("patient-1", "patient-2")).block();
+        List<AppointmentDto> second = enrichment.enrich(page("patient-2", "patient-3")).block();
+
+        assertThat(patientRequests).containsExactly(List.of("patient-1", "patient-2"), List.of("patient-3"));
+        assertThat(first).extracting(AppointmentDto::getPatientName)
+                .containsExactly("Name user-patient-1", "Name user-patient-2");
+        assertThat(second).extracting(AppointmentDto::getPatientName)
+                .containsExactly("Name user-patient-2", "Name user-patient-3");
+    }
+
+    @Test
+    void deduplicationIsRecordedOnceForTheWholeReport() {
+        ReportEnrichment enrichment = enricher.forReport();
+        enrichment.enrich(page("patient-1", "patient-2", "patient-1")).block();
+        enrichment.enrich(page("patient-2", "patient-1", "patient-3")).block();
+
+        assertThat(meterRegistry.find("report.enrichment.dedup.ratio").summary()).isNull();
+
+        enrichment.recordDeduplication();
+        enrichment.recordDeduplication();
+
+        assertThat(meterRegistry.get("report.enrichment.rows").tag("entity", "patient").counter().count()).isEqualTo(6);
+        assertThat(meterRegistry.get("report.enrichment.lookups").tag("entity", "patient").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("report.enrichment.dedup.ratio").tag("entity", "patient").summary().count())
+                .isEqualTo(1);
+    }
+
+    private static List<AppointmentDto> page(String... patientIds) {
+        List<AppointmentDto> appointments = new ArrayList<>();
+        for (String patientId : patientIds) {
+            appointments.add(AppointmentDto.builder().patientId(patientId).build());
+        }
+        return appointments;
+    }
+
+    private static <T> Map<String, T> byId(Collection<String> ids, Function<String, T> lookup) {
+        return ids.stream().distinct().collect(Collectors.toMap(Function.identity(), lookup));
+    }
+}
@@ -0,0 +1,178 @@
+package com.tinysteps.reportservice.service.enrichment;
+
+import com.tinysteps.reportservice.cache.ReferenceDataLookup;
+import com.tinysteps.reportservice.client.PatientServiceClient;
+import com.tinysteps.reportservice.model.AppointmentDto;
+import com.tinysteps.reportservice.model.DoctorDto;
+import com.tinysteps.reportservice.model.PatientDto;
+import com.tinysteps.reportservice.model.SessionOfferingDto;
+import com.tinysteps.reportservice.model.SessionTypeDto;
+import com.tinysteps.reportservice.model.UserDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Wall-clock time to enrich a report's rows against stubbed downstream services that answer every call
+ * after {@link #ROUND_TRIP}. The baseline is the original per-row enrichment: five blocking calls per
+ * appointment (patient, user, doctor, session type, session offering), one after another.
+ * {@link AppointmentEnricher} resolves each distinct ID once through the bulk lookups, 100 IDs per call
+ * with the calls in flight concurrently, and all columns at once. Run like
+ * {@code SchedulePageDecodingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class AppointmentEnrichmentBenchmark {
+
+    private static final Duration ROUND_TRIP = Duration.ofMillis(1);
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"100", "1000", "10000"})
+    private int rows;
+
+    private AppointmentEnricher enricher;
+    private List<AppointmentDto> appointments;
+
+    @Setup
+    public void stubServices() {
+        PatientServiceClient patientServiceClient = mock(PatientServiceClient.class);
+        ReferenceDataLookup referenceDataLookup = mock(ReferenceDataLookup.class);
+        when(patientServiceClient.streamPatientsByIds(anyCollection())).thenAnswer(invocation ->
+                batched(invocation.getArgument(0), AppointmentEnrichmentBenchmark::patient)
+                        .flatMapIterable(Map::entrySet));
+        when(referenceDataLookup.getUsersByIds(anyCollection())).thenAnswer(invocation ->
+                batched(invocation.getArgument(0), AppointmentEnrichmentBenchmark::user).reduce(merge()));
+        when(referenceDataLookup.getDoctorsByIds(anyCollection())).thenAnswer(invocation ->
+                batched(invocation.getArgument(0), AppointmentEnrichmentBenchmark::doctor).reduce(merge()));
+        when(referenceDataLookup.getSessionTypesByIds(anyCollection())).thenAnswer(invocation ->
+                batched(invocation.getArgument(0), AppointmentEnrichmentBenchmark::sessionType).reduce(merge()));
+        when(referenceDataLookup.getSessionOfferingsByIds(anyCollection())).thenAnswer(invocation ->
+                batched(invocation.getArgument(0), AppointmentEnrichmentBenchmark::sessionOffering).reduce(merge()));
+
+        PatientNameResolver patientNameResolver = new PatientNameResolver(patientServiceClient, referenceDataLookup);
+        ReflectionTestUtils.setField(patientNameResolver, "userBatchSize", BATCH_SIZE);
+        ReflectionTestUtils.setField(patientNameResolver, "userBatchWindow", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(patientNameResolver, "userMaxInFlight", 32);
+        enricher = new AppointmentEnricher(patientNameResolver, referenceDataLookup, new SimpleMeterRegistry());
+    }
+
+    @Setup(Level.Invocation)
+    public void appointments() {
+        appointments = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            appointments.add(AppointmentDto.builder()
+                    .id("appointment-" + i)
+                    .patientId("patient-" + i % 400)
+                    .doctorId("doctor-" + i % 25)
+                    .sessionTypeId("session-type-" + i % 5)
+                    .sessionId("offering-" + i % 40)
+                    .appointmentDate(LocalDate.of(2025, 3, 1).plusDays(i % 28))
+                    .startTime(LocalTime.of(9, 0))
+                    .endTime(LocalTime.of(9, 15))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public List<AppointmentDto> sequentialPerRow() {
+        for (AppointmentDto appointment : appointments) {
+            PatientDto patient = call(patient(appointment.getPatientId()));
+            appointment.setPatientName(call(user(patient.getUserId())).getFullName());
+            appointment.setDoctorName(call(doctor(appointment.getDoctorId())).getFullName());
+            appointment.setSessionTypeName(call(sessionType(appointment.getSessionTypeId())).getName());
+            appointment.setSessionOfferingPrice("$" + call(sessionOffering(appointment.getSessionId())).getPrice());
+        }
+        return appointments;
+    }
+
+    @Benchmark
+    public List<AppointmentDto> bulkConcurrent() {
+        return enricher.enrich(appointments).block();
+    }
+
+    // One blocking round trip, as the original clients made per field
+    private static <T> T call(T response) {
+        return Mono.delay(ROUND_TRIP).thenReturn(response).block();
+    }
+
+    // One round trip per chunk of IDs, with the chunks in flight concurrently
+    private static <T> Flux<Map<String, T>> batched(Collection<String> ids, Function<String, T> lookup) {
+        List<String> distinct = List.copyOf(ids);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += BATCH_SIZE) {
+            chunks.add(distinct.subList(from, Math.min(from + BATCH_SIZE, distinct.size())));
+        }
+        return Flux.fromIterable(chunks).flatMap(chunk -> Mono.delay(ROUND_TRIP)
+                .map(tick -> chunk.stream().collect(Collectors.toMap(Function.identity(), lookup))));
+    }
+
+    private static <T> BinaryOperator<Map<String, T>> merge() {
+        return (left, right) -> {
+            Map<String, T> merged = new HashMap<>(left);
+            merged.putAll(right);
+            return merged;
+        };
+    }
+
+    private static PatientDto patient(String id) {
+        return PatientDto.builder().id(id).userId("user-" + id).build();
+    }
+
+    private static UserDto user(String id) {
+        return UserDto.builder().id(id).name("Patient " + id).build();
+    }
+
+    private static DoctorDto doctor(String id) {
+        return DoctorDto.builder().id(id).name("Dr " + id).build();
+    }
+
+    private static SessionTypeDto sessionType(String id) {
+        return SessionTypeDto.builder().id(id).name("Consultation " + id).build();
+    }
+
+    private static SessionOfferingDto sessionOffering(String id) {
+        return SessionOfferingDto.builder().id(id).price(new BigDecimal("1500.00")).build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AppointmentEnrichmentBenchmark.class.getSimpleName()).build()).run();
+    }
+}
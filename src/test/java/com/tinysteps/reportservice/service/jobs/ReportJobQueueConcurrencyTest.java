@@ -0,0 +1,200 @@
+package com.tinysteps.reportservice.service.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinysteps.reportservice.EmbeddedPostgresConfig;
+import com.tinysteps.reportservice.entity.Report;
+import com.tinysteps.reportservice.entity.ReportJob;
+import com.tinysteps.reportservice.model.ReportFormat;
+import com.tinysteps.reportservice.model.ReportRequestDto;
+import com.tinysteps.reportservice.model.ReportType;
+import com.tinysteps.reportservice.repository.ReportJobRepository;
+import com.tinysteps.reportservice.repository.ReportRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Several workers sharing one Postgres report_jobs table, as several instances do.
+ * initdb refuses to run as root, so the test is skipped there.
+ */
+@DataJpaTest
+@Import(EmbeddedPostgresConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisabledIfSystemProperty(named = "user.name", matches = "root")
+class ReportJobQueueConcurrencyTest {
+
+    @Autowired
+    private ReportJobRepository jobRepository;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<ReportLeases> leases = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        leases.forEach(ReportLeases::shutdown);
+        jobRepository.deleteAll();
+        reportRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentWorkersClaimEveryJobExactlyOnce() throws Exception {
+        ReportJobQueue submitter = queue(Duration.ofMinutes(2));
+        for (long reportId = 1; reportId <= 40; reportId++) {
+            submitter.enqueue(reportId, new ReportRequestDto(), ReportLane.BULK, "user-" + reportId % 5, 1);
+        }
+
+        Set<Long> claimed = ConcurrentHashMap.newKeySet();
+        List<Long> duplicates = new ArrayList<>();
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int worker = 0; worker < 4; worker++) {
+                ReportJobQueue queue = queue(Duration.ofMinutes(2));
+                runs.add(workers.submit(() -> {
+                    List<ReportJob> batch;
+                    while (!(batch = queue.claim(ReportLane.BULK, 3)).isEmpty()) {
+                        for (ReportJob job : batch) {
+                            if (!claimed.add(job.getId())) {
+                                synchronized (duplicates) {
+                                    duplicates.add(job.getId());
+                                }
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        assertThat(duplicates).isEmpty();
+        assertThat(claimed).hasSize(40);
+        assertThat(jobRepository.findAll()).allMatch(job -> job.getAttempts() == 1);
+    }
+
+    @Test
+    void expiredLeaseIsReclaimedByAnotherWorker() {
+        ReportJobQueue crashed = queue(Duration.ofSeconds(-1));
+        ReportJobQueue survivor = queue(Duration.ofMinutes(2));
+        crashed.enqueue(1L, new ReportRequestDto(), ReportLane.INTERACTIVE, "user-1", 1);
+
+        ReportJob first = crashed.claim(ReportLane.INTERACTIVE, 1).get(0);
+        List<ReportJob> reclaimed = survivor.claim(ReportLane.INTERACTIVE, 1);
+
+        assertThat(reclaimed).extracting(ReportJob::getId).containsExactly(first.getId());
+        assertThat(reclaimed.get(0).getAttempts()).isEqualTo(2);
+        assertThat(crashed.renew(first.getId())).isFalse();
+    }
+
+    @Test
+    void aUsersBacklogOnlyDelaysTheirOwnJobs() {
+        ReportJobQueue queue = queue(Duration.ofMinutes(2));
+        for (long reportId = 1; reportId <= 3; reportId++) {
+            queue.enqueue(reportId, new ReportRequestDto(), ReportLane.BULK, "heavy", 30);
+        }
+        queue.enqueue(4L, new ReportRequestDto(), ReportLane.BULK, "light", 30);
+
+        assertThat(queue.claim(ReportLane.BULK, 2)).extracting(ReportJob::getReportId).containsExactly(1L, 4L);
+        // The light user's running job still counts against them, yet their next job beats the backlog
+        queue.enqueue(5L, new ReportRequestDto(), ReportLane.BULK, "light", 7);
+        assertThat(queue.claim(ReportLane.BULK, 3)).extracting(ReportJob::getReportId).containsExactly(5L, 2L, 3L);
+    }
+
+    @Test
+    void reportUnderLiveLeaseIsNotStartedTwice() {
+        Long reportId = reportRepository.save(report("PENDING")).getId();
+        ReportLeases first = leases(Duration.ofMinutes(2));
+        ReportLeases second = leases(Duration.ofMinutes(2));
+
+        assertThat(first.acquire(reportId)).isTrue();
+        assertThat(second.acquire(reportId)).isFalse();
+
+        Report report = reportRepository.findById(reportId).orElseThrow();
+        report.setStatus("COMPLETED");
+        reportRepository.save(report);
+        assertThat(first.acquire(reportId)).isFalse();
+    }
+
+    @Test
+    void reportWhoseLeaseExpiredCanBeTakenOver() {
+        Long reportId = reportRepository.save(report("PENDING")).getId();
+        ReportLeases crashed = leases(Duration.ofSeconds(-1));
+        ReportLeases survivor = leases(Duration.ofMinutes(2));
+
+        assertThat(crashed.acquire(reportId)).isTrue();
+        assertThat(survivor.acquire(reportId)).isTrue();
+    }
+
+    @Test
+    void jobsQueuedWithoutALaneRunInTheBulkLane() {
+        // As rows queued before lanes existed get it when the schema update adds the column
+        jdbcTemplate.update("INSERT INTO report_jobs (report_id, request, status, attempts, created_at)"
+                + " VALUES (7, '{}', 'QUEUED', 0, now())");
+        ReportJobQueue queue = queue(Duration.ofMinutes(2));
+
+        assertThat(queue.claim(ReportLane.BULK, 10)).extracting(ReportJob::getReportId).containsExactly(7L);
+        Boolean nullable = jdbcTemplate.queryForObject("SELECT is_nullable = 'YES' FROM information_schema.columns"
+                + " WHERE table_name = 'report_jobs' AND column_name = 'lane'", Boolean.class);
+        assertThat(nullable).isFalse();
+    }
+
+    private ReportJobQueue queue(Duration lease) {
+        ReportJobQueue queue = new ReportJobQueue(jobRepository, new TransactionTemplate(transactionManager),
+                new ObjectMapper(), Duration.ofHours(1));
+        ReflectionTestUtils.setField(queue, "queueCapacity", 100L);
+        ReflectionTestUtils.setField(queue, "lease", lease);
+        return queue;
+    }
+
+    private ReportLeases leases(Duration lease) {
+        ReportLeases reportLeases = new ReportLeases(reportRepository, new SimpleMeterRegistry(), lease, Duration.ofHours(1));
+        leases.add(reportLeases);
+        return reportLeases;
+    }
+
+    private static Report report(String status) {
+        return Report.builder()
+                .title("Appointments")
+                .reportType(ReportType.APPOINTMENT_SUMMARY)
+                .format(ReportFormat.PDF)
+                .userId("user-1")
+                .generatedAt(LocalDateTime.now())
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.tinysteps.reportservice.service.jobs;
+
+import com.tinysteps.reportservice.client.ScheduleServiceClient;
+import com.tinysteps.reportservice.model.ReportRequestDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ReportLaneClassifierTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 3, 1);
+
+    private final ScheduleServiceClient scheduleServiceClient = mock(ScheduleServiceClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReportLaneClassifier classifier = new ReportLaneClassifier(scheduleServiceClient, meterRegistry);
+
+    @BeforeEach
+    void limits() {
+        ReflectionTestUtils.setField(classifier, "interactiveMaxDays", 31L);
+        ReflectionTestUtils.setField(classifier, "interactiveMaxRows", 2000L);
+        ReflectionTestUtils.setField(classifier, "probeTimeout", Duration.ofMillis(200));
+    }
+
+    @Test
+    void longOrUnboundedRangesGoToBulkWithoutAProbe() {
+        assertThat(classifier.classify(request(START, START.plusDays(31))))
+                .isEqualTo(new ReportLaneClassifier.Classification(ReportLane.BULK, null));
+        assertThat(classifier.classify(request(null, START)).lane()).isEqualTo(ReportLane.BULK);
+        verifyNoInteractions(scheduleServiceClient);
+    }
+
+    @Test
+    void shortRangesAreClassifiedByTheProbedTotal() {
+        probeReturns(Mono.just(150L));
+        assertThat(classifier.classify(request(START, START)))
+                .isEqualTo(new ReportLaneClassifier.Classification(ReportLane.INTERACTIVE, 150L));
+
+        probeReturns(Mono.just(2001L));
+        assertThat(classifier.classify(request(START, START.plusDays(30))))
+                .isEqualTo(new ReportLaneClassifier.Classification(ReportLane.BULK, 2001L));
+        assertThat(meterRegistry.counter("report.lanes.classified", "lane", "interactive").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("report.lanes.classified", "lane", "bulk").count()).isEqualTo(1);
+    }
+
+    @Test
+    void failedOrSlowProbesLeaveShortRangesInteractiveWithoutAnEstimate() {
+        probeReturns(Mono.error(new IllegalStateException("schedule-service down")));
+        assertThat(classifier.classify(request(START, START)))
+                .isEqualTo(new ReportLaneClassifier.Classification(ReportLane.INTERACTIVE, null));
+
+        probeReturns(Mono.never());
+        assertThat(classifier.classify(request(START, START)))
+                .isEqualTo(new ReportLaneClassifier.Classification(ReportLane.INTERACTIVE, null));
+
+        probeReturns(Mono.empty());
+        assertThat(classifier.classify(request(START, START)))
+                .isEqualTo(new ReportLaneClassifier.Classification(ReportLane.INTERACTIVE, null));
+    }
+
+    private void probeReturns(Mono<Long> total) {
+        when(scheduleServiceClient.countAppointments(any(), any(), any(), any(), any())).thenReturn(total);
+    }
+
+    private static ReportRequestDto request(LocalDate startDate, LocalDate endDate) {
+        return ReportRequestDto.builder().branchId("branch-1").startDate(startDate).endDate(endDate).build();
+    }
+}
@@ -0,0 +1,114 @@
+package com.tinysteps.reportservice.service.plan;
+
+import com.tinysteps.reportservice.client.ScheduleServiceClient;
+import com.tinysteps.reportservice.model.ReportRequestDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ReportExecutionPlannerTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+
+    private final ScheduleServiceClient scheduleServiceClient = mock(ScheduleServiceClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReportExecutionPlanner planner = new ReportExecutionPlanner(scheduleServiceClient, meterRegistry);
+
+    @TempDir
+    private Path spillDirectory;
+
+    @BeforeEach
+    void settings() {
+        ReflectionTestUtils.setField(planner, "enabled", true);
+        ReflectionTestUtils.setField(planner, "pageStreamingEnabled", true);
+        ReflectionTestUtils.setField(planner, "probeTimeout", Duration.ofMillis(200));
+        ReflectionTestUtils.setField(planner, "defaultRowsPerDay", 50L);
+        ReflectionTestUtils.setField(planner, "bytesPerRow", 1024L);
+        ReflectionTestUtils.setField(planner, "inMemoryMaxBytes", DataSize.ofMegabytes(4));
+        ReflectionTestUtils.setField(planner, "inMemoryMaxHeapFraction", 1.0);
+        ReflectionTestUtils.setField(planner, "spillMinRows", 50_000L);
+        ReflectionTestUtils.setField(planner, "spillPath", spillDirectory.toString());
+    }
+
+    @Test
+    void picksTheStrategyFromTheEstimatedSize() {
+        assertThat(planner.plan(request(), 4096L))
+                .isEqualTo(new ReportPlan(ExecutionStrategy.IN_MEMORY, 4096, 4096L * 1024));
+        assertThat(planner.plan(request(), 4097L).strategy()).isEqualTo(ExecutionStrategy.PAGE_STREAMING);
+        assertThat(planner.plan(request(), 50_000L).strategy()).isEqualTo(ExecutionStrategy.SPILL_TO_DISK);
+        assertThat(meterRegistry.counter("report.plans", "strategy", "spill_to_disk").count()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsSmallReportsOutOfMemoryWhenTheHeapIsTight() {
+        ReflectionTestUtils.setField(planner, "inMemoryMaxHeapFraction", 1e-9);
+
+        assertThat(planner.plan(request(), 10L).strategy()).isEqualTo(ExecutionStrategy.PAGE_STREAMING);
+    }
+
+    @Test
+    void usesAKnownRowCountWithoutProbing() {
+        planner.plan(request(), 10L);
+
+        verifyNoInteractions(scheduleServiceClient);
+    }
+
+    @Test
+    void probesWhenNoRowCountIsKnown() {
+        when(scheduleServiceClient.countAppointments(any(), any(), any(), any(), any())).thenReturn(Mono.just(60_000L));
+
+        assertThat(planner.plan(request(), null))
+                .isEqualTo(new ReportPlan(ExecutionStrategy.SPILL_TO_DISK, 60_000, 60_000L * 1024));
+    }
+
+    @Test
+    void estimatesFromTheDateSpanWhenTheProbeFails() {
+        when(scheduleServiceClient.countAppointments(any(), any(), any(), any(), any()))
+                .thenReturn(Mono.error(new IllegalStateException("schedule-service down")));
+
+        // 31 days at 50 rows per day
+        assertThat(planner.plan(request(), null).estimatedRows()).isEqualTo(1550);
+        assertThat(planner.plan(ReportRequestDto.builder().build(), null))
+                .isEqualTo(new ReportPlan(ExecutionStrategy.PAGE_STREAMING, -1, -1));
+    }
+
+    @Test
+    void fallsBackToTheConfiguredPathWhenDisabled() {
+        ReflectionTestUtils.setField(planner, "enabled", false);
+
+        assertThat(planner.plan(request(), 10L).strategy()).isEqualTo(ExecutionStrategy.PAGE_STREAMING);
+        ReflectionTestUtils.setField(planner, "pageStreamingEnabled", false);
+        assertThat(planner.plan(request(), 10L).strategy()).isEqualTo(ExecutionStrategy.IN_MEMORY);
+    }
+
+    @Test
+    void deletesOnlySpillLeftoversAtStartup() throws IOException {
+        Path leftover = Files.createFile(spillDirectory.resolve("appointments-123.jsonl"));
+        Path unrelated = Files.createFile(spillDirectory.resolve("notes.txt"));
+
+        planner.deleteSpillLeftovers();
+
+        assertThat(leftover).doesNotExist();
+        assertThat(unrelated).exists();
+    }
+
+    private static ReportRequestDto request() {
+        return ReportRequestDto.builder().branchId("branch-1").startDate(START).endDate(START.plusDays(30)).build();
+    }
+}
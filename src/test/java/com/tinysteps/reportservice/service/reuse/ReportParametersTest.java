@@ -0,0 +1,86 @@
+package com.tinysteps.reportservice.service.reuse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tinysteps.reportservice.model.ReportFormat;
+import com.tinysteps.reportservice.model.ReportRequestDto;
+import com.tinysteps.reportservice.model.ReportType;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportParametersTest {
+
+    private final ReportParameters parameters = new ReportParameters(new ObjectMapper());
+
+    @Test
+    void writesFieldsInAFixedOrderWithoutBlankFilters() {
+        ReportRequestDto request = ReportRequestDto.builder()
+                .endDate(LocalDate.of(2025, 1, 31))
+                .startDate(LocalDate.of(2025, 1, 1))
+                .doctorId(" doctor-1 ")
+                .patientId("   ")
+                .format(ReportFormat.PDF)
+                .reportType(ReportType.APPOINTMENT_SUMMARY)
+                .userId("user-1")
+                .build();
+
+        assertThat(parameters.canonicalize(request, "user-1")).isEqualTo("{\"reportType\":\"APPOINTMENT_SUMMARY\",\"format\":\"PDF\","
+                + "\"branchId\":\"all\",\"doctorId\":\"doctor-1\",\"startDate\":\"2025-01-01\","
+                + "\"endDate\":\"2025-01-31\",\"caller\":\"user-1\"}");
+    }
+
+    @Test
+    void missingBlankAndAllBranchesCanonicalizeAlike() {
+        String missing = parameters.canonicalize(request("user-1", null), "user-1");
+        String blank = parameters.canonicalize(request("user-1", " "), "user-1");
+        String all = parameters.canonicalize(request("user-1", "ALL"), "user-1");
+
+        assertThat(blank).isEqualTo(missing);
+        assertThat(all).isEqualTo(missing);
+        assertThat(parameters.canonicalize(request("user-1", "branch-1"), "user-1")).isNotEqualTo(missing);
+    }
+
+    @Test
+    void separatesCallersUnlessReportsAreShared() {
+        assertThat(parameters.canonicalize(request("user-1", "branch-1"), "user-1"))
+                .isNotEqualTo(parameters.canonicalize(request("user-1", "branch-1"), "user-2"));
+
+        ReflectionTestUtils.setField(parameters, "acrossUsers", true);
+
+        assertThat(parameters.canonicalize(request("user-1", "branch-1"), "user-1"))
+                .isEqualTo(parameters.canonicalize(request("user-1", "branch-1"), "user-2"));
+    }
+
+    @Test
+    void ignoresTheUserIdInTheRequestBody() {
+        // A client must not be able to pick up another user's report by naming them in the body
+        assertThat(parameters.canonicalize(request("user-2", "branch-1"), "user-1"))
+                .isEqualTo(parameters.canonicalize(request("user-1", "branch-1"), "user-1"));
+    }
+
+    @Test
+    void hashesToStableSha256Hex() {
+        String canonical = parameters.canonicalize(request("user-1", "branch-1"), "user-1");
+
+        assertThat(parameters.hash(canonical))
+                .hasSize(64)
+                .matches("[0-9a-f]+")
+                .isEqualTo(parameters.hash(parameters.canonicalize(request("user-1", " branch-1 "), "user-1")));
+        assertThat(parameters.hash("abc"))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+
+    private static ReportRequestDto request(String userId, String branchId) {
+        return ReportRequestDto.builder()
+                .reportType(ReportType.APPOINTMENT_SUMMARY)
+                .format(ReportFormat.EXCEL)
+                .userId(userId)
+                .branchId(branchId)
+                .startDate(LocalDate.of(2025, 2, 1))
+                .endDate(LocalDate.of(2025, 2, 28))
+                .build();
+    }
+}